@@ -0,0 +1,57 @@
+package oleborn.analyticsservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import oleborn.analyticsservice.domain.dto.OrderTimelineDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Конфигурация локальных кэшей Caffeine для чтения таймлайнов заказов.
+ * <p>
+ * Все настройки вынесены в properties (caffeine.timeline.*).
+ */
+@Configuration
+public class CaffeineConfig {
+
+    @Value("${caffeine.timeline.maximumSize:200000}")
+    private long maximumSize;                  // максимальное количество таймлайнов в кэше
+
+    @Value("${caffeine.timeline.expireAfterWriteMinutes:30}")
+    private long expireAfterWriteMinutes;      // сколько таймлайн живёт без новых событий заказа
+
+    @Value("${caffeine.timeline.missing.maximumSize:100000}")
+    private long missingMaximumSize;           // максимальное количество неизвестных orderId
+
+    @Value("${caffeine.timeline.missing.expireAfterWriteSeconds:30}")
+    private long missingExpireAfterWriteSeconds;  // сколько промах не доходит до БД
+
+    /**
+     * Кэш «orderId → таймлайн» недавних заказов. Наполняется при записи событий,
+     * поэтому заказы в работе в нём есть всегда; вытеснение — TinyLFU по размеру и TTL.
+     */
+    @Bean
+    public Cache<Long, OrderTimelineDto> timelineCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Негативный кэш orderId, которых нет в order_lifecycle. Отдельный, чтобы поток
+     * промахов (опечатки, ещё не дошедшие заказы) не вытеснял настоящие таймлайны.
+     */
+    @Bean
+    public Cache<Long, Boolean> missingTimelineCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(missingMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(missingExpireAfterWriteSeconds))
+                .recordStats()
+                .build();
+    }
+}
@@ -73,6 +73,32 @@ public class KafkaConsumerConfig {
         return factory;
     }
 
+    /**
+     * Фабрика пакетных (batch) контейнеров для LifecycleBatchConsumer.
+     * <p>
+     * Слушатель получает весь результат poll по трём топикам сразу, сливает события
+     * одного заказа в одну строку и пишет пакет одним multi-row upsert.
+     *
+     * @param maxPollRecords максимальный размер пакета за один poll
+     * @return фабрика для @KafkaListener с {@code batch = "true"}
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            @Value("${app.analytics.batch.max-poll-records:1000}") int maxPollRecords
+    ) {
+        Map<String, Object> props = new HashMap<>(consumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setObservationEnabled(true);
+
+        return factory;
+    }
+
     @Bean
     public SmartMessageConverter smartMessageConverter(ObjectMapper objectMapper) {
         MappingJacksonParameterizedConverter converter = new MappingJacksonParameterizedConverter();
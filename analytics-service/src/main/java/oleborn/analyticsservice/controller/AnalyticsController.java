@@ -2,12 +2,33 @@ package oleborn.analyticsservice.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import oleborn.analyticsservice.dictionary.LifecycleStage;
+import oleborn.analyticsservice.domain.dto.DailyOrderStatsDto;
+import oleborn.analyticsservice.domain.dto.LatencyPercentilesDto;
 import oleborn.analyticsservice.domain.dto.OrderTimelineDto;
 import oleborn.analyticsservice.domain.dto.ProcessingMetricsDto;
-import oleborn.analyticsservice.domain.entity.OrderLifecycle;
-import oleborn.analyticsservice.repository.OrderLifecycleRepository;
+import oleborn.analyticsservice.domain.dto.StagePercentilesDto;
+import oleborn.analyticsservice.repository.OrderLifecycleDailyRollupRepository;
+import oleborn.analyticsservice.repository.StageLatencyRollupRepository;
+import oleborn.analyticsservice.service.LatencySketchService;
+import oleborn.analyticsservice.service.LiveSagaMetrics;
+import oleborn.analyticsservice.service.OrderTimelineCache;
+import org.HdrHistogram.Histogram;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -15,21 +36,91 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class AnalyticsController {
 
-    private final OrderLifecycleRepository repository;
+    private final OrderTimelineCache timelineCache;
+    private final StageLatencyRollupRepository rollupRepository;
+    private final OrderLifecycleDailyRollupRepository dailyRollupRepository;
+    private final LatencySketchService latencySketchService;
+    private final LiveSagaMetrics liveSagaMetrics;
 
+    /**
+     * Таймлайн заказа из кэша {@link OrderTimelineCache}; заказы в работе в нём есть всегда.
+     *
+     * @return 404 — заказа нет в order_lifecycle
+     */
     @GetMapping("/orders/{orderId}/timeline")
     public ResponseEntity<OrderTimelineDto> getTimeline(@PathVariable Long orderId) {
         log.debug("Request timeline for order {}", orderId);
-        OrderLifecycle record = repository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
-        return ResponseEntity.ok(OrderTimelineDto.from(record));
+        return ResponseEntity.of(timelineCache.find(orderId));
     }
 
+    /**
+     * Средние времена этапов из поминутных агрегатов — без сканирования order_lifecycle.
+     *
+     * @param from начало интервала по моменту завершения этапа (ISO-8601), по умолчанию — всё время
+     * @param to   конец интервала (не включительно), по умолчанию — сейчас
+     */
     @GetMapping("/metrics/processing-times")
-    public ResponseEntity<ProcessingMetricsDto> getProcessingMetrics() {
-        log.debug("Request processing metrics");
-        Double avgPayment = repository.getAvgPaymentProcessingTime();
-        Double avgNotification = repository.getAvgNotificationTime();
+    public ResponseEntity<ProcessingMetricsDto> getProcessingMetrics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
+    ) {
+        log.debug("Request processing metrics from {} to {}", from, to);
+        Instant rangeFrom = from == null ? Instant.EPOCH : from;
+        Instant rangeTo = to == null ? Instant.now() : to;
+        Double avgPayment = rollupRepository.summary(LifecycleStage.PAYMENT_PROCESSING, rangeFrom, rangeTo).avgSeconds();
+        Double avgNotification = rollupRepository.summary(LifecycleStage.NOTIFICATION, rangeFrom, rangeTo).avgSeconds();
         return ResponseEntity.ok(new ProcessingMetricsDto(avgPayment, avgNotification));
     }
-}
\ No newline at end of file
+
+    /**
+     * Заказы по дням и итоговому статусу оплаты: сжатые дни — из дневных агрегатов,
+     * остальные — агрегацией только попадающих в интервал партиций order_lifecycle.
+     *
+     * @param from первый день (UTC), по умолчанию — неделя назад
+     * @param to   последний день (включительно), по умолчанию — сегодня
+     */
+    @GetMapping("/metrics/daily-orders")
+    public ResponseEntity<List<DailyOrderStatsDto>> getDailyOrders(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        LocalDate lastDay = to == null ? LocalDate.now(ZoneOffset.UTC) : to;
+        LocalDate firstDay = from == null ? lastDay.minusDays(7) : from;
+        log.debug("Request daily orders from {} to {}", firstDay, lastDay);
+        return ResponseEntity.ok(dailyRollupRepository.stats(firstDay, lastDay.plusDays(1)));
+    }
+
+    /**
+     * p50/p95/p99/p999 этапов саги — слиянием скетчей окон, без сканирования order_lifecycle.
+     *
+     * @param from начало интервала (ISO-8601, округляется вниз до окна), по умолчанию — час назад
+     * @param to   конец интервала (не включительно), по умолчанию — сейчас
+     */
+    @GetMapping("/metrics/latency-percentiles")
+    public ResponseEntity<LatencyPercentilesDto> getLatencyPercentiles(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
+    ) {
+        Instant rangeTo = to == null ? Instant.now() : to;
+        Instant rangeFrom = from == null ? rangeTo.minus(Duration.ofHours(1)) : from;
+        log.debug("Request latency percentiles from {} to {}", rangeFrom, rangeTo);
+
+        Map<LifecycleStage, Histogram> merged = latencySketchService.merged(rangeFrom, rangeTo);
+        List<StagePercentilesDto> stages = Arrays.stream(LifecycleStage.values())
+                .map(stage -> StagePercentilesDto.from(stage, merged.get(stage)))
+                .toList();
+        return ResponseEntity.ok(new LatencyPercentilesDto(rangeFrom, rangeTo, stages));
+    }
+
+    /**
+     * SSE-поток живых метрик саги: раз в секунду — пропускная способность и перцентили этапов
+     * за скользящее окно. Считается в памяти из событий consumers, БД не читает.
+     */
+    @GetMapping(value = "/stream/saga", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSagaMetrics() throws IOException {
+        log.debug("Subscribe to live saga metrics");
+        return liveSagaMetrics.subscribe()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
@@ -0,0 +1,55 @@
+package oleborn.analyticsservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.analyticsservice.domain.dto.ReplayReportDto;
+import oleborn.analyticsservice.service.LifecycleReplayService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+/**
+ * Запуск и ход перестроения order_lifecycle из Kafka ({@link LifecycleReplayService}).
+ */
+@RestController
+@RequestMapping("/api/analytics/replay")
+@RequiredArgsConstructor
+@Slf4j
+public class ReplayController {
+
+    private final LifecycleReplayService replayService;
+
+    /**
+     * Replay только дополняет строки (слияние GREATEST): более ранние или очищенные новой логикой
+     * значения он не восстановит — такие строки нужно удалить до запуска. Дни старше
+     * {@code retention-days} уже сжаты и не перестраиваются: {@code from} поднимается до границы хранения.
+     *
+     * @param from начало интервала по времени записи Kafka (ISO-8601)
+     * @param to   конец интервала (не включительно), по умолчанию — текущий конец топиков
+     * @return 202 — replay запущен (фактическое начало — в {@code from} отчёта), 409 — уже выполняется
+     */
+    @PostMapping
+    public ResponseEntity<ReplayReportDto> start(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
+    ) {
+        log.info("Request lifecycle replay from {} to {}", from, to);
+        HttpStatus status = replayService.start(from, to) ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(replayService.report().orElse(null));
+    }
+
+    @GetMapping
+    public ResponseEntity<ReplayReportDto> report() {
+        return ResponseEntity.of(replayService.report());
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> cancel() {
+        log.info("Request lifecycle replay cancellation");
+        replayService.cancel();
+        return ResponseEntity.noContent().build();
+    }
+}
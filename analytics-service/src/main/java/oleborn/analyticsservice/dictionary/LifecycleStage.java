@@ -0,0 +1,45 @@
+package oleborn.analyticsservice.dictionary;
+
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Этапы саги, латентность которых считает аналитика: от одной отметки order_lifecycle до следующей.
+ */
+public enum LifecycleStage {
+
+    /** Заказ создан → оплата начата */
+    PAYMENT_START(OrderLifecycle::getCreatedAt, OrderLifecycle::getPaymentStartedAt),
+
+    /** Оплата начата → оплата завершена */
+    PAYMENT_PROCESSING(OrderLifecycle::getPaymentStartedAt, OrderLifecycle::getPaymentCompletedAt),
+
+    /** Оплата завершена → уведомление отправлено */
+    NOTIFICATION(OrderLifecycle::getPaymentCompletedAt, OrderLifecycle::getNotificationSentAt);
+
+    private final Function<OrderLifecycle, Instant> start;
+    private final Function<OrderLifecycle, Instant> end;
+
+    LifecycleStage(Function<OrderLifecycle, Instant> start, Function<OrderLifecycle, Instant> end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public boolean isComplete(OrderLifecycle row) {
+        return row != null && start.apply(row) != null && end.apply(row) != null;
+    }
+
+    /**
+     * @return момент завершения этапа — по нему этап попадает в окно агрегатов
+     */
+    public Instant endOf(OrderLifecycle row) {
+        return end.apply(row);
+    }
+
+    public long latencyMillis(OrderLifecycle row) {
+        return Duration.between(start.apply(row), end.apply(row)).toMillis();
+    }
+}
@@ -0,0 +1,16 @@
+package oleborn.analyticsservice.domain.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Заказы одного дня (UTC) с итоговым статусом оплаты {@code paymentStatus}
+ * ({@code NONE} — оплата ещё не завершилась) и сколько из них дошло до каждой отметки.
+ */
+public record DailyOrderStatsDto(
+        LocalDate day,
+        String paymentStatus,
+        long orders,
+        long paymentStarted,
+        long paymentCompleted,
+        long notificationSent
+) {}
@@ -0,0 +1,10 @@
+package oleborn.analyticsservice.domain.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record LatencyPercentilesDto(
+        Instant from,
+        Instant to,
+        List<StagePercentilesDto> stages
+) {}
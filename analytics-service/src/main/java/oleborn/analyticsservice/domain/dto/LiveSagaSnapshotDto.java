@@ -0,0 +1,22 @@
+package oleborn.analyticsservice.domain.dto;
+
+import oleborn.analyticsservice.dictionary.LifecycleStage;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Секундный снимок живых метрик саги для SSE.
+ *
+ * @param second               секунда, за которую посчитана пропускная способность
+ * @param eventsPerSecond      событий жизненного цикла принято за секунду
+ * @param completionsPerSecond завершений каждого этапа за секунду
+ * @param window               перцентили этапов за скользящее окно последних секунд
+ */
+public record LiveSagaSnapshotDto(
+        Instant second,
+        long eventsPerSecond,
+        Map<LifecycleStage, Long> completionsPerSecond,
+        List<StagePercentilesDto> window
+) {}
@@ -0,0 +1,26 @@
+package oleborn.analyticsservice.domain.dto;
+
+import java.time.Instant;
+
+/**
+ * Ход и итог replay: объёмы, время чтения Kafka и загрузки в БД по отдельности, пропускная способность.
+ *
+ * @param state   RUNNING, COMPLETED, CANCELLED или FAILED
+ * @param records прочитано записей Kafka в диапазоне
+ * @param events  из них событий жизненного цикла
+ * @param rows    загружено строк order_lifecycle (после слияния по заказу)
+ */
+public record ReplayReportDto(
+        String state,
+        Instant from,
+        Instant to,
+        long records,
+        long events,
+        long rows,
+        int flushes,
+        long consumeMillis,
+        long loadMillis,
+        double recordsPerSecond,
+        double rowsPerSecond,
+        String error
+) {}
@@ -0,0 +1,29 @@
+package oleborn.analyticsservice.domain.dto;
+
+import oleborn.analyticsservice.dictionary.LifecycleStage;
+import org.HdrHistogram.Histogram;
+
+public record StagePercentilesDto(
+        LifecycleStage stage,
+        long count,
+        Long p50Ms,
+        Long p95Ms,
+        Long p99Ms,
+        Long p999Ms,
+        Long maxMs
+) {
+    public static StagePercentilesDto from(LifecycleStage stage, Histogram histogram) {
+        if (histogram == null || histogram.getTotalCount() == 0) {
+            return new StagePercentilesDto(stage, 0, null, null, null, null, null);
+        }
+        return new StagePercentilesDto(
+                stage,
+                histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(95),
+                histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9),
+                histogram.getMaxValue()
+        );
+    }
+}
@@ -0,0 +1,14 @@
+package oleborn.analyticsservice.domain.model;
+
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+
+/**
+ * Строка order_lifecycle до и после пакетного upsert.
+ *
+ * @param previous состояние до записи; null, если строки ещё не было
+ * @param merged   состояние после записи
+ */
+public record LifecycleChange(
+        OrderLifecycle previous,
+        OrderLifecycle merged
+) {}
@@ -0,0 +1,17 @@
+package oleborn.analyticsservice.domain.model;
+
+import oleborn.analyticsservice.dictionary.LifecycleStage;
+
+import java.time.Instant;
+
+/**
+ * Одно завершение этапа саги.
+ *
+ * @param completedAt   момент завершения этапа (определяет окно агрегата)
+ * @param latencyMillis длительность этапа, не меньше нуля — одна и та же во всех агрегатах
+ */
+public record StageLatencySample(
+        LifecycleStage stage,
+        Instant completedAt,
+        long latencyMillis
+) {}
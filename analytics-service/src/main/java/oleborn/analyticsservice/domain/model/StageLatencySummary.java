@@ -0,0 +1,15 @@
+package oleborn.analyticsservice.domain.model;
+
+/**
+ * Агрегат латентности этапа за интервал, собранный из поминутных строк rollup-таблицы.
+ */
+public record StageLatencySummary(
+        long count,
+        long sumMillis,
+        Long minMillis,
+        Long maxMillis
+) {
+    public Double avgSeconds() {
+        return count == 0 ? null : sumMillis / 1000.0 / count;
+    }
+}
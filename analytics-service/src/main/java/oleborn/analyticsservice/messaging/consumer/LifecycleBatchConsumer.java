@@ -0,0 +1,68 @@
+package oleborn.analyticsservice.messaging.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.analyticsservice.service.LiveSagaMetrics;
+import oleborn.analyticsservice.service.OrderLifecycleBatch;
+import oleborn.analyticsservice.service.OrderLifecycleService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Пакетная обработка всех событий жизненного цикла заказа.
+ * <p>
+ * Один слушатель на три топика: события одного заказа из разных топиков, попавшие в один poll
+ * (OrderCreated, PaymentStarted, PaymentCompleted, NotificationSent), сливаются в одну строку
+ * и весь пакет пишется одним multi-row upsert в одной транзакции — вместо транзакции на событие.
+ * <p>
+ * Upsert идемпотентен, поэтому при ошибке пакет целиком повторяется обработчиком ошибок контейнера.
+ * Активен при {@code app.analytics.batch.enabled=true} и заменяет поштучные
+ * {@link OrderCreatedConsumer}, {@link PaymentEventConsumer} и {@link NotificationSentConsumer}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.analytics.batch.enabled", havingValue = "true")
+public class LifecycleBatchConsumer {
+
+    private final OrderLifecycleService service;
+    private final LiveSagaMetrics liveSagaMetrics;
+
+    @KafkaListener(
+            topics = {
+                    "${app.topic.order-create-topic}",
+                    "${app.topic.payment-events}",
+                    "${app.topic.notification-events}"
+            },
+            groupId = "analytics-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            batch = "true"
+    )
+    public void onLifecycleEvents(List<ConsumerRecord<String, Object>> records, Acknowledgment ack) {
+
+        OrderLifecycleBatch batch = new OrderLifecycleBatch();
+
+        for (ConsumerRecord<String, Object> record : records) {
+            if (record.value() == null) {
+                log.error("Skipping undeserializable record {}-{}@{}", record.topic(), record.partition(), record.offset());
+            } else if (!batch.add(record.value())) {
+                log.debug("Skipping event {} from {}", record.value().getClass().getSimpleName(), record.topic());
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            service.upsertAll(batch.rows());
+        }
+
+        ack.acknowledge();
+        liveSagaMetrics.recordEvents(batch.events());
+
+        log.debug("Lifecycle batch processed: {} records, {} events merged into {} rows",
+                records.size(), batch.events(), batch.rows().size());
+    }
+}
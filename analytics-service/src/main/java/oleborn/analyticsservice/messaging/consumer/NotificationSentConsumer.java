@@ -3,7 +3,9 @@ package oleborn.analyticsservice.messaging.consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import oleborn.analyticsservice.domain.event.NotificationSentEvent;
+import oleborn.analyticsservice.service.LiveSagaMetrics;
 import oleborn.analyticsservice.service.OrderLifecycleService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
@@ -11,9 +13,11 @@ import org.springframework.stereotype.Component;
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.analytics.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class NotificationSentConsumer {
 
     private final OrderLifecycleService service;
+    private final LiveSagaMetrics liveSagaMetrics;
 
     @KafkaListener(topics = "${app.topic.notification-events}", groupId = "analytics-service-group")
     public void onNotificationSent(NotificationSentEvent event, Acknowledgment ack) {
@@ -24,6 +28,8 @@ public class NotificationSentConsumer {
 
             service.upsertNotificationSentAt(event.orderId(), event.timestamp());
 
+            liveSagaMetrics.recordEvents(1);
+
             ack.acknowledge();
 
             log.debug("NotificationSent processed for order {}", event.orderId());
@@ -3,7 +3,9 @@ package oleborn.analyticsservice.messaging.consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import oleborn.analyticsservice.domain.event.OrderCreatedEvent;
+import oleborn.analyticsservice.service.LiveSagaMetrics;
 import oleborn.analyticsservice.service.OrderLifecycleService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
@@ -13,9 +15,11 @@ import java.time.ZoneOffset;
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.analytics.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class OrderCreatedConsumer {
 
     private final OrderLifecycleService service;
+    private final LiveSagaMetrics liveSagaMetrics;
 
     @KafkaListener(topics = "${app.topic.order-create-topic}", groupId = "analytics-service-group")
     public void onOrderCreated(OrderCreatedEvent event, Acknowledgment ack) {
@@ -26,6 +30,8 @@ public class OrderCreatedConsumer {
             // Конвертируем LocalDateTime → Instant (UTC)
             service.upsertCreatedAt(event.orderId(), event.timestamp().toInstant(ZoneOffset.UTC));
 
+            liveSagaMetrics.recordEvents(1);
+
             ack.acknowledge();
 
             log.debug("OrderCreated processed for order {}", event.orderId());
@@ -4,7 +4,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import oleborn.analyticsservice.domain.event.PaymentCompletedEvent;
 import oleborn.analyticsservice.domain.event.PaymentStartedEvent;
+import oleborn.analyticsservice.service.LiveSagaMetrics;
 import oleborn.analyticsservice.service.OrderLifecycleService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaHandler;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
@@ -13,10 +15,12 @@ import org.springframework.stereotype.Component;
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.analytics.batch.enabled", havingValue = "false", matchIfMissing = true)
 @KafkaListener(topics = "${app.topic.payment-events}", groupId = "analytics-service-group")
 public class PaymentEventConsumer {
 
     private final OrderLifecycleService service;
+    private final LiveSagaMetrics liveSagaMetrics;
 
     @KafkaHandler
     public void onPaymentStarted(PaymentStartedEvent event, Acknowledgment ack) {
@@ -26,6 +30,8 @@ public class PaymentEventConsumer {
 
             service.upsertPaymentStartedAt(event.orderId(), event.timestamp());
 
+            liveSagaMetrics.recordEvents(1);
+
             ack.acknowledge();
 
             log.debug("PaymentStarted processed for order {}", event.orderId());
@@ -44,6 +50,8 @@ public class PaymentEventConsumer {
 
             service.upsertPaymentCompletedAt(event.orderId(), event.timestamp(), event.status());
 
+            liveSagaMetrics.recordEvents(1);
+
             ack.acknowledge();
 
             log.debug("PaymentCompleted processed for order {}", event.orderId());
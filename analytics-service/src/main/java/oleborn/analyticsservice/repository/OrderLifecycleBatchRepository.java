@@ -0,0 +1,193 @@
+package oleborn.analyticsservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+import oleborn.analyticsservice.domain.model.LifecycleChange;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Пакетная запись {@code order_lifecycle} одним multi-row upsert.
+ * <p>
+ * Все строки пакета передаются шестью массивами-параметрами и разворачиваются через
+ * {@code unnest} — один statement и один round-trip на любой размер пакета, без лимита
+ * на число bind-параметров.
+ * <p>
+ * Правила слияния: время обновляется, только если новое позже (out-of-order), статус следует
+ * за самым поздним payment_completed_at. {@code GREATEST} в PostgreSQL игнорирует NULL, поэтому
+ * поле, которого не было в пакете, не затирается, а ещё пустое — заполняется.
+ * <p>
+ * Таблица секционирована по {@code partition_at}, а уникальный ключ — (order_id, partition_at).
+ * Поэтому первый запрос разрешает партицию каждого заказа по {@code order_lifecycle_key}:
+ * новый заказ получает самую раннюю из пришедших отметок, существующий — свою прежнюю.
+ * Пустой DO UPDATE блокирует строку ключа до конца транзакции: два конкурентных пакета
+ * с одним заказом не создадут две строки в разных партициях и сериализуются по заказу.
+ * <p>
+ * Второй запрос — сам upsert — возвращает каждую строку до и после записи: по ним считается,
+ * какие этапы саги завершились в этом пакете. Он отделён от первого намеренно: в READ COMMITTED
+ * снимок берётся в начале statement'а, и в одном запросе с блокировкой «прежняя» строка
+ * читалась бы из снимка до ожидания — без изменений пакета, который держал блокировку,
+ * и этап засчитывался бы дважды. Снимок второго запроса берётся уже после получения блокировок.
+ * Поэтому {@link #upsertAll} должен выполняться в транзакции.
+ * <p>
+ * order_id в пакете должны быть уникальны (ON CONFLICT не может обновить строку дважды) —
+ * это обеспечивает {@code OrderLifecycleBatch}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderLifecycleBatchRepository {
+
+    /**
+     * Правила слияния строки с уже записанной — общие для upsert пакета и загрузки replay.
+     */
+    static final String ON_CONFLICT_MERGE = """
+            ON CONFLICT (order_id, partition_at) DO UPDATE
+            SET created_at           = GREATEST(order_lifecycle.created_at, EXCLUDED.created_at),
+                payment_started_at   = GREATEST(order_lifecycle.payment_started_at, EXCLUDED.payment_started_at),
+                payment_completed_at = GREATEST(order_lifecycle.payment_completed_at, EXCLUDED.payment_completed_at),
+                payment_status       = CASE
+                    WHEN EXCLUDED.payment_completed_at > COALESCE(order_lifecycle.payment_completed_at, '1970-01-01')
+                    THEN EXCLUDED.payment_status
+                    ELSE order_lifecycle.payment_status
+                END,
+                notification_sent_at = GREATEST(order_lifecycle.notification_sent_at, EXCLUDED.notification_sent_at)
+            """;
+
+    private static final String INCOMING_CTE = """
+            incoming AS (
+                SELECT * FROM unnest(?::bigint[], ?::timestamptz[], ?::timestamptz[],
+                                     ?::timestamptz[], ?::varchar[], ?::timestamptz[])
+                    AS t(order_id, created_at, payment_started_at,
+                         payment_completed_at, payment_status, notification_sent_at)
+            )
+            """;
+
+    // Блокировки берутся в порядке order_id — встречные пакеты не ловят взаимную блокировку
+    private static final String LOCK_KEYS_SQL = "WITH " + INCOMING_CTE + """
+            INSERT INTO order_lifecycle_key (order_id, partition_at)
+            SELECT order_id, COALESCE(LEAST(created_at, payment_started_at,
+                                            payment_completed_at, notification_sent_at), now())
+            FROM incoming
+            ORDER BY order_id
+            ON CONFLICT (order_id) DO UPDATE SET partition_at = order_lifecycle_key.partition_at
+            """;
+
+    // previous и merged видят один снимок: previous — состояние строк до INSERT этого же запроса
+    private static final String UPSERT_SQL = "WITH " + INCOMING_CTE + """
+            , keys AS (
+                SELECT k.order_id, k.partition_at
+                FROM order_lifecycle_key k
+                JOIN incoming i ON i.order_id = k.order_id
+            ),
+            previous AS (
+                SELECT l.* FROM order_lifecycle l
+                JOIN keys k ON k.order_id = l.order_id AND k.partition_at = l.partition_at
+            ),
+            merged AS (
+                INSERT INTO order_lifecycle (order_id, partition_at, created_at, payment_started_at,
+                                             payment_completed_at, payment_status, notification_sent_at)
+                SELECT i.order_id, k.partition_at, i.created_at, i.payment_started_at,
+                       i.payment_completed_at, i.payment_status, i.notification_sent_at
+                FROM incoming i
+                JOIN keys k ON k.order_id = i.order_id
+                """ + ON_CONFLICT_MERGE + """
+                RETURNING *
+            )
+            SELECT m.order_id, m.created_at, m.payment_started_at, m.payment_completed_at,
+                   m.payment_status, m.notification_sent_at,
+                   p.order_id             AS prev_order_id,
+                   p.created_at           AS prev_created_at,
+                   p.payment_started_at   AS prev_payment_started_at,
+                   p.payment_completed_at AS prev_payment_completed_at,
+                   p.payment_status       AS prev_payment_status,
+                   p.notification_sent_at AS prev_notification_sent_at
+            FROM merged m
+            LEFT JOIN previous p ON p.order_id = m.order_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Выполняется в транзакции вызывающего: блокировки ключей из первого запроса
+     * должны дожить до второго.
+     *
+     * @return каждая записанная строка до и после upsert — по ним считаются завершившиеся этапы
+     */
+    public List<LifecycleChange> upsertAll(Collection<OrderLifecycle> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<OrderLifecycle> list = List.copyOf(rows);
+
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement(LOCK_KEYS_SQL)) {
+                bindRows(connection, statement, list);
+                statement.executeUpdate();
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+                bindRows(connection, statement, list);
+
+                List<LifecycleChange> changes = new ArrayList<>(list.size());
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        OrderLifecycle previous = rs.getObject("prev_order_id") == null ? null : row(rs, "prev_");
+                        changes.add(new LifecycleChange(previous, row(rs, "")));
+                    }
+                }
+                return changes;
+            }
+        });
+    }
+
+    private static void bindRows(Connection connection, PreparedStatement statement,
+                                 List<OrderLifecycle> list) throws SQLException {
+        statement.setArray(1, connection.createArrayOf("bigint",
+                list.stream().map(OrderLifecycle::getOrderId).toArray()));
+        statement.setArray(2, timestamps(connection, list, OrderLifecycle::getCreatedAt));
+        statement.setArray(3, timestamps(connection, list, OrderLifecycle::getPaymentStartedAt));
+        statement.setArray(4, timestamps(connection, list, OrderLifecycle::getPaymentCompletedAt));
+        statement.setArray(5, connection.createArrayOf("varchar",
+                list.stream().map(OrderLifecycle::getPaymentStatus).toArray()));
+        statement.setArray(6, timestamps(connection, list, OrderLifecycle::getNotificationSentAt));
+    }
+
+    private static OrderLifecycle row(ResultSet rs, String prefix) throws SQLException {
+        return OrderLifecycle.builder()
+                .orderId(rs.getLong(prefix + "order_id"))
+                .createdAt(instant(rs, prefix + "created_at"))
+                .paymentStartedAt(instant(rs, prefix + "payment_started_at"))
+                .paymentCompletedAt(instant(rs, prefix + "payment_completed_at"))
+                .paymentStatus(rs.getString(prefix + "payment_status"))
+                .notificationSentAt(instant(rs, prefix + "notification_sent_at"))
+                .build();
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+        return value == null ? null : value.toInstant();
+    }
+
+    private static Array timestamps(Connection connection, List<OrderLifecycle> rows,
+                                    Function<OrderLifecycle, Instant> field) throws SQLException {
+        // ISO-8601 в UTC ('Z') — однозначно для timestamptz независимо от часового пояса JVM
+        String[] values = new String[rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            Instant value = field.apply(rows.get(i));
+            values[i] = value == null ? null : value.toString();
+        }
+        return connection.createArrayOf("timestamptz", values);
+    }
+}
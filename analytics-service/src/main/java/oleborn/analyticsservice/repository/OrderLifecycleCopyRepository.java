@@ -0,0 +1,123 @@
+package oleborn.analyticsservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Массовая загрузка {@code order_lifecycle} для replay: {@code COPY} во временную таблицу
+ * и одно слияние из неё по тем же правилам, что у {@link OrderLifecycleBatchRepository}.
+ * <p>
+ * COPY не строит план и не разбирает параметры на каждую строку — в разы быстрее
+ * multi-row INSERT на сотнях тысяч строк. Вызывать в транзакции: временная таблица
+ * очищается на commit ({@code ON COMMIT DELETE ROWS}) и живёт до конца соединения.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderLifecycleCopyRepository {
+
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMP TABLE IF NOT EXISTS order_lifecycle_replay
+            (
+                order_id             BIGINT,
+                created_at           TIMESTAMPTZ,
+                payment_started_at   TIMESTAMPTZ,
+                payment_completed_at TIMESTAMPTZ,
+                payment_status       VARCHAR(25),
+                notification_sent_at TIMESTAMPTZ
+            ) ON COMMIT DELETE ROWS
+            """;
+
+    private static final String COPY_SQL = """
+            COPY order_lifecycle_replay (order_id, created_at, payment_started_at,
+                                         payment_completed_at, payment_status, notification_sent_at)
+            FROM STDIN
+            """;
+
+    private static final String MERGE_SQL = """
+            WITH keys AS (
+                INSERT INTO order_lifecycle_key (order_id, partition_at)
+                SELECT order_id, COALESCE(LEAST(created_at, payment_started_at,
+                                                payment_completed_at, notification_sent_at), now())
+                FROM order_lifecycle_replay
+                ON CONFLICT (order_id) DO UPDATE SET partition_at = order_lifecycle_key.partition_at
+                RETURNING order_id, partition_at
+            )
+            INSERT INTO order_lifecycle (order_id, partition_at, created_at, payment_started_at,
+                                         payment_completed_at, payment_status, notification_sent_at)
+            SELECT r.order_id, k.partition_at, r.created_at, r.payment_started_at,
+                   r.payment_completed_at, r.payment_status, r.notification_sent_at
+            FROM order_lifecycle_replay r
+            JOIN keys k ON k.order_id = r.order_id
+            """ + OrderLifecycleBatchRepository.ON_CONFLICT_MERGE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param rows строки с уникальными order_id
+     * @return число записанных строк
+     */
+    public int load(Collection<OrderLifecycle> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.execute(CREATE_STAGING_SQL);
+
+        jdbcTemplate.execute((Connection connection) -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_SQL, new StringReader(toCopyText(rows)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return jdbcTemplate.update(MERGE_SQL);
+    }
+
+    /**
+     * Текстовый формат COPY: поля через TAB, {@code \N} — NULL, время в ISO-8601 UTC.
+     */
+    private static String toCopyText(Collection<OrderLifecycle> rows) {
+        StringBuilder text = new StringBuilder(rows.size() * 128);
+        for (OrderLifecycle row : rows) {
+            text.append(row.getOrderId()).append('\t');
+            appendInstant(text, row.getCreatedAt()).append('\t');
+            appendInstant(text, row.getPaymentStartedAt()).append('\t');
+            appendInstant(text, row.getPaymentCompletedAt()).append('\t');
+            appendText(text, row.getPaymentStatus()).append('\t');
+            appendInstant(text, row.getNotificationSentAt()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static StringBuilder appendInstant(StringBuilder text, Instant value) {
+        return value == null ? text.append("\\N") : text.append(value);
+    }
+
+    private static StringBuilder appendText(StringBuilder text, String value) {
+        if (value == null) {
+            return text.append("\\N");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> text.append("\\\\");
+                case '\t' -> text.append("\\t");
+                case '\n' -> text.append("\\n");
+                case '\r' -> text.append("\\r");
+                default -> text.append(c);
+            }
+        }
+        return text;
+    }
+}
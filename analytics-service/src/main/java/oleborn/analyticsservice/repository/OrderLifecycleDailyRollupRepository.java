@@ -0,0 +1,91 @@
+package oleborn.analyticsservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import oleborn.analyticsservice.domain.dto.DailyOrderStatsDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Дневные агрегаты заказов в {@code order_lifecycle_daily_rollup}: сколько заказов дня
+ * (UTC, по partition_at) дошло до каждой отметки, в разрезе итогового статуса оплаты.
+ * <p>
+ * Строки попадают сюда при сжатии партиции, после чего сырые данные удаляются. Чтение
+ * склеивает агрегаты сжатых дней с агрегацией ещё живых партиций — результат не зависит
+ * от того, успело ли сжатие пройти.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderLifecycleDailyRollupRepository {
+
+    // Складывает, а не заменяет: поздние строки default-партиции досжимаются в уже готовый день
+    private static final String ROLL_UP_SQL = """
+            INSERT INTO order_lifecycle_daily_rollup (day, payment_status, order_count, payment_started_count,
+                                                      payment_completed_count, notification_sent_count)
+            SELECT (partition_at AT TIME ZONE 'UTC')::date, COALESCE(payment_status, 'NONE'),
+                   COUNT(*), COUNT(payment_started_at), COUNT(payment_completed_at), COUNT(notification_sent_at)
+            FROM order_lifecycle
+            WHERE partition_at >= ? AND partition_at < ?
+            GROUP BY 1, 2
+            ON CONFLICT (day, payment_status) DO UPDATE
+            SET order_count             = order_lifecycle_daily_rollup.order_count + EXCLUDED.order_count,
+                payment_started_count   = order_lifecycle_daily_rollup.payment_started_count + EXCLUDED.payment_started_count,
+                payment_completed_count = order_lifecycle_daily_rollup.payment_completed_count + EXCLUDED.payment_completed_count,
+                notification_sent_count = order_lifecycle_daily_rollup.notification_sent_count + EXCLUDED.notification_sent_count
+            """;
+
+    // Диапазон по partition_at отсекает партиции вне [from, to) ещё при планировании
+    private static final String STATS_SQL = """
+            SELECT day, payment_status, SUM(order_count) AS order_count,
+                   SUM(payment_started_count) AS payment_started_count,
+                   SUM(payment_completed_count) AS payment_completed_count,
+                   SUM(notification_sent_count) AS notification_sent_count
+            FROM (
+                SELECT day, payment_status, order_count, payment_started_count,
+                       payment_completed_count, notification_sent_count
+                FROM order_lifecycle_daily_rollup
+                WHERE day >= ? AND day < ?
+                UNION ALL
+                SELECT (partition_at AT TIME ZONE 'UTC')::date, COALESCE(payment_status, 'NONE'),
+                       COUNT(*), COUNT(payment_started_at), COUNT(payment_completed_at), COUNT(notification_sent_at)
+                FROM order_lifecycle
+                WHERE partition_at >= ? AND partition_at < ?
+                GROUP BY 1, 2
+            ) days
+            GROUP BY day, payment_status
+            ORDER BY day, payment_status
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сжимает сырые строки дней [from, to) в дневные агрегаты.
+     */
+    public int rollUp(LocalDate from, LocalDate to) {
+        return jdbcTemplate.update(ROLL_UP_SQL, startOf(from), startOf(to));
+    }
+
+    /**
+     * @param from первый день (включительно)
+     * @param to   последний день (не включительно)
+     */
+    public List<DailyOrderStatsDto> stats(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(STATS_SQL,
+                (rs, rowNum) -> new DailyOrderStatsDto(
+                        rs.getObject("day", LocalDate.class),
+                        rs.getString("payment_status"),
+                        rs.getLong("order_count"),
+                        rs.getLong("payment_started_count"),
+                        rs.getLong("payment_completed_count"),
+                        rs.getLong("notification_sent_count")),
+                from, to, startOf(from), startOf(to));
+    }
+
+    private static Timestamp startOf(LocalDate day) {
+        return Timestamp.from(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+}
@@ -0,0 +1,76 @@
+package oleborn.analyticsservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * DDL дневных партиций {@code order_lifecycle_pYYYYMMDD} и очистка сырых строк после сжатия.
+ * <p>
+ * Имя партиции однозначно задаёт её день (UTC) — границы не разбираются из каталога.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderLifecyclePartitionRepository {
+
+    private static final String PREFIX = "order_lifecycle_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return число созданных партиций; существующие пропускаются
+     */
+    public int ensurePartitions(LocalDate from, LocalDate to) {
+        Integer created = jdbcTemplate.queryForObject(
+                "SELECT order_lifecycle_ensure_partitions(?, ?)", Integer.class, from, to);
+        return created == null ? 0 : created;
+    }
+
+    /**
+     * @return дни подключённых партиций раньше {@code before}, по возрастанию
+     */
+    public List<LocalDate> partitionsBefore(LocalDate before) {
+        return jdbcTemplate.queryForList("""
+                        SELECT c.relname FROM pg_inherits i
+                        JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'order_lifecycle'::regclass AND c.relname ~ '^order_lifecycle_p[0-9]{8}$'
+                        ORDER BY c.relname
+                        """, String.class).stream()
+                .map(name -> LocalDate.parse(name.substring(PREFIX.length()), SUFFIX))
+                .filter(day -> day.isBefore(before))
+                .toList();
+    }
+
+    /**
+     * Отключает партицию дня; при {@code drop} — удаляет её, иначе таблица остаётся
+     * отдельной (для выгрузки в архив) и из запросов к order_lifecycle пропадает.
+     */
+    public void detach(LocalDate day, boolean drop) {
+        // Та же блокировка, что у order_lifecycle_ensure_partitions
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('order_lifecycle_partitions'))");
+        String partition = PREFIX + day.format(SUFFIX);
+        jdbcTemplate.execute("ALTER TABLE order_lifecycle DETACH PARTITION " + partition);
+        if (drop) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+    }
+
+    /**
+     * Удаляет ключи маршрутизации и поздние строки default-партиции раньше {@code before}:
+     * их сырые данные уже в дневных агрегатах.
+     *
+     * @return число удалённых строк default-партиции
+     */
+    public int purgeBefore(LocalDate before) {
+        Timestamp bound = Timestamp.from(before.atStartOfDay(ZoneOffset.UTC).toInstant());
+        jdbcTemplate.update("DELETE FROM order_lifecycle_key WHERE partition_at < ?", bound);
+        return jdbcTemplate.update("DELETE FROM order_lifecycle_default WHERE partition_at < ?", bound);
+    }
+}
@@ -0,0 +1,121 @@
+package oleborn.analyticsservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import oleborn.analyticsservice.dictionary.LifecycleStage;
+import oleborn.analyticsservice.domain.model.StageLatencySample;
+import oleborn.analyticsservice.domain.model.StageLatencySummary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поминутные агрегаты латентности этапов саги в {@code stage_latency_rollup}:
+ * count, sum, min, max на (минута завершения этапа, этап).
+ * <p>
+ * Агрегаты складываются при записи событий, поэтому метрики читают не больше одной строки
+ * на минуту интервала и этап — время ответа не зависит от размера order_lifecycle.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StageLatencyRollupRepository {
+
+    private static final String ADD_SQL = """
+            INSERT INTO stage_latency_rollup (bucket_start, stage, sample_count, sum_ms, min_ms, max_ms)
+            SELECT * FROM unnest(?::timestamptz[], ?::varchar[], ?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[])
+            ON CONFLICT (bucket_start, stage) DO UPDATE
+            SET sample_count = stage_latency_rollup.sample_count + EXCLUDED.sample_count,
+                sum_ms       = stage_latency_rollup.sum_ms + EXCLUDED.sum_ms,
+                min_ms       = LEAST(stage_latency_rollup.min_ms, EXCLUDED.min_ms),
+                max_ms       = GREATEST(stage_latency_rollup.max_ms, EXCLUDED.max_ms)
+            """;
+
+    private static final String SUMMARY_SQL = """
+            SELECT COALESCE(SUM(sample_count), 0) AS sample_count,
+                   COALESCE(SUM(sum_ms), 0)       AS sum_ms,
+                   MIN(min_ms)                    AS min_ms,
+                   MAX(max_ms)                    AS max_ms
+            FROM stage_latency_rollup
+            WHERE stage = ? AND bucket_start >= ? AND bucket_start < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сворачивает выборки в поминутные агрегаты и прибавляет их к таблице одним upsert.
+     */
+    public void addAll(Collection<StageLatencySample> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+
+        Map<BucketKey, long[]> buckets = new LinkedHashMap<>();
+        for (StageLatencySample sample : samples) {
+            long latency = sample.latencyMillis();
+            buckets.merge(
+                    new BucketKey(bucketStart(sample.completedAt()), sample.stage()),
+                    new long[]{1, latency, latency, latency},
+                    (a, b) -> new long[]{a[0] + b[0], a[1] + b[1], Math.min(a[2], b[2]), Math.max(a[3], b[3])});
+        }
+
+        List<BucketKey> keys = List.copyOf(buckets.keySet());
+        int size = keys.size();
+        Object[] starts = new Object[size];
+        Object[] stages = new Object[size];
+        Object[] counts = new Object[size];
+        Object[] sums = new Object[size];
+        Object[] mins = new Object[size];
+        Object[] maxes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            long[] aggregate = buckets.get(keys.get(i));
+            starts[i] = keys.get(i).bucketStart().toString();
+            stages[i] = keys.get(i).stage().name();
+            counts[i] = aggregate[0];
+            sums[i] = aggregate[1];
+            mins[i] = aggregate[2];
+            maxes[i] = aggregate[3];
+        }
+
+        jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADD_SQL)) {
+                statement.setArray(1, connection.createArrayOf("timestamptz", starts));
+                statement.setArray(2, connection.createArrayOf("varchar", stages));
+                statement.setArray(3, connection.createArrayOf("bigint", counts));
+                statement.setArray(4, connection.createArrayOf("bigint", sums));
+                statement.setArray(5, connection.createArrayOf("bigint", mins));
+                statement.setArray(6, connection.createArrayOf("bigint", maxes));
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * @param from начало интервала (включительно, округляется вниз до минуты)
+     * @param to   конец интервала (не включительно)
+     */
+    public StageLatencySummary summary(LifecycleStage stage, Instant from, Instant to) {
+        return jdbcTemplate.queryForObject(SUMMARY_SQL,
+                (rs, rowNum) -> new StageLatencySummary(
+                        rs.getLong("sample_count"),
+                        rs.getLong("sum_ms"),
+                        rs.getObject("min_ms", Long.class),
+                        rs.getObject("max_ms", Long.class)),
+                stage.name(),
+                Timestamp.from(bucketStart(from)),
+                Timestamp.from(to));
+    }
+
+    public static Instant bucketStart(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private record BucketKey(Instant bucketStart, LifecycleStage stage) {}
+}
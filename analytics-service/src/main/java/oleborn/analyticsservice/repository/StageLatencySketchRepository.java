@@ -0,0 +1,146 @@
+package oleborn.analyticsservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import oleborn.analyticsservice.dictionary.LifecycleStage;
+import org.HdrHistogram.Histogram;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * Скетчи латентности этапов в {@code stage_latency_sketch}: один сжатый HdrHistogram
+ * на (этап, окно). Гистограммы складываются без потери точности, поэтому перцентили
+ * любого интервала считаются слиянием окон, а не пересканированием order_lifecycle.
+ * <p>
+ * Слияние в БД невозможно (это бинарный формат), поэтому запись — read-modify-write:
+ * сначала недостающие строки создаются пустыми, затем все строки пакета блокируются
+ * {@code FOR UPDATE}. Так параллельные писатели (живой consumer и replay) не теряют обновления.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StageLatencySketchRepository {
+
+    private static final String INSERT_EMPTY_SQL = """
+            INSERT INTO stage_latency_sketch (stage, window_start, histogram)
+            SELECT stage, window_start, ''::bytea
+            FROM unnest(?::varchar[], ?::timestamptz[]) AS t(stage, window_start)
+            ON CONFLICT (stage, window_start) DO NOTHING
+            """;
+
+    private static final String LOCK_SQL = """
+            SELECT s.stage, s.window_start, s.histogram
+            FROM stage_latency_sketch s
+            JOIN unnest(?::varchar[], ?::timestamptz[]) AS t(stage, window_start)
+              ON t.stage = s.stage AND t.window_start = s.window_start
+            ORDER BY s.stage, s.window_start
+            FOR UPDATE OF s
+            """;
+
+    private static final String UPDATE_SQL =
+            "UPDATE stage_latency_sketch SET histogram = ? WHERE stage = ? AND window_start = ?";
+
+    private static final String LOAD_SQL = """
+            SELECT stage, histogram FROM stage_latency_sketch
+            WHERE window_start >= ? AND window_start < ? AND length(histogram) > 0
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Прибавляет гистограммы пакета к сохранённым. Вызывать в транзакции.
+     */
+    public void mergeAll(Map<SketchKey, Histogram> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<SketchKey> keys = List.copyOf(deltas.keySet());
+        Object[] stages = keys.stream().map(key -> key.stage().name()).toArray();
+        Object[] windows = keys.stream().map(key -> key.windowStart().toString()).toArray();
+
+        Map<SketchKey, Histogram> merged = new HashMap<>(deltas);
+
+        jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_EMPTY_SQL)) {
+                insert.setArray(1, connection.createArrayOf("varchar", stages));
+                insert.setArray(2, connection.createArrayOf("timestamptz", windows));
+                insert.executeUpdate();
+            }
+            try (PreparedStatement lock = connection.prepareStatement(LOCK_SQL)) {
+                lock.setArray(1, connection.createArrayOf("varchar", stages));
+                lock.setArray(2, connection.createArrayOf("timestamptz", windows));
+                try (ResultSet rs = lock.executeQuery()) {
+                    while (rs.next()) {
+                        byte[] stored = rs.getBytes("histogram");
+                        if (stored.length == 0) {
+                            continue;
+                        }
+                        SketchKey key = new SketchKey(
+                                LifecycleStage.valueOf(rs.getString("stage")),
+                                rs.getObject("window_start", OffsetDateTime.class).toInstant());
+                        Histogram histogram = decode(stored);
+                        histogram.add(deltas.get(key));
+                        merged.put(key, histogram);
+                    }
+                }
+            }
+            return null;
+        });
+
+        List<Object[]> updates = new ArrayList<>(merged.size());
+        merged.forEach((key, histogram) -> updates.add(new Object[]{
+                encode(histogram), key.stage().name(), Timestamp.from(key.windowStart())}));
+        jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+    }
+
+    /**
+     * @return слияние всех окон, начинающихся в [from, to), по этапам; этапы без данных отсутствуют
+     */
+    public Map<LifecycleStage, Histogram> load(Instant from, Instant to) {
+        Map<LifecycleStage, Histogram> result = new EnumMap<>(LifecycleStage.class);
+        jdbcTemplate.query(LOAD_SQL, (RowCallbackHandler) rs -> {
+            Histogram histogram = decode(rs.getBytes("histogram"));
+            result.merge(LifecycleStage.valueOf(rs.getString("stage")), histogram, (a, b) -> {
+                a.add(b);
+                return a;
+            });
+        }, Timestamp.from(from), Timestamp.from(to));
+        return result;
+    }
+
+    private static byte[] encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Arrays.copyOf(buffer.array(), length);
+    }
+
+    private static Histogram decode(byte[] bytes) {
+        try {
+            Histogram histogram = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0);
+            histogram.setAutoResize(true);
+            return histogram;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted latency sketch", e);
+        }
+    }
+
+    /**
+     * @param windowStart начало окна, выровненное по {@code app.analytics.sketch.window}
+     */
+    public record SketchKey(LifecycleStage stage, Instant windowStart) {}
+}
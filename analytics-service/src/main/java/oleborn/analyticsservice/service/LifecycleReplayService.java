@@ -0,0 +1,314 @@
+package oleborn.analyticsservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.analyticsservice.domain.dto.ReplayReportDto;
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+import oleborn.analyticsservice.repository.OrderLifecycleCopyRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Перестроение order_lifecycle из Kafka за интервал времени — после изменения логики аналитики.
+ * <p>
+ * Живые consumers не затрагиваются:
+ * <ul>
+ *   <li>отдельный consumer с {@code app.analytics.replay.group-id} через {@code assign} — без
+ *       подписки, ребалансов и коммита offset, позиции группы {@code analytics-service-group} не меняются;</li>
+ *   <li>начало и конец интервала — {@code offsetsForTimes} по каждой партиции трёх топиков;</li>
+ *   <li>события сливаются в памяти по заказу ({@link OrderLifecycleBatch}) и каждые
+ *       {@code flush-rows} заказов грузятся через COPY ({@link OrderLifecycleCopyRepository}) —
+ *       транзакция загрузки короткая, блокировки ключей с живым upsert почти не пересекаются.</li>
+ * </ul>
+ * Слияние в БД — по тем же правилам GREATEST, что и живая запись, поэтому порядок replay
+ * и живых событий на результат не влияет. Поминутные агрегаты и скетчи этапов replay не трогает.
+ * <p>
+ * Ограничения:
+ * <ul>
+ *   <li>{@code from} не раньше границы хранения ({@code app.analytics.partition.retention-days}):
+ *       более ранние дни уже сжаты в order_lifecycle_daily_rollup, а их ключи удалены —
+ *       replay вернул бы строки в default-партицию, и обслуживание сжало бы их повторно.
+ *       Более ранний {@code from} поднимается до границы, а строки заказов, начавшихся
+ *       до неё (поздние события в диапазоне), не загружаются;</li>
+ *   <li>GREATEST только дополняет строку: replay заполняет пропущенные отметки и сдвигает их
+ *       вперёд, но не может вернуть более раннее значение или очистить поле. Если новая логика
+ *       даёт такие значения, строки заказов нужно удалить до запуска replay.</li>
+ * </ul>
+ * <p>
+ * Одновременно выполняется только один replay.
+ */
+@Service
+@Slf4j
+public class LifecycleReplayService {
+
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final OrderLifecycleCopyRepository copyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderTimelineCache timelineCache;
+    private final OrderLifecyclePartitionMaintenance partitionMaintenance;
+    private final List<String> topics;
+    private final String groupId;
+    private final int maxPollRecords;
+    private final int flushRows;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lifecycle-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private volatile ReplayReportDto report;
+
+    public LifecycleReplayService(
+            ConsumerFactory<String, Object> consumerFactory,
+            OrderLifecycleCopyRepository copyRepository,
+            TransactionTemplate transactionTemplate,
+            OrderTimelineCache timelineCache,
+            OrderLifecyclePartitionMaintenance partitionMaintenance,
+            @Value("${app.topic.order-create-topic}") String orderTopic,
+            @Value("${app.topic.payment-events}") String paymentTopic,
+            @Value("${app.topic.notification-events}") String notificationTopic,
+            @Value("${app.analytics.replay.group-id:analytics-service-replay}") String groupId,
+            @Value("${app.analytics.replay.max-poll-records:5000}") int maxPollRecords,
+            @Value("${app.analytics.replay.flush-rows:50000}") int flushRows
+    ) {
+        this.consumerFactory = consumerFactory;
+        this.copyRepository = copyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.timelineCache = timelineCache;
+        this.partitionMaintenance = partitionMaintenance;
+        this.topics = List.of(orderTopic, paymentTopic, notificationTopic);
+        this.groupId = groupId;
+        this.maxPollRecords = maxPollRecords;
+        this.flushRows = flushRows;
+    }
+
+    /**
+     * Запускает replay в фоне.
+     *
+     * @param from начало интервала по времени записи Kafka; раньше границы хранения —
+     *             поднимается до неё (фактическое начало — в {@link ReplayReportDto#from()})
+     * @param to   конец интервала (не включительно); null — до текущего конца топиков
+     * @return false — replay уже выполняется
+     */
+    public boolean start(Instant from, Instant to) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Instant cutoff = partitionMaintenance.retentionCutoff();
+        Instant replayFrom = from.isBefore(cutoff) ? cutoff : from;
+        if (from.isBefore(cutoff)) {
+            log.warn("Lifecycle replay from {} is before retention cutoff, starting from {}", from, cutoff);
+        }
+
+        cancelled = false;
+        report = progress("RUNNING", replayFrom, to, new Counters(), null);
+        executor.execute(() -> {
+            try {
+                replay(replayFrom, to, cutoff);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Optional<ReplayReportDto> report() {
+        return Optional.ofNullable(report);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancelled = true;
+        executor.shutdown();
+    }
+
+    private void replay(Instant from, Instant to, Instant cutoff) {
+        Counters counters = new Counters();
+        log.info("Lifecycle replay started: {} – {}", from, to == null ? "end of topics" : to);
+
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer(
+                groupId, "analytics-replay", null, replayProperties())) {
+
+            Map<TopicPartition, Long> endOffsets = assignRange(consumer, from, to);
+            OrderLifecycleBatch batch = new OrderLifecycleBatch();
+
+            while (!endOffsets.isEmpty() && !cancelled) {
+                long pollStart = System.nanoTime();
+                ConsumerRecords<String, Object> records = consumer.poll(Duration.ofSeconds(1));
+                for (ConsumerRecord<String, Object> record : records) {
+                    Long end = endOffsets.get(new TopicPartition(record.topic(), record.partition()));
+                    if (end == null || record.offset() >= end) {
+                        continue;
+                    }
+                    counters.records++;
+                    if (record.value() != null && batch.add(record.value())) {
+                        counters.events++;
+                    }
+                }
+                finishedPartitions(consumer, endOffsets);
+                counters.consumeNanos += System.nanoTime() - pollStart;
+
+                if (batch.size() >= flushRows) {
+                    flush(batch, cutoff, counters);
+                    batch = new OrderLifecycleBatch();
+                    report = progress("RUNNING", from, to, counters, null);
+                }
+            }
+            flush(batch, cutoff, counters);
+
+            report = progress(cancelled ? "CANCELLED" : "COMPLETED", from, to, counters, null);
+            log.info("Lifecycle replay finished: {}", report);
+
+        } catch (Exception e) {
+            report = progress("FAILED", from, to, counters, e.getMessage());
+            log.error("Lifecycle replay failed: {}", report, e);
+        }
+    }
+
+    /**
+     * Назначает партиции трёх топиков и ставит позицию на первый offset не раньше {@code from}.
+     *
+     * @return конечный offset (не включительно) каждой партиции, где есть что читать
+     */
+    private Map<TopicPartition, Long> assignRange(Consumer<String, Object> consumer, Instant from, Instant to) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (String topic : topics) {
+            consumer.partitionsFor(topic).forEach(info -> partitions.add(new TopicPartition(topic, info.partition())));
+        }
+
+        Map<TopicPartition, Long> latest = consumer.endOffsets(partitions);
+        Map<TopicPartition, OffsetAndTimestamp> starts = consumer.offsetsForTimes(timestamps(partitions, from));
+        Map<TopicPartition, OffsetAndTimestamp> ends = to == null ? Map.of() : consumer.offsetsForTimes(timestamps(partitions, to));
+
+        Map<TopicPartition, Long> startOffsets = new HashMap<>();
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            // null от offsetsForTimes — в партиции нет записей не раньше этого момента
+            long start = offsetOrLatest(starts.get(partition), latest.get(partition));
+            long end = offsetOrLatest(ends.get(partition), latest.get(partition));
+            if (start < end) {
+                startOffsets.put(partition, start);
+                endOffsets.put(partition, end);
+            }
+        }
+
+        consumer.assign(startOffsets.keySet());
+        startOffsets.forEach(consumer::seek);
+        log.info("Lifecycle replay assigned {} partitions, {} records in range",
+                endOffsets.size(), endOffsets.entrySet().stream()
+                        .mapToLong(entry -> entry.getValue() - startOffsets.get(entry.getKey())).sum());
+        return endOffsets;
+    }
+
+    /**
+     * Дочитанные партиции ставятся на паузу и убираются из диапазона. Позиция, а не offset
+     * последней записи: маркеры транзакций занимают offset, но записью не приходят.
+     */
+    private static void finishedPartitions(Consumer<String, Object> consumer, Map<TopicPartition, Long> endOffsets) {
+        Set<TopicPartition> finished = new HashSet<>();
+        endOffsets.forEach((partition, end) -> {
+            if (consumer.position(partition) >= end) {
+                finished.add(partition);
+            }
+        });
+        if (!finished.isEmpty()) {
+            consumer.pause(finished);
+            finished.forEach(endOffsets::remove);
+        }
+    }
+
+    private void flush(OrderLifecycleBatch batch, Instant cutoff, Counters counters) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Заказы, начавшиеся до границы хранения, уже сжаты — их строки не возвращаем
+        List<OrderLifecycle> rows = batch.rows().stream()
+                .filter(row -> !OrderLifecyclePartitionMaintenance.startedBefore(row, cutoff))
+                .toList();
+        if (rows.size() < batch.size()) {
+            log.info("Lifecycle replay skipped {} rows of orders started before retention cutoff {}",
+                    batch.size() - rows.size(), cutoff);
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        long loadStart = System.nanoTime();
+        Integer loaded = transactionTemplate.execute(status -> {
+            int loadedRows = copyRepository.load(rows);
+            timelineCache.invalidateAllAfterCommit(rows.stream().map(OrderLifecycle::getOrderId).toList());
+            return loadedRows;
+        });
+        counters.loadNanos += System.nanoTime() - loadStart;
+        counters.rows += loaded == null ? 0 : loaded;
+        counters.flushes++;
+        log.info("Lifecycle replay flushed {} rows: {} records read, {} rows loaded so far",
+                batch.size(), counters.records, counters.rows);
+    }
+
+    private Properties replayProperties() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return properties;
+    }
+
+    private static Map<TopicPartition, Long> timestamps(List<TopicPartition> partitions, Instant at) {
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        partitions.forEach(partition -> timestamps.put(partition, at.toEpochMilli()));
+        return timestamps;
+    }
+
+    private static long offsetOrLatest(OffsetAndTimestamp offset, Long latest) {
+        return offset == null ? latest : offset.offset();
+    }
+
+    private static ReplayReportDto progress(String state, Instant from, Instant to, Counters counters, String error) {
+        long elapsedNanos = counters.consumeNanos + counters.loadNanos;
+        double elapsedSeconds = elapsedNanos / 1e9;
+        return new ReplayReportDto(state, from, to,
+                counters.records, counters.events, counters.rows, counters.flushes,
+                counters.consumeNanos / 1_000_000, counters.loadNanos / 1_000_000,
+                elapsedNanos == 0 ? 0 : counters.records / elapsedSeconds,
+                elapsedNanos == 0 ? 0 : counters.rows / elapsedSeconds,
+                error);
+    }
+
+    // Пишет только поток replay; наружу уходят снимки ReplayReportDto
+    private static final class Counters {
+        long records;
+        long events;
+        long rows;
+        int flushes;
+        long consumeNanos;
+        long loadNanos;
+    }
+}
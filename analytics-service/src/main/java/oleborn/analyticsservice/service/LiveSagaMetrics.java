@@ -0,0 +1,222 @@
+package oleborn.analyticsservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.analyticsservice.dictionary.LifecycleStage;
+import oleborn.analyticsservice.domain.dto.LiveSagaSnapshotDto;
+import oleborn.analyticsservice.domain.dto.StagePercentilesDto;
+import oleborn.analyticsservice.domain.model.StageLatencySample;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Живые метрики саги в памяти — источник SSE-потока для дашбордов.
+ * <p>
+ * Consumers только пишут: счётчик событий ({@link LongAdder}) и латентности этапов
+ * в HdrHistogram {@link Recorder} — без блокировок на пути записи. Раз в секунду единственный
+ * производитель ({@link #tick}) забирает интервальные гистограммы, кладёт их в кольцевой буфер
+ * последних {@code window-seconds} секунд, считает по нему перцентили скользящего окна,
+ * один раз сериализует снимок в JSON и рассылает его всем подписчикам.
+ * <p>
+ * Подписчик не добавляет ни запросов в БД, ни вычислений — только запись готовой строки
+ * в свой сокет. Новый подписчик сразу получает историю снимков из того же буфера.
+ * <p>
+ * Рассылка идёт на отдельном потоке {@code live-saga-metrics-sse}: {@code SseEmitter.send}
+ * блокируется на медленном клиенте, и на общем потоке планировщика он задерживал бы и
+ * следующий tick, и остальные {@code @Scheduled}-задачи сервиса. Если рассылка отстала,
+ * в очереди остаются только последние {@value #PENDING_BROADCASTS} снимка.
+ */
+@Component
+@Slf4j
+public class LiveSagaMetrics {
+
+    private static final String EVENT_NAME = "saga-metrics";
+    private static final int PENDING_BROADCASTS = 3;
+
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeoutMillis;
+    private final int maxSubscribers;
+
+    private final LongAdder events = new LongAdder();
+    private final Map<LifecycleStage, Recorder> recorders = new EnumMap<>(LifecycleStage.class);
+
+    // Кольцевой буфер: секундные гистограммы этапов и готовые JSON-снимки; пишет только tick()
+    private final Histogram[][] secondHistograms;
+    private final String[] snapshots;
+    private int head;
+    private long ticks;
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService broadcaster = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(PENDING_BROADCASTS),
+            runnable -> {
+                Thread thread = new Thread(runnable, "live-saga-metrics-sse");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    public LiveSagaMetrics(
+            ObjectMapper objectMapper,
+            @Value("${app.analytics.live.window-seconds:60}") int windowSeconds,
+            @Value("${app.analytics.live.emitter-timeout:30m}") Duration emitterTimeout,
+            @Value("${app.analytics.live.max-subscribers:200}") int maxSubscribers
+    ) {
+        this.objectMapper = objectMapper;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        this.secondHistograms = new Histogram[windowSeconds][LifecycleStage.values().length];
+        this.snapshots = new String[windowSeconds];
+        for (LifecycleStage stage : LifecycleStage.values()) {
+            recorders.put(stage, new Recorder(2));
+        }
+    }
+
+    public void recordEvents(int count) {
+        events.add(count);
+    }
+
+    /**
+     * Учитывает завершившиеся этапы после коммита текущей транзакции (или сразу, если её нет):
+     * откатившийся и повторённый пакет не должен попасть в поток дважды.
+     */
+    public void recordStagesAfterCommit(Collection<StageLatencySample> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        List<StageLatencySample> committed = List.copyOf(samples);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordStages(committed);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordStages(committed);
+            }
+        });
+    }
+
+    private void recordStages(Collection<StageLatencySample> samples) {
+        for (StageLatencySample sample : samples) {
+            recorders.get(sample.stage()).recordValue(sample.latencyMillis());
+        }
+    }
+
+    /**
+     * Подписка на поток: сначала история из буфера, затем по снимку в секунду.
+     *
+     * @return пусто, если достигнут лимит {@code max-subscribers}
+     */
+    public Optional<SseEmitter> subscribe() throws IOException {
+        if (subscribers.size() >= maxSubscribers) {
+            log.warn("Live metrics subscribers limit reached: {}", subscribers.size());
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(ex -> subscribers.remove(emitter));
+
+        for (String snapshot : history()) {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(snapshot, MediaType.APPLICATION_JSON));
+        }
+        subscribers.add(emitter);
+        return Optional.of(emitter);
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public synchronized void tick() {
+        Instant second = Instant.now().truncatedTo(ChronoUnit.SECONDS).minusSeconds(1);
+        LifecycleStage[] stages = LifecycleStage.values();
+
+        int slot = head;
+        Map<LifecycleStage, Long> completions = new EnumMap<>(LifecycleStage.class);
+        for (LifecycleStage stage : stages) {
+            // Гистограмма, вытесняемая из буфера, переиспользуется как приёмник нового интервала
+            Histogram interval = recorders.get(stage).getIntervalHistogram(secondHistograms[slot][stage.ordinal()]);
+            secondHistograms[slot][stage.ordinal()] = interval;
+            completions.put(stage, interval.getTotalCount());
+        }
+
+        List<StagePercentilesDto> window = new ArrayList<>(stages.length);
+        for (LifecycleStage stage : stages) {
+            Histogram merged = LatencySketchService.newHistogram();
+            for (Histogram[] secondSlot : secondHistograms) {
+                if (secondSlot[stage.ordinal()] != null) {
+                    merged.add(secondSlot[stage.ordinal()]);
+                }
+            }
+            window.add(StagePercentilesDto.from(stage, merged));
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(
+                    new LiveSagaSnapshotDto(second, events.sumThenReset(), completions, window));
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize live saga snapshot", e);
+            return;
+        }
+
+        snapshots[slot] = json;
+        head = (slot + 1) % snapshots.length;
+        ticks++;
+
+        broadcaster.execute(() -> broadcast(json));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        broadcaster.shutdownNow();
+        subscribers.forEach(SseEmitter::complete);
+    }
+
+    private synchronized List<String> history() {
+        List<String> history = new ArrayList<>(snapshots.length);
+        int size = (int) Math.min(ticks, snapshots.length);
+        for (int i = size; i > 0; i--) {
+            history.add(snapshots[Math.floorMod(head - i, snapshots.length)]);
+        }
+        return history;
+    }
+
+    private void broadcast(String json) {
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(json, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                // Клиент ушёл — SseEmitter сам вызовет onError/onCompletion, здесь только отписываем
+                subscribers.remove(emitter);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package oleborn.analyticsservice.service;
+
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+import oleborn.analyticsservice.domain.event.NotificationSentEvent;
+import oleborn.analyticsservice.domain.event.OrderCreatedEvent;
+import oleborn.analyticsservice.domain.event.PaymentCompletedEvent;
+import oleborn.analyticsservice.domain.event.PaymentStartedEvent;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Слияние событий одного poll в одну строку на заказ — по тем же правилам, что и upsert в БД:
+ * каждое время берётся максимальным, а статус платежа — от самого позднего завершения.
+ * <p>
+ * Строки содержат только то, что пришло в пакете; поля, которых в пакете не было, остаются null
+ * и при записи не затирают значения в {@code order_lifecycle}.
+ */
+public class OrderLifecycleBatch {
+
+    private final Map<Long, OrderLifecycle> rows = new LinkedHashMap<>();
+    private int events;
+
+    /**
+     * Сливает событие жизненного цикла любого из трёх топиков.
+     *
+     * @return false — событие не относится к order_lifecycle или без orderId
+     */
+    public boolean add(Object event) {
+        switch (event) {
+            case OrderCreatedEvent created when created.orderId() != null && created.timestamp() != null ->
+                    // Конвертируем LocalDateTime → Instant (UTC)
+                    createdAt(created.orderId(), created.timestamp().toInstant(ZoneOffset.UTC));
+            case PaymentStartedEvent started when started.orderId() != null ->
+                    paymentStartedAt(started.orderId(), started.timestamp());
+            case PaymentCompletedEvent completed when completed.orderId() != null ->
+                    paymentCompletedAt(completed.orderId(), completed.timestamp(), completed.status());
+            case NotificationSentEvent sent when sent.orderId() != null ->
+                    notificationSentAt(sent.orderId(), sent.timestamp());
+            case null, default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void createdAt(Long orderId, Instant createdAt) {
+        OrderLifecycle row = row(orderId);
+        row.setCreatedAt(later(row.getCreatedAt(), createdAt));
+    }
+
+    public void paymentStartedAt(Long orderId, Instant startedAt) {
+        OrderLifecycle row = row(orderId);
+        row.setPaymentStartedAt(later(row.getPaymentStartedAt(), startedAt));
+    }
+
+    public void paymentCompletedAt(Long orderId, Instant completedAt, String status) {
+        OrderLifecycle row = row(orderId);
+        if (completedAt != null
+                && (row.getPaymentCompletedAt() == null || completedAt.isAfter(row.getPaymentCompletedAt()))) {
+            row.setPaymentCompletedAt(completedAt);
+            row.setPaymentStatus(status);
+        }
+    }
+
+    public void notificationSentAt(Long orderId, Instant sentAt) {
+        OrderLifecycle row = row(orderId);
+        row.setNotificationSentAt(later(row.getNotificationSentAt(), sentAt));
+    }
+
+    public Collection<OrderLifecycle> rows() {
+        return rows.values();
+    }
+
+    public Set<Long> orderIds() {
+        return rows.keySet();
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return сколько событий слито в {@link #rows()}
+     */
+    public int events() {
+        return events;
+    }
+
+    private OrderLifecycle row(Long orderId) {
+        events++;
+        return rows.computeIfAbsent(orderId, id -> OrderLifecycle.builder().orderId(id).build());
+    }
+
+    private static Instant later(Instant current, Instant candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.isAfter(current) ? candidate : current;
+    }
+}
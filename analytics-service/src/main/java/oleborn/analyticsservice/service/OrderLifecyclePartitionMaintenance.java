@@ -0,0 +1,120 @@
+package oleborn.analyticsservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+import oleborn.analyticsservice.repository.OrderLifecycleDailyRollupRepository;
+import oleborn.analyticsservice.repository.OrderLifecyclePartitionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+/**
+ * Обслуживание дневных партиций order_lifecycle: раз в сутки и при старте.
+ * <ul>
+ *   <li>создаёт партиции на {@code premake-days} вперёд — запись никогда не уходит в default;</li>
+ *   <li>партиции старше {@code retention-days} сжимает в order_lifecycle_daily_rollup и отключает
+ *       (DETACH + DROP или только DETACH) — по одной за транзакцию, без долгих блокировок;</li>
+ *   <li>досжимает поздние строки default-партиции и ключи маршрутизации тех же дней.</li>
+ * </ul>
+ * Сжатый день закрыт: его ключи удалены, и поздняя запись заказа этого дня создала бы новую
+ * строку, которую следующее обслуживание сложило бы в агрегат второй раз. Поэтому живая запись
+ * и replay отбрасывают строки заказов, начавшихся до {@link #retentionCutoff()} ({@link #startedBefore}).
+ * Латентности этапов к этому моменту уже лежат в поминутных агрегатах и скетчах — сырые
+ * строки для метрик не нужны.
+ */
+@Component
+@Slf4j
+public class OrderLifecyclePartitionMaintenance {
+
+    private final OrderLifecyclePartitionRepository partitionRepository;
+    private final OrderLifecycleDailyRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int premakeDays;
+    private final int retentionDays;
+    private final boolean dropExpired;
+
+    public OrderLifecyclePartitionMaintenance(
+            OrderLifecyclePartitionRepository partitionRepository,
+            OrderLifecycleDailyRollupRepository rollupRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.analytics.partition.premake-days:7}") int premakeDays,
+            @Value("${app.analytics.partition.retention-days:30}") int retentionDays,
+            @Value("${app.analytics.partition.drop-expired:true}") boolean dropExpired
+    ) {
+        this.partitionRepository = partitionRepository;
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.premakeDays = premakeDays;
+        this.retentionDays = retentionDays;
+        this.dropExpired = dropExpired;
+    }
+
+    /**
+     * Граница хранения сырых строк: всё раньше неё уже сжато в order_lifecycle_daily_rollup.
+     */
+    public Instant retentionCutoff() {
+        return cutoffDay(LocalDate.now(ZoneOffset.UTC)).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /**
+     * Заказ начался до границы: партиция строки — самая ранняя из отметок, и любая отметка
+     * раньше границы значит, что день заказа уже сжат (или будет сжат ближайшим обслуживанием).
+     */
+    public static boolean startedBefore(OrderLifecycle row, Instant cutoff) {
+        return Stream.of(row.getCreatedAt(), row.getPaymentStartedAt(),
+                        row.getPaymentCompletedAt(), row.getNotificationSentAt())
+                .anyMatch(at -> at != null && at.isBefore(cutoff));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.analytics.partition.maintenance-cron:0 15 0 * * *}", zone = "UTC")
+    public void maintain() {
+        try {
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+            int created = transactionTemplate.execute(status ->
+                    partitionRepository.ensurePartitions(today, today.plusDays(premakeDays)));
+            if (created > 0) {
+                log.info("Created {} order_lifecycle partitions up to {}", created, today.plusDays(premakeDays));
+            }
+
+            LocalDate cutoff = cutoffDay(today);
+            for (LocalDate day : partitionRepository.partitionsBefore(cutoff)) {
+                int groups = transactionTemplate.execute(status -> {
+                    int rolledUp = rollupRepository.rollUp(day, day.plusDays(1));
+                    partitionRepository.detach(day, dropExpired);
+                    return rolledUp;
+                });
+                log.info("Compacted order_lifecycle partition {} into {} daily rollup rows ({})",
+                        day, groups, dropExpired ? "dropped" : "detached");
+            }
+
+            int late = transactionTemplate.execute(status -> {
+                rollupRepository.rollUp(LocalDate.EPOCH, cutoff);
+                return partitionRepository.purgeBefore(cutoff);
+            });
+            if (late > 0) {
+                log.info("Compacted {} late order_lifecycle rows before {}", late, cutoff);
+            }
+
+        } catch (Exception e) {
+            log.error("order_lifecycle partition maintenance failed", e);
+        }
+    }
+
+    private LocalDate cutoffDay(LocalDate today) {
+        return today.minusDays(retentionDays);
+    }
+}
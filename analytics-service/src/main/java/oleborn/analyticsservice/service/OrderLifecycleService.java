@@ -1,6 +1,9 @@
 package oleborn.analyticsservice.service;
 
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+
 import java.time.Instant;
+import java.util.Collection;
 
 /**
  * Сервис для обновления read‑модели {@code order_lifecycle} на основе событий из Kafka.
@@ -70,4 +73,15 @@ public interface OrderLifecycleService {
      * @param sentAt   время отправки уведомления
      */
     void upsertNotificationSentAt(Long orderId, Instant sentAt);
-}
\ No newline at end of file
+
+    /**
+     * Записывает пакет строк, уже слитых по заказу ({@link OrderLifecycleBatch}), одним upsert.
+     * <p>
+     * Правила те же, что у поштучных методов: каждое время обновляется, только если новое
+     * значение позже, статус следует за самым поздним завершением платежа. Null-поля строки
+     * значения в БД не затирают.
+     *
+     * @param rows строки с уникальными order_id
+     */
+    void upsertAll(Collection<OrderLifecycle> rows);
+}
@@ -0,0 +1,135 @@
+package oleborn.analyticsservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import oleborn.analyticsservice.config.CaffeineConfig;
+import oleborn.analyticsservice.domain.dto.OrderTimelineDto;
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+import oleborn.analyticsservice.repository.OrderLifecycleRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Write-through кэш таймлайнов заказов для {@code GET /orders/{orderId}/timeline}.
+ * <p>
+ * Ingest кладёт сюда каждую записанную строку (состояние после upsert) после коммита —
+ * заказ в работе читается без обращения к Postgres. Промах идёт в БД, результат
+ * кэшируется: найденный — как таймлайн, отсутствующий — в негативный кэш с коротким TTL.
+ * <p>
+ * Запись из ingest и чтение из БД могут завершиться в любом порядке, поэтому значения
+ * сливаются по тем же правилам, что и upsert (время — максимум, статус — от самого позднего
+ * завершения оплаты): более старый снимок не перетирает новый. Положительный кэш
+ * проверяется первым — появившийся заказ виден сразу, даже если промах ещё в негативном кэше.
+ * <p>
+ * Метрики: {@code cache.analytics.timeline.*} и {@code cache.analytics.timeline.missing.*}.
+ *
+ * @see CaffeineConfig – размеры и TTL кэшей
+ */
+@Component
+public class OrderTimelineCache {
+
+    private final Cache<Long, OrderTimelineDto> cache;
+    private final Cache<Long, Boolean> missing;
+    private final OrderLifecycleRepository repository;
+
+    public OrderTimelineCache(
+            Cache<Long, OrderTimelineDto> timelineCache,
+            Cache<Long, Boolean> missingTimelineCache,
+            OrderLifecycleRepository repository,
+            MeterRegistry meterRegistry
+    ) {
+        this.cache = timelineCache;
+        this.missing = missingTimelineCache;
+        this.repository = repository;
+
+        CaffeineCacheMetrics.monitor(meterRegistry, timelineCache, "analytics.timeline", "cache_type", "caffeine");
+        CaffeineCacheMetrics.monitor(meterRegistry, missingTimelineCache, "analytics.timeline.missing", "cache_type", "caffeine");
+    }
+
+    public Optional<OrderTimelineDto> find(Long orderId) {
+        OrderTimelineDto cached = cache.getIfPresent(orderId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (missing.getIfPresent(orderId) != null) {
+            return Optional.empty();
+        }
+
+        Optional<OrderTimelineDto> loaded = repository.findTimeline(orderId).map(OrderTimelineDto::from);
+        loaded.ifPresentOrElse(this::put, () -> missing.put(orderId, Boolean.TRUE));
+        return loaded.map(timeline -> cache.asMap().getOrDefault(orderId, timeline));
+    }
+
+    /**
+     * Кладёт строки после коммита текущей транзакции (или сразу, если транзакции нет):
+     * откатившаяся запись не должна стать видимой через кэш.
+     *
+     * @param rows полные строки order_lifecycle после upsert
+     */
+    public void putAllAfterCommit(Collection<OrderLifecycle> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<OrderTimelineDto> timelines = rows.stream().map(OrderTimelineDto::from).toList();
+        afterCommit(() -> timelines.forEach(this::put));
+    }
+
+    /**
+     * Сбрасывает заказы, записанные в обход ingest (replay через COPY).
+     */
+    public void invalidateAllAfterCommit(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(orderIds);
+        afterCommit(() -> {
+            cache.invalidateAll(ids);
+            missing.invalidateAll(ids);
+        });
+    }
+
+    private void put(OrderTimelineDto timeline) {
+        cache.asMap().merge(timeline.orderId(), timeline, OrderTimelineCache::latest);
+        missing.invalidate(timeline.orderId());
+    }
+
+    private static OrderTimelineDto latest(OrderTimelineDto a, OrderTimelineDto b) {
+        boolean bCompletedLater = b.paymentCompletedAt() != null
+                && (a.paymentCompletedAt() == null || b.paymentCompletedAt().isAfter(a.paymentCompletedAt()));
+        return new OrderTimelineDto(
+                a.orderId(),
+                later(a.createdAt(), b.createdAt()),
+                later(a.paymentStartedAt(), b.paymentStartedAt()),
+                later(a.paymentCompletedAt(), b.paymentCompletedAt()),
+                bCompletedLater ? b.paymentStatus() : a.paymentStatus(),
+                later(a.notificationSentAt(), b.notificationSentAt())
+        );
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || !b.isAfter(a) ? a : b;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,38 +1,127 @@
 package oleborn.analyticsservice.service.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import oleborn.analyticsservice.repository.OrderLifecycleRepository;
+import oleborn.analyticsservice.dictionary.LifecycleStage;
+import oleborn.analyticsservice.domain.entity.OrderLifecycle;
+import oleborn.analyticsservice.domain.model.LifecycleChange;
+import oleborn.analyticsservice.domain.model.StageLatencySample;
+import oleborn.analyticsservice.repository.OrderLifecycleBatchRepository;
+import oleborn.analyticsservice.repository.StageLatencyRollupRepository;
+import oleborn.analyticsservice.service.LatencySketchService;
+import oleborn.analyticsservice.service.LiveSagaMetrics;
+import oleborn.analyticsservice.service.OrderLifecyclePartitionMaintenance;
 import oleborn.analyticsservice.service.OrderLifecycleService;
+import oleborn.analyticsservice.service.OrderTimelineCache;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
+/**
+ * Все записи идут через один пакетный upsert ({@link OrderLifecycleBatchRepository}) —
+ * поштучное событие это пакет из одной строки. Так в обоих режимах при записи известно,
+ * какие этапы саги завершились, и поминутные агрегаты ({@link StageLatencyRollupRepository})
+ * вместе со скетчами перцентилей ({@link LatencySketchService}) обновляются в той же транзакции,
+ * а после коммита записанные строки попадают в кэш таймлайнов ({@link OrderTimelineCache})
+ * и завершившиеся этапы — в живые метрики ({@link LiveSagaMetrics}).
+ * <p>
+ * Поздние события заказов, чей день уже сжат ({@link OrderLifecyclePartitionMaintenance#retentionCutoff()}),
+ * отбрасываются до записи и считаются в {@code analytics.lifecycle.late.dropped}: заказ уже учтён
+ * в дневном агрегате, а новая строка попала бы в него повторно.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OrderLifecycleServiceImpl implements OrderLifecycleService {
 
-    private final OrderLifecycleRepository repository;
+    private final OrderLifecycleBatchRepository batchRepository;
+    private final StageLatencyRollupRepository rollupRepository;
+    private final LatencySketchService latencySketchService;
+    private final LiveSagaMetrics liveSagaMetrics;
+    private final OrderTimelineCache timelineCache;
+    private final OrderLifecyclePartitionMaintenance partitionMaintenance;
+    private final MeterRegistry meterRegistry;
 
+    @Transactional
     public void upsertCreatedAt(Long orderId, Instant createdAt) {
-        repository.upsertCreatedAt(orderId, createdAt);
+        upsertAll(List.of(OrderLifecycle.builder().orderId(orderId).createdAt(createdAt).build()));
         log.debug("Upserted created_at for order {}", orderId);
     }
 
+    @Transactional
     public void upsertPaymentStartedAt(Long orderId, Instant startedAt) {
-        repository.upsertPaymentStartedAt(orderId, startedAt);
+        upsertAll(List.of(OrderLifecycle.builder().orderId(orderId).paymentStartedAt(startedAt).build()));
         log.debug("Upserted payment_started_at for order {}", orderId);
     }
 
+    @Transactional
     public void upsertPaymentCompletedAt(Long orderId, Instant completedAt, String status) {
-        repository.upsertPaymentCompletedAt(orderId, completedAt, status);
+        upsertAll(List.of(OrderLifecycle.builder()
+                .orderId(orderId)
+                .paymentCompletedAt(completedAt)
+                .paymentStatus(status)
+                .build()));
         log.debug("Upserted payment_completed_at for order {}", orderId);
     }
 
+    @Transactional
     public void upsertNotificationSentAt(Long orderId, Instant sentAt) {
-        repository.upsertNotificationSentAt(orderId, sentAt);
+        upsertAll(List.of(OrderLifecycle.builder().orderId(orderId).notificationSentAt(sentAt).build()));
         log.debug("Upserted notification_sent_at for order {}", orderId);
     }
 
+    @Transactional
+    public void upsertAll(Collection<OrderLifecycle> rows) {
+        rows = withinRetention(rows);
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<LifecycleChange> changes = batchRepository.upsertAll(rows);
+
+        List<StageLatencySample> samples = completedStages(changes);
+        rollupRepository.addAll(samples);
+        latencySketchService.record(samples);
+        liveSagaMetrics.recordStagesAfterCommit(samples);
+        timelineCache.putAllAfterCommit(changes.stream().map(LifecycleChange::merged).toList());
+
+        log.debug("Upserted {} lifecycle rows in one statement, {} stages completed", rows.size(), samples.size());
+    }
+
+    private Collection<OrderLifecycle> withinRetention(Collection<OrderLifecycle> rows) {
+        Instant cutoff = partitionMaintenance.retentionCutoff();
+        List<OrderLifecycle> kept = rows.stream()
+                .filter(row -> !OrderLifecyclePartitionMaintenance.startedBefore(row, cutoff))
+                .toList();
+        int late = rows.size() - kept.size();
+        if (late > 0) {
+            meterRegistry.counter("analytics.lifecycle.late.dropped").increment(late);
+            log.warn("Dropped {} lifecycle rows of orders started before retention cutoff {}", late, cutoff);
+        }
+        return late == 0 ? rows : kept;
+    }
+
+    /**
+     * Этап учитывается один раз — когда у строки впервые появились обе его отметки.
+     * Более поздний дубль уже заполненной отметки агрегаты не меняет.
+     */
+    private static List<StageLatencySample> completedStages(List<LifecycleChange> changes) {
+        List<StageLatencySample> samples = new ArrayList<>();
+        for (LifecycleChange change : changes) {
+            for (LifecycleStage stage : LifecycleStage.values()) {
+                if (stage.isComplete(change.merged()) && !stage.isComplete(change.previous())) {
+                    samples.add(new StageLatencySample(
+                            stage,
+                            stage.endOf(change.merged()),
+                            // Рассинхрон часов между сервисами может дать отрицательную длительность
+                            Math.max(0, stage.latencyMillis(change.merged()))));
+                }
+            }
+        }
+        return samples;
+    }
 }
@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS stage_latency_sketch
+(
+    stage        VARCHAR(32) NOT NULL,
+    window_start TIMESTAMPTZ NOT NULL,
+    histogram    BYTEA       NOT NULL, -- сжатый HdrHistogram латентностей этапа в миллисекундах
+    PRIMARY KEY (stage, window_start)
+);
@@ -0,0 +1,36 @@
+-- Создаёт дневные партиции order_lifecycle на [from_day, to_day] (UTC), если их ещё нет.
+-- Вызывается миграцией V5 и ежедневно OrderLifecyclePartitionMaintenance.
+-- Строки, успевшие попасть в default-партицию, переносятся в новую — иначе ATTACH не пройдёт проверку.
+CREATE OR REPLACE FUNCTION order_lifecycle_ensure_partitions(from_day DATE, to_day DATE) RETURNS INTEGER
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    d       DATE := from_day;
+    part    TEXT;
+    lo      TIMESTAMPTZ;
+    hi      TIMESTAMPTZ;
+    created INTEGER := 0;
+BEGIN
+    -- Несколько экземпляров сервиса не создают одну партицию одновременно
+    PERFORM pg_advisory_xact_lock(hashtext('order_lifecycle_partitions'));
+
+    WHILE d <= to_day LOOP
+        part := 'order_lifecycle_p' || to_char(d, 'YYYYMMDD');
+        IF to_regclass(part) IS NULL THEN
+            lo := d::timestamp AT TIME ZONE 'UTC';
+            hi := (d + 1)::timestamp AT TIME ZONE 'UTC';
+
+            EXECUTE format('CREATE TABLE %I (LIKE order_lifecycle INCLUDING DEFAULTS)', part);
+            EXECUTE format('WITH moved AS (DELETE FROM order_lifecycle_default'
+                               || ' WHERE partition_at >= %L AND partition_at < %L RETURNING *)'
+                               || ' INSERT INTO %I SELECT * FROM moved', lo, hi, part);
+            EXECUTE format('ALTER TABLE order_lifecycle ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           part, lo, hi);
+            created := created + 1;
+        END IF;
+        d := d + 1;
+    END LOOP;
+
+    RETURN created;
+END;
+$$;
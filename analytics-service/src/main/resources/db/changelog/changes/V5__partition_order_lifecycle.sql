@@ -0,0 +1,70 @@
+-- order_lifecycle становится секционированной по partition_at (дневные партиции, UTC).
+--
+-- partition_at — момент, когда заказ впервые попал в аналитику: created_at, а если первым пришло
+-- событие оплаты — самая ранняя из известных отметок. В отличие от created_at он не меняется
+-- и не бывает NULL, поэтому строка никогда не переезжает между партициями.
+--
+-- Уникальный ключ секционированной таблицы обязан включать ключ секционирования, поэтому
+-- order_id → partition_at хранится в узкой таблице order_lifecycle_key: upsert сначала
+-- разрешает по ней партицию заказа, затем пишет в order_lifecycle по (order_id, partition_at).
+
+ALTER TABLE order_lifecycle RENAME TO order_lifecycle_legacy;
+ALTER TABLE order_lifecycle_legacy RENAME CONSTRAINT order_lifecycle_pkey TO order_lifecycle_legacy_pkey;
+DROP INDEX idx_order_lifecycle_created_at;
+DROP INDEX idx_order_lifecycle_payment_completed_at;
+
+CREATE TABLE order_lifecycle_key
+(
+    order_id     BIGINT PRIMARY KEY,
+    partition_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX idx_order_lifecycle_key_partition_at ON order_lifecycle_key (partition_at);
+
+-- Индексы по created_at/payment_completed_at не переносятся: метрики читают агрегаты,
+-- а выборка по времени отсекает партиции по partition_at
+CREATE TABLE order_lifecycle
+(
+    order_id             BIGINT      NOT NULL,
+    partition_at         TIMESTAMPTZ NOT NULL,
+    created_at           TIMESTAMPTZ,
+    payment_started_at   TIMESTAMPTZ,
+    payment_completed_at TIMESTAMPTZ,
+    payment_status       VARCHAR(25),
+    notification_sent_at TIMESTAMPTZ,
+    PRIMARY KEY (order_id, partition_at)
+) PARTITION BY RANGE (partition_at);
+
+-- Страховка для строк вне созданных партиций (поздние события по уже сжатым дням)
+CREATE TABLE order_lifecycle_default PARTITION OF order_lifecycle DEFAULT;
+
+-- Дневные агрегаты сжатых партиций: после них сырые строки удаляются
+CREATE TABLE order_lifecycle_daily_rollup
+(
+    day                     DATE        NOT NULL,
+    payment_status          VARCHAR(25) NOT NULL,
+    order_count             BIGINT      NOT NULL,
+    payment_started_count   BIGINT      NOT NULL,
+    payment_completed_count BIGINT      NOT NULL,
+    notification_sent_count BIGINT      NOT NULL,
+    PRIMARY KEY (day, payment_status)
+);
+
+INSERT INTO order_lifecycle_key (order_id, partition_at)
+SELECT order_id, COALESCE(LEAST(created_at, payment_started_at, payment_completed_at, notification_sent_at), now())
+FROM order_lifecycle_legacy;
+
+-- Партиции на весь диапазон накопленных данных и неделю вперёд создаются до переноса строк
+SELECT order_lifecycle_ensure_partitions(
+               COALESCE((SELECT MIN(partition_at AT TIME ZONE 'UTC')::date FROM order_lifecycle_key),
+                        (now() AT TIME ZONE 'UTC')::date),
+               (now() AT TIME ZONE 'UTC')::date + 7);
+
+INSERT INTO order_lifecycle (order_id, partition_at, created_at, payment_started_at,
+                             payment_completed_at, payment_status, notification_sent_at)
+SELECT l.order_id, k.partition_at, l.created_at, l.payment_started_at,
+       l.payment_completed_at, l.payment_status, l.notification_sent_at
+FROM order_lifecycle_legacy l
+JOIN order_lifecycle_key k ON k.order_id = l.order_id;
+
+DROP TABLE order_lifecycle_legacy;
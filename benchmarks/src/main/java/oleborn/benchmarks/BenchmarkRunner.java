@@ -0,0 +1,127 @@
+package oleborn.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Точка входа {@code benchmarks.jar}: обычные аргументы JMH плюс всегда включённый
+ * {@link GCProfiler} ({@code gc.alloc.rate.norm} — байт на операцию) и сравнение с базовыми
+ * результатами из {@code benchmarks/baseline/order-service.json}.
+ * <pre>
+ * mvn -B package -pl benchmarks -am -DskipTests
+ * java -jar benchmarks/target/benchmarks.jar                      # все бенчмарки
+ * java -jar benchmarks/target/benchmarks.jar OrderMapping -prof jfr  # выборочно, с JFR
+ * </pre>
+ * Результат прогона пишется в {@code benchmarks/target/jmh-result.json}. Если изменение
+ * намеренно меняет профиль, этот файл копируется поверх базового в том же PR —
+ * разница попадает в ревью.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    // Замедление или рост аллокаций больше порога помечается в сравнении
+    private static final double REGRESSION_THRESHOLD = 0.10;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path result = Path.of(System.getProperty("benchmarks.result", "benchmarks/target/jmh-result.json"));
+        Path baseline = Path.of(System.getProperty("benchmarks.baseline", "benchmarks/baseline/order-service.json"));
+        Files.createDirectories(result.toAbsolutePath().getParent());
+
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        if (Files.exists(baseline)) {
+            compare(results, baseline);
+        } else {
+            System.out.println("No baseline at " + baseline + ", comparison skipped");
+        }
+    }
+
+    private static void compare(Collection<RunResult> results, Path baseline) throws IOException {
+        Map<String, JsonNode> baselineByKey = new HashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(baseline.toFile())) {
+            baselineByKey.put(key(node.path("benchmark").asText(), params(node.path("params"))), node);
+        }
+
+        Map<String, String> rows = new TreeMap<>();
+        for (RunResult run : results) {
+            Map<String, String> params = new TreeMap<>();
+            run.getParams().getParamsKeys().forEach(name -> params.put(name, run.getParams().getParam(name)));
+            String key = key(run.getParams().getBenchmark(), params);
+
+            Result<?> primary = run.getPrimaryResult();
+            Result<?> allocation = run.getSecondaryResults().get(ALLOCATION);
+            JsonNode before = baselineByKey.get(key);
+            if (before == null) {
+                rows.put(key, "%-75s %12.2f %-6s %10s   (no baseline)".formatted(
+                        shortName(key), primary.getScore(), primary.getScoreUnit(), bytes(allocation)));
+                continue;
+            }
+
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            double baseAlloc = before.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble();
+            double scoreDelta = delta(baseScore, primary.getScore());
+            double allocDelta = allocation == null ? 0 : delta(baseAlloc, allocation.getScore());
+            // Для avgt рост времени — регрессия, для thrpt — падение
+            boolean slower = primary.getScoreUnit().startsWith("ops") ? scoreDelta < -REGRESSION_THRESHOLD
+                    : scoreDelta > REGRESSION_THRESHOLD;
+            boolean moreGarbage = allocDelta > REGRESSION_THRESHOLD;
+
+            rows.put(key, "%-75s %12.2f %-6s %+7.1f%%   %10s %+7.1f%% %s".formatted(
+                    shortName(key), primary.getScore(), primary.getScoreUnit(), scoreDelta * 100,
+                    bytes(allocation), allocDelta * 100, slower || moreGarbage ? "  <-- REGRESSION" : ""));
+        }
+
+        System.out.println();
+        System.out.println("=== Against " + baseline + " ===");
+        System.out.printf("%-75s %19s %9s   %10s %8s%n", "benchmark", "score", "vs base", "B/op", "vs base");
+        rows.values().forEach(System.out::println);
+    }
+
+    private static Map<String, String> params(JsonNode node) {
+        Map<String, String> params = new TreeMap<>();
+        node.fields().forEachRemaining(field -> params.put(field.getKey(), field.getValue().asText()));
+        return params;
+    }
+
+    private static String key(String benchmark, Map<String, String> params) {
+        return params.isEmpty() ? benchmark : benchmark + params;
+    }
+
+    private static String shortName(String key) {
+        return key.replace("oleborn.benchmarks.", "");
+    }
+
+    private static String bytes(Result<?> allocation) {
+        return allocation == null ? "-" : "%.0f".formatted(allocation.getScore());
+    }
+
+    private static double delta(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before;
+    }
+}
@@ -0,0 +1,63 @@
+package oleborn.benchmarks.order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import oleborn.order_service.order.metrics.annotation.BusinessMetric;
+import oleborn.order_service.order.metrics.aspect.BusinessMetricsAspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы {@link BusinessMetricsAspect} на вызов метода с {@link BusinessMetric}:
+ * тот же метод напрямую и через Spring AOP-прокси с аспектом, как у бинов order-service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BusinessMetricsAspectBenchmark {
+
+    private MeteredOperation direct;
+    private MeteredOperation proxied;
+    private long argument;
+
+    @Setup
+    public void setUp() {
+        direct = new MeteredOperation();
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new MeteredOperation());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new BusinessMetricsAspect(new SimpleMeterRegistry()));
+        proxied = factory.getProxy();
+    }
+
+    @Benchmark
+    public long direct() {
+        return direct.execute(argument++);
+    }
+
+    @Benchmark
+    public long withAspect() {
+        return proxied.execute(argument++);
+    }
+
+    public static class MeteredOperation {
+
+        @BusinessMetric(value = "orders.created", tags = {"operation=create", "type=write"})
+        public long execute(long value) {
+            return value * 31 + 7;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package oleborn.benchmarks.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import oleborn.order_service.order.domain.dto.CachedResponse;
+import oleborn.order_service.order.domain.dto.OrderResponseDto;
+import oleborn.order_service.order.service.IdempotencyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор сохранённого ответа в {@link IdempotencyService#getResponse}: split строки
+ * {@code "<status>|<json>"} и десериализация {@link OrderResponseDto}.
+ * <p>
+ * Redis заменён заглушкой, которая возвращает заранее сохранённое значение, — замеряется
+ * только разбор, без сети.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IdempotencyParseBenchmark {
+
+    @Param({"1", "5", "50"})
+    int itemCount;
+
+    private IdempotencyService idempotencyService;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        String stored = "201|" + objectMapper.writeValueAsString(OrderResponseDto.from(OrderFixtures.order(itemCount)));
+        idempotencyService = new IdempotencyService(new StoredValueRedisTemplate(stored), objectMapper);
+    }
+
+    @Benchmark
+    public Optional<CachedResponse> getResponse() {
+        return idempotencyService.getResponse("idempotency-key");
+    }
+
+    private static final class StoredValueRedisTemplate extends StringRedisTemplate {
+
+        private final ValueOperations<String, String> operations;
+
+        @SuppressWarnings("unchecked")
+        StoredValueRedisTemplate(String stored) {
+            this.operations = (ValueOperations<String, String>) Proxy.newProxyInstance(
+                    ValueOperations.class.getClassLoader(),
+                    new Class<?>[]{ValueOperations.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("get")) {
+                            return stored;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Override
+        public ValueOperations<String, String> opsForValue() {
+            return operations;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package oleborn.benchmarks.order;
+
+import oleborn.order_service.order.domain.entity.Order;
+import oleborn.order_service.order.domain.entity.OrderItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Данные бенчмарков: заказ с заданным числом позиций и контекст трассировки,
+ * как его кладёт в {@code OrderCreatedEvent} {@code OrderService}.
+ * Генератор с фиксированным seed — прогоны сравнимы между собой.
+ */
+final class OrderFixtures {
+
+    private OrderFixtures() {
+    }
+
+    static Order order(int itemCount) {
+        Random random = new Random(42);
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            long productId = 1 + random.nextInt(10_000);
+            OrderItem item = new OrderItem(productId, "product-" + productId, 1 + random.nextInt(5),
+                    BigDecimal.valueOf(100 + random.nextInt(100_000), 2));
+            item.setId((long) i + 1);
+            items.add(item);
+        }
+        Order order = new Order(items);
+        order.setId(123_456L);
+        return order;
+    }
+
+    static Map<String, String> mdcContext() {
+        return Map.of(
+                "traceId", "4bf92f3577b34da6a3ce929d0e0e4736",
+                "spanId", "00f067aa0ba902b7",
+                "order_id", "123456",
+                "total_amount", "4242.42",
+                "order_status", "CREATED",
+                "request_id", "d0b1c2e3-f4a5-4b6c-8d7e-9f0a1b2c3d4e"
+        );
+    }
+}
@@ -0,0 +1,53 @@
+package oleborn.benchmarks.order;
+
+import oleborn.order_service.order.domain.dto.OrderResponseDto;
+import oleborn.order_service.order.domain.entity.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчёт суммы и сборка ответа по заказу: {@link OrderResponseDto#from} и {@link Order#getTotalPrice},
+ * которые вызываются на каждом создании заказа (ответ, MDC, событие).
+ * {@code totalPrice} замеряет сам расчёт через {@link Order#totalOf} — закэшированная на заказе сумма
+ * после первого вызова ничего не стоит и замер бы не показала.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderMappingBenchmark {
+
+    @Param({"1", "5", "50"})
+    int itemCount;
+
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        order = OrderFixtures.order(itemCount);
+    }
+
+    @Benchmark
+    public OrderResponseDto responseDtoFrom() {
+        return OrderResponseDto.from(order);
+    }
+
+    @Benchmark
+    public BigDecimal totalPrice() {
+        return Order.totalOf(order.getItems());
+    }
+}
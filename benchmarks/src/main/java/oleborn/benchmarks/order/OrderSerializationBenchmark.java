@@ -0,0 +1,59 @@
+package oleborn.benchmarks.order;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import oleborn.order_service.order.domain.dto.OrderResponseDto;
+import oleborn.order_service.order.domain.event.OrderCreatedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson-сериализация того, что order-service пишет на каждый заказ: тело ответа
+ * {@code POST /orders} и payload {@link OrderCreatedEvent} в outbox.
+ * <p>
+ * {@link ObjectMapper} настраивается тем же {@link Jackson2ObjectMapperBuilder}, что и в Spring Boot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderSerializationBenchmark {
+
+    @Param({"1", "5", "50"})
+    int itemCount;
+
+    private ObjectMapper objectMapper;
+    private OrderResponseDto response;
+    private OrderCreatedEvent event;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        response = OrderResponseDto.from(OrderFixtures.order(itemCount));
+        event = OrderCreatedEvent.of(response.id(), OrderFixtures.mdcContext());
+    }
+
+    @Benchmark
+    public byte[] responseDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] orderCreatedEvent() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+}
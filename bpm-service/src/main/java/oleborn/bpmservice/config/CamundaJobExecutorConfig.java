@@ -0,0 +1,49 @@
+package oleborn.bpmservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+/**
+ * Исполнитель job'ов Camunda на виртуальных потоках.
+ * <p>
+ * По умолчанию стартер создаёт бин {@code camundaTaskExecutor} — ограниченный
+ * {@code ThreadPoolTaskExecutor} из {@code camunda.bpm.job-execution.core-pool-size /
+ * max-pool-size / queue-capacity}. Наши job'ы (asyncBefore у сервис-задач) почти целиком
+ * состоят из ожидания: JDBC и отправка в Kafka, поэтому платформенные потоки простаивают.
+ * При {@code app.camunda.job-executor.virtual-threads=true} бин подменяется
+ * {@link SimpleAsyncTaskExecutor} на виртуальных потоках.
+ * <p>
+ * Ограничение параллелизма обязательно: реальный предел — пул соединений к БД.
+ * При достижении лимита задача отклоняется ({@code TaskRejectedException}),
+ * и job executor возвращает job'ы в очередь через {@code NotifyAcquisitionRejectedJobsHandler}, —
+ * так же, как при переполнении очереди у стандартного пула.
+ */
+@Configuration
+@Slf4j
+@ConditionalOnProperty(name = "app.camunda.job-executor.virtual-threads", havingValue = "true")
+public class CamundaJobExecutorConfig {
+
+    /**
+     * @param maxConcurrentJobs максимум одновременно выполняемых job'ов;
+     *                          держите не больше {@code spring.datasource.hikari.maximum-pool-size}
+     * @return исполнитель, который {@code SpringJobExecutor} получит по имени бина
+     */
+    @Bean(name = "camundaTaskExecutor")
+    public TaskExecutor camundaTaskExecutor(
+            @Value("${app.camunda.job-executor.max-concurrent-jobs:32}") int maxConcurrentJobs
+    ) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("camunda-job-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrentJobs);
+        // Не блокируем поток acquisition: лишние job'ы отдаются обратно движку
+        executor.setRejectTasksWhenLimitReached(true);
+
+        log.info("Camunda job executor на виртуальных потоках, лимит параллелизма: {}", maxConcurrentJobs);
+        return executor;
+    }
+}
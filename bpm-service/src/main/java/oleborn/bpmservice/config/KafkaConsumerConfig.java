@@ -117,6 +117,34 @@ public class KafkaConsumerConfig {
         return factory;
     }
 
+    /**
+     * Фабрика пакетных (batch) контейнеров для всплесков OrderCreatedEvent.
+     * <p>
+     * Слушатель получает сразу весь результат poll (до {@code max.poll.records} записей)
+     * и запускает все саги одной транзакцией движка. Подтверждение offset — по индексу
+     * внутри пакета ({@code acknowledge(index)} / {@code nack(index, sleep)}), поэтому
+     * ручной режим MANUAL_IMMEDIATE здесь обязателен.
+     *
+     * @param maxPollRecords максимальный размер пакета за один poll
+     * @return фабрика для @KafkaListener с {@code batch = "true"}
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            @Value("${app.saga.batch.max-poll-records:500}") int maxPollRecords
+    ) {
+        Map<String, Object> props = new HashMap<>(consumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setObservationEnabled(true);
+
+        return factory;
+    }
+
     /**
      * Конвертер сообщений для работы с параметризованными типами (generics).
      * <p>
@@ -9,7 +9,7 @@ import org.springframework.kafka.config.TopicBuilder;
 @Configuration
 public class KafkaTopicConfig {
 
-    @Value("${app.topic.order-events}")
+    @Value("${app.topic.order-events:order-events}")
     private String orderEventsTopic;
 
     @Value("${app.topic.payment-events}")
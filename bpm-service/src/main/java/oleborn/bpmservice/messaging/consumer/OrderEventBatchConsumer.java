@@ -0,0 +1,165 @@
+package oleborn.bpmservice.messaging.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.bpmservice.domain.event.OrderCreatedEvent;
+import oleborn.bpmservice.service.SagaStartService;
+import oleborn.bpmservice.service.SagaStartService.SagaStartRequest;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Пакетный запуск саг для всплесков OrderCreatedEvent.
+ * <p>
+ * Алгоритм на один poll:
+ * <ol>
+ *   <li>Записи, которые не удалось десериализовать или без orderId, пропускаются
+ *       (повтор их не исправит).</li>
+ *   <li>Остальные запускаются одной транзакцией движка через
+ *       {@link SagaStartService#startSagas}. Успех — подтверждаем весь пакет.</li>
+ *   <li>Если пакетная транзакция откатилась, запускаем записи поштучно, по порядку.
+ *       Неповторяемые ошибки (IllegalArgument/NullPointer/ClassCast — как в exclude
+ *       у @RetryableTopic) пропускаются, а на первой повторяемой ошибке вызывается
+ *       {@code nack(index)}: offset'ы успешно запущенных записей до неё коммитятся,
+ *       а сама запись и всё после неё будут доставлены повторно.</li>
+ * </ol>
+ * Чтобы одна «вечно падающая» запись не блокировала партицию, число повторов
+ * ограничено {@code app.saga.batch.max-attempts}, после чего запись пропускается с ERROR-логом.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.saga.batch.enabled", havingValue = "true")
+public class OrderEventBatchConsumer implements ConsumerSeekAware {
+
+    private final SagaStartService sagaStartService;
+
+    // Счётчик попыток по координатам записи (topic-partition@offset); чистится и при отзыве партиции
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+    @Value("${app.saga.batch.retry-backoff:1s}")
+    private Duration retryBackoff;
+
+    @Value("${app.saga.batch.max-attempts:3}")
+    private int maxAttempts;
+
+    @KafkaListener(
+            topics = "${app.topic.order-create-topic}",
+            groupId = "workflow-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            batch = "true"
+    )
+    public void handleOrderCreatedBatch(List<ConsumerRecord<String, Object>> records, Acknowledgment acknowledgment) {
+
+        List<SagaStartRequest> requests = new ArrayList<>(records.size());
+
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, Object> record = records.get(i);
+
+            if (!(record.value() instanceof OrderCreatedEvent event) || event.orderId() == null) {
+                log.error("Пропускаем некорректную запись {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), record.value());
+                continue;
+            }
+
+            requests.add(new SagaStartRequest(event, traceparent(record), i));
+        }
+
+        if (requests.isEmpty()) {
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        try {
+            sagaStartService.startSagas(requests);
+            acknowledgment.acknowledge();
+            log.info("Пакетно запущено {} саг (записей в poll: {})", requests.size(), records.size());
+            return;
+        } catch (Exception e) {
+            log.warn("Пакетный запуск {} саг откатился, переходим к поштучному", requests.size(), e);
+        }
+
+        int started = 0;
+
+        for (SagaStartRequest request : requests) {
+            ConsumerRecord<String, Object> record = records.get(request.index());
+            String recordKey = record.topic() + "-" + record.partition() + "@" + record.offset();
+
+            try {
+                sagaStartService.startSaga(request);
+                attempts.remove(recordKey);
+                started++;
+
+            } catch (Exception e) {
+
+                if (isNotRetryable(e)) {
+                    log.error("Неповторяемая ошибка запуска саги для заказа {}, запись пропущена",
+                            request.event().orderId(), e);
+                    attempts.remove(recordKey);
+                    continue;
+                }
+
+                int attempt = attempts.merge(recordKey, 1, Integer::sum);
+
+                if (attempt >= maxAttempts) {
+                    log.error("Сага для заказа {} не запущена после {} попыток, запись пропущена",
+                            request.event().orderId(), attempt, e);
+                    attempts.remove(recordKey);
+                    continue;
+                }
+
+                log.warn("Ошибка запуска саги для заказа {} (попытка {}), повтор с offset {}",
+                        request.event().orderId(), attempt, record.offset(), e);
+
+                // Коммитим всё до index и перечитываем хвост пакета после паузы
+                acknowledgment.nack(request.index(), retryBackoff);
+                return;
+            }
+        }
+
+        acknowledgment.acknowledge();
+        log.info("Поштучно запущено {} из {} саг", started, requests.size());
+    }
+
+    /**
+     * Записи отозванных партиций дочитает другой consumer — их счётчики здесь больше не понадобятся.
+     */
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            String prefix = partition + "@";
+            attempts.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private String traceparent(ConsumerRecord<String, Object> record) {
+        Header header = record.headers().lastHeader("traceparent");
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private boolean isNotRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException
+                    || cause instanceof NullPointerException
+                    || cause instanceof ClassCastException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
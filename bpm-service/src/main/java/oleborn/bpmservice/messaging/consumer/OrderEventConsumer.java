@@ -3,21 +3,26 @@ package oleborn.bpmservice.messaging.consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import oleborn.bpmservice.domain.event.OrderCreatedEvent;
-import org.camunda.bpm.engine.RuntimeService;
+import oleborn.bpmservice.service.SagaStartService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Поштучный запуск саги на каждое OrderCreatedEvent.
+ * <p>
+ * Активен по умолчанию; при {@code app.saga.batch.enabled=true} его заменяет
+ * {@link OrderEventBatchConsumer}.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.saga.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class OrderEventConsumer {
 
-    private final RuntimeService runtimeService;
+    private final SagaStartService sagaStartService;
 
     @KafkaListener(topics = "${app.topic.order-create-topic}", groupId = "workflow-group")
     public void handleOrderCreated(
@@ -27,26 +32,20 @@ public class OrderEventConsumer {
     ) {
         try {
 
-            log.info("Received payment event: {}", event);
-
             log.info("Received OrderCreatedEvent for order: {}", event.orderId());
 
             // Запускаем BPMN-процесс
-            Map<String, Object> variables = new HashMap<>();
-            variables.put("orderId", event.orderId());
-            variables.put("timestamp", event.timestamp());
-            variables.put("context", event.context());
-            variables.put("timeoutDuration", "PT30S");
-            variables.put("traceparent", traceparent);
-
-            runtimeService.startProcessInstanceByKey("create-order-saga", variables);
+            sagaStartService.startSaga(event, traceparent);
 
             log.info("BPMN process started for order: {}", event.orderId());
 
             acknowledgment.acknowledge();
 
         } catch (Exception e) {
-            log.error("Failed to start workflow for order", e);
+            log.error("Failed to start workflow for order {}", event.orderId(), e);
+            // Без acknowledge и без исключения offset молча «перепрыгивался» следующим ack —
+            // пробрасываем, чтобы сработал ретрай обработчика ошибок контейнера
+            throw e;
         }
     }
-}
\ No newline at end of file
+}
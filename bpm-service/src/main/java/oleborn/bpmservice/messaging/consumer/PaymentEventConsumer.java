@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import oleborn.bpmservice.domain.event.PaymentCompletedEvent;
 import oleborn.bpmservice.domain.event.PaymentFailedEvent;
+import oleborn.bpmservice.timeout.PaymentTimeoutManager;
 import org.camunda.bpm.engine.RuntimeService;
 import org.springframework.kafka.annotation.KafkaHandler;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -40,6 +41,7 @@ import org.springframework.stereotype.Component;
 public class PaymentEventConsumer {
 
     private final RuntimeService runtimeService;
+    private final PaymentTimeoutManager paymentTimeoutManager;
 
     @KafkaHandler
     public void handlePaymentCompleted(PaymentCompletedEvent event, Acknowledgment acknowledgment) {
@@ -50,6 +52,8 @@ public class PaymentEventConsumer {
                 .setVariable("transactionId", event.transactionId())
                 .correlateWithResult();
 
+        paymentTimeoutManager.onPaymentResult(event.orderId());
+
         acknowledgment.acknowledge();
     }
 
@@ -62,6 +66,8 @@ public class PaymentEventConsumer {
                 .setVariable("failureReason", event.reason())
                 .correlateWithResult();
 
+        paymentTimeoutManager.onPaymentResult(event.orderId());
+
         acknowledgment.acknowledge();
     }
 
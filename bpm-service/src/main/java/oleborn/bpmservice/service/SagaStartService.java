@@ -0,0 +1,89 @@
+package oleborn.bpmservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.bpmservice.domain.event.OrderCreatedEvent;
+import oleborn.bpmservice.timeout.PaymentTimeoutManager;
+import org.camunda.bpm.engine.RuntimeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запуск саги создания заказа (процесс {@code create-order-saga}).
+ * <p>
+ * Поштучный запуск ({@link #startSaga}) выполняется в собственной транзакции движка —
+ * так работает обычный {@code OrderEventConsumer}. Пакетный запуск ({@link #startSagas})
+ * открывает одну Spring-транзакцию на весь пакет: Camunda использует тот же
+ * {@code PlatformTransactionManager}, поэтому все INSERT'ы экземпляров, переменных
+ * и асинхронных job'ов уходят одним коммитом вместо N отдельных.
+ * <p>
+ * Какой процесс запускать, решает {@link PaymentTimeoutManager}. Сам отсчёт таймаута здесь
+ * не начинается: при отставании job executor'а сага может долго не дойти до ожидания оплаты,
+ * поэтому таймаут ставится при входе в gateway ({@code PaymentAwaitListener}).
+ * Business key экземпляра — orderId: по нему коррелируются таймауты в режиме колеса.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SagaStartService {
+
+    public static final String PROCESS_KEY = "create-order-saga";
+
+    private final RuntimeService runtimeService;
+    private final PaymentTimeoutManager paymentTimeoutManager;
+
+    @Value("${app.saga.timeout.duration:PT30S}")
+    private Duration paymentTimeout;
+
+    /**
+     * Запрос на запуск одной саги.
+     *
+     * @param event       событие создания заказа
+     * @param traceparent W3C-заголовок трассировки (может быть {@code null})
+     * @param index       позиция записи внутри пакета poll — нужна для частичного подтверждения
+     */
+    public record SagaStartRequest(OrderCreatedEvent event, String traceparent, int index) {
+    }
+
+    public void startSaga(OrderCreatedEvent event, String traceparent) {
+        runtimeService.startProcessInstanceByKey(
+                paymentTimeoutManager.processKey(),
+                String.valueOf(event.orderId()),
+                buildVariables(event, traceparent)
+        );
+    }
+
+    public void startSaga(SagaStartRequest request) {
+        startSaga(request.event(), request.traceparent());
+    }
+
+    /**
+     * Запускает все саги пакета в одной транзакции.
+     * <p>
+     * Ошибка любого экземпляра откатывает весь пакет — вызывающий код должен
+     * перейти к поштучному запуску, чтобы изолировать «плохую» запись.
+     */
+    @Transactional
+    public void startSagas(List<SagaStartRequest> requests) {
+        for (SagaStartRequest request : requests) {
+            startSaga(request);
+        }
+        log.debug("В одной транзакции запущено {} саг", requests.size());
+    }
+
+    private Map<String, Object> buildVariables(OrderCreatedEvent event, String traceparent) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("orderId", event.orderId());
+        variables.put("timestamp", event.timestamp());
+        variables.put("context", event.context());
+        variables.put("timeoutDuration", paymentTimeout.toString());
+        variables.put("traceparent", traceparent);
+        return variables;
+    }
+}
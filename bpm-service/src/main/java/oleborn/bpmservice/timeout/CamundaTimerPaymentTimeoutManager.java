@@ -0,0 +1,29 @@
+package oleborn.bpmservice.timeout;
+
+import oleborn.bpmservice.service.SagaStartService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Таймаут оплаты — таймерное событие {@code ${timeoutDuration}} в процессе
+ * {@code create-order-saga}: движок сам создаёт и отменяет timer job.
+ */
+@Component
+@ConditionalOnProperty(name = "app.saga.timeout.mode", havingValue = "camunda", matchIfMissing = true)
+public class CamundaTimerPaymentTimeoutManager implements PaymentTimeoutManager {
+
+    @Override
+    public String processKey() {
+        return SagaStartService.PROCESS_KEY;
+    }
+
+    @Override
+    public void onPaymentAwaited(Long orderId) {
+        // Таймер создаётся движком при входе в event-based gateway
+    }
+
+    @Override
+    public void onPaymentResult(Long orderId) {
+        // Таймер отменяется движком при корреляции сообщения
+    }
+}
@@ -0,0 +1,82 @@
+package oleborn.bpmservice.timeout;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Изменения таймаутов колеса с момента последней контрольной точки.
+ * <p>
+ * {@code added} — строки, которые нужно (пере)записать, {@code removed} — строки, которые нужно удалить.
+ * Заказ может быть в обоих: сохранённый таймаут, переставленный после снятия или поверх себя,
+ * сначала удаляется, потом вставляется заново. Таймаут, поставленный и снятый внутри интервала,
+ * в БД не попадает вовсе.
+ * <p>
+ * Не потокобезопасен — синхронизацию обеспечивает {@link TimingWheelPaymentTimeoutManager}.
+ */
+final class CheckpointChanges {
+
+    private final Set<Long> added = new HashSet<>();
+    private final Set<Long> removed = new HashSet<>();
+
+    /**
+     * @param replaced таймаут заказа уже стоял в колесе и переставлен
+     */
+    void scheduled(long orderId, boolean replaced) {
+        // Стоявший таймаут, которого нет среди новых, уже записан в БД: его строку нужно удалить
+        if (replaced && !added.contains(orderId)) {
+            removed.add(orderId);
+        }
+        added.add(orderId);
+    }
+
+    /**
+     * Таймаут восстановлен при старте; {@code persisted} — он уже лежит в БД.
+     */
+    void recovered(long orderId, boolean persisted) {
+        if (!persisted) {
+            added.add(orderId);
+        }
+    }
+
+    /**
+     * Таймаут снят или сработал. Не записанный ещё таймаут просто забывается; удаление
+     * ранее записанной строки, если оно уже ожидает, сохраняется.
+     */
+    void removed(long orderId) {
+        if (!added.remove(orderId)) {
+            removed.add(orderId);
+        }
+    }
+
+    boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Забирает накопленные изменения для записи и начинает новый интервал.
+     */
+    Snapshot drain() {
+        Snapshot snapshot = new Snapshot(Set.copyOf(added), Set.copyOf(removed));
+        added.clear();
+        removed.clear();
+        return snapshot;
+    }
+
+    /**
+     * Возвращает изменения неудавшейся записи в следующий интервал. Удаления возвращаются все:
+     * лишний DELETE безвреден, а потерянный оставил бы строку навсегда. Вставки — только для
+     * таймаутов, которые всё ещё стоят в колесе.
+     */
+    void restore(Snapshot snapshot, LongPredicate pending) {
+        removed.addAll(snapshot.removed());
+        for (Long orderId : snapshot.added()) {
+            if (pending.test(orderId)) {
+                added.add(orderId);
+            }
+        }
+    }
+
+    record Snapshot(Set<Long> added, Set<Long> removed) {
+    }
+}
@@ -0,0 +1,225 @@
+package oleborn.bpmservice.timeout;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Иерархическое колесо таймеров (Varghese &amp; Lauck) для таймаутов, привязанных к orderId.
+ * <p>
+ * Уровень {@code l} состоит из {@code wheelSize} корзин шириной {@code tick * wheelSize^l}.
+ * Таймаут кладётся на самый нижний уровень, чей диапазон его покрывает; когда стрелка
+ * уровня доходит до корзины, её записи «осыпаются» на уровень ниже и в итоге
+ * срабатывают на уровне 0 с точностью до одного тика.
+ * <ul>
+ *   <li>{@link #schedule} и {@link #cancel} — O(1): корзина — двусвязный список,
+ *       индекс по orderId даёт запись без поиска;</li>
+ *   <li>{@link #advanceTo} — O(число тиков + число сработавших/осыпавшихся записей).</li>
+ * </ul>
+ * Класс не потокобезопасен сам по себе — синхронизацию обеспечивает владелец.
+ */
+public class HierarchicalTimingWheel {
+
+    private final long tickMillis;
+    private final int wheelSize;
+
+    // Ширина корзины уровня в тиках: wheelSize^level
+    private final long[] levelSpan;
+
+    // buckets[level][slot] — голова двусвязного списка
+    private final Entry[][] buckets;
+
+    private final Map<Long, Entry> index = new HashMap<>();
+
+    // Текущее время колеса в тиках (абсолютное: epochMillis / tickMillis)
+    private long currentTick;
+
+    /**
+     * @param tickMillis  разрешение колеса
+     * @param wheelSize   число корзин на уровне
+     * @param levels      число уровней; покрываемый без повторного осыпания диапазон —
+     *                    {@code tickMillis * wheelSize^levels}
+     * @param startMillis момент времени, с которого колесо начинает отсчёт
+     */
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("tickMillis > 0, wheelSize >= 2, levels >= 1");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelSpan = new long[levels];
+        this.buckets = new Entry[levels][wheelSize];
+        this.currentTick = startMillis / tickMillis;
+
+        long span = 1;
+        for (int level = 0; level < levels; level++) {
+            levelSpan[level] = span;
+            span = Math.multiplyExact(span, wheelSize);
+        }
+    }
+
+    /**
+     * Ставит (или переставляет) таймаут заказа.
+     *
+     * @return {@code false}, если срок уже наступил — вызывающий сам решает, что делать
+     */
+    public boolean schedule(long orderId, long deadlineMillis) {
+        cancel(orderId);
+
+        long deadlineTick = Math.ceilDiv(deadlineMillis, tickMillis);
+        if (deadlineTick <= currentTick) {
+            return false;
+        }
+
+        Entry entry = new Entry(orderId, deadlineTick);
+        index.put(orderId, entry);
+        place(entry);
+        return true;
+    }
+
+    /**
+     * Снимает таймаут. Повторный вызов и вызов для неизвестного заказа безопасны.
+     *
+     * @return {@code true}, если таймаут был запланирован
+     */
+    public boolean cancel(long orderId) {
+        Entry entry = index.remove(orderId);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    public boolean contains(long orderId) {
+        return index.containsKey(orderId);
+    }
+
+    /**
+     * Срок таймаута заказа в миллисекундах или {@code -1}, если таймаута нет.
+     */
+    public long deadlineOf(long orderId) {
+        Entry entry = index.get(orderId);
+        return entry == null ? -1 : entry.deadlineTick * tickMillis;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Продвигает колесо до {@code nowMillis} и отдаёт orderId всех сработавших таймаутов.
+     *
+     * @return число сработавших таймаутов
+     */
+    public int advanceTo(long nowMillis, LongConsumer expired) {
+        long targetTick = nowMillis / tickMillis;
+        int fired = 0;
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Сначала осыпаем верхние уровни, чьи стрелки перешли границу корзины
+            for (int level = levelSpan.length - 1; level > 0; level--) {
+                if (currentTick % levelSpan[level] == 0) {
+                    cascade(level, slotOf(currentTick, level));
+                }
+            }
+
+            int slot = slotOf(currentTick, 0);
+            Entry entry = buckets[0][slot];
+            buckets[0][slot] = null;
+
+            while (entry != null) {
+                Entry next = entry.next;
+                entry.prev = entry.next = null;
+                entry.level = -1;
+                index.remove(entry.orderId);
+                expired.accept(entry.orderId);
+                fired++;
+                entry = next;
+            }
+        }
+
+        return fired;
+    }
+
+    /**
+     * Обходит все запланированные таймауты (для контрольных точек).
+     */
+    public void forEach(TimeoutVisitor visitor) {
+        for (Entry entry : index.values()) {
+            visitor.visit(entry.orderId, entry.deadlineTick * tickMillis);
+        }
+    }
+
+    @FunctionalInterface
+    public interface TimeoutVisitor {
+        void visit(long orderId, long deadlineMillis);
+    }
+
+    private void cascade(int level, int slot) {
+        Entry entry = buckets[level][slot];
+        buckets[level][slot] = null;
+
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.prev = entry.next = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    private void place(Entry entry) {
+        long delta = entry.deadlineTick - currentTick;
+
+        int level = 0;
+        while (level < levelSpan.length - 1 && delta >= levelSpan[level + 1]) {
+            level++;
+        }
+
+        // delta == 0 возможен только при осыпании — такие записи срабатывают в этом же тике
+        int slot = slotOf(entry.deadlineTick, level);
+        entry.level = level;
+        entry.slot = slot;
+        entry.next = buckets[level][slot];
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+        buckets[level][slot] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.level < 0) {
+            return;
+        }
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            buckets[entry.level][entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = entry.next = null;
+        entry.level = -1;
+    }
+
+    private int slotOf(long tick, int level) {
+        return (int) ((tick / levelSpan[level]) % wheelSize);
+    }
+
+    private static final class Entry {
+        private final long orderId;
+        private final long deadlineTick;
+        private int level = -1;
+        private int slot;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(long orderId, long deadlineTick) {
+            this.orderId = orderId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
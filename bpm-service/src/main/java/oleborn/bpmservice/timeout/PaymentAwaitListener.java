@@ -0,0 +1,40 @@
+package oleborn.bpmservice.timeout;
+
+import lombok.RequiredArgsConstructor;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.ExecutionListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Execution listener на входе в gateway {@code Gateway_05jdm5o} («Payment Result?»)
+ * процесса {@code create-order-saga-external-timeout}.
+ * <p>
+ * Таймаут ставится только после коммита транзакции job'а: до него подписка
+ * {@code paymentFailed} не видна, и таймаут, сработавший раньше коммита (или при откате
+ * job'а с последующим ретраем), не нашёл бы сагу и был бы потерян.
+ */
+@Component("paymentAwaitListener")
+@RequiredArgsConstructor
+public class PaymentAwaitListener implements ExecutionListener {
+
+    private final PaymentTimeoutManager paymentTimeoutManager;
+
+    @Override
+    public void notify(DelegateExecution execution) {
+        Long orderId = (Long) execution.getVariable("orderId");
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            paymentTimeoutManager.onPaymentAwaited(orderId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                paymentTimeoutManager.onPaymentAwaited(orderId);
+            }
+        });
+    }
+}
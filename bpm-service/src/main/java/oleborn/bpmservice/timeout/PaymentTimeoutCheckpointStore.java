@@ -0,0 +1,115 @@
+package oleborn.bpmservice.timeout;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Контрольные точки колеса таймаутов в таблицах {@code saga_payment_timeout}
+ * и {@code saga_payment_timeout_checkpoint}.
+ * <p>
+ * Пишутся только изменения за интервал: таймаут, поставленный и снятый между двумя
+ * контрольными точками (обычный случай — оплата прошла за пару секунд), в БД не попадает вовсе.
+ * <p>
+ * Снимок один на кластер, поэтому писать его может только один узел — владелец аренды
+ * ({@code owner}, {@code lease_until}). Аренда продлевается каждой контрольной точкой;
+ * запись узла, потерявшего аренду, откатывается.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentTimeoutCheckpointStore {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Берёт или продлевает аренду колеса. Чужая аренда перехватывается, только когда истекла.
+     *
+     * @return {@code false} — колесо держит другой узел
+     */
+    public boolean acquireLease(String owner, Duration lease) {
+        return jdbcTemplate.update("""
+                UPDATE saga_payment_timeout_checkpoint
+                SET owner = ?, lease_until = now() + ? * INTERVAL '1 millisecond'
+                WHERE id = 1 AND (owner IS NULL OR owner = ? OR lease_until < now())
+                """, owner, lease.toMillis(), owner) == 1;
+    }
+
+    /**
+     * Отпускает аренду при остановке — следующий узел не ждёт её истечения.
+     */
+    public void releaseLease(String owner) {
+        jdbcTemplate.update("UPDATE saga_payment_timeout_checkpoint SET owner = NULL, lease_until = NULL "
+                + "WHERE id = 1 AND owner = ?", owner);
+    }
+
+    /**
+     * Применяет изменения одной транзакцией, сдвигает момент контрольной точки и продлевает аренду.
+     *
+     * @param added        orderId → срок в epoch millis
+     * @param removed      снятые или сработавшие таймауты
+     * @param checkpointAt момент снимка; всё, что стартовало позже, в снимок не вошло
+     * @throws IllegalStateException узел не владеет арендой; изменения откатываются
+     */
+    @Transactional
+    public void apply(Map<Long, Long> added, Collection<Long> removed, Instant checkpointAt,
+                      String owner, Duration lease) {
+
+        List<Object[]> deletes = new ArrayList<>(added.size() + removed.size());
+        removed.forEach(orderId -> deletes.add(new Object[]{orderId}));
+        // Перепланированный таймаут: удаляем старую строку перед вставкой
+        added.keySet().forEach(orderId -> deletes.add(new Object[]{orderId}));
+
+        List<Object[]> inserts = new ArrayList<>(added.size());
+        added.forEach((orderId, deadline) -> inserts.add(new Object[]{orderId, new Timestamp(deadline)}));
+
+        for (List<Object[]> chunk : chunks(deletes)) {
+            jdbcTemplate.batchUpdate("DELETE FROM saga_payment_timeout WHERE order_id = ?", chunk);
+        }
+        for (List<Object[]> chunk : chunks(inserts)) {
+            jdbcTemplate.batchUpdate("INSERT INTO saga_payment_timeout(order_id, deadline_at) VALUES (?, ?)", chunk);
+        }
+
+        int updated = jdbcTemplate.update("""
+                UPDATE saga_payment_timeout_checkpoint
+                SET checkpointed_at = ?, lease_until = now() + ? * INTERVAL '1 millisecond'
+                WHERE id = 1 AND owner = ?
+                """, Timestamp.from(checkpointAt), lease.toMillis(), owner);
+        if (updated == 0) {
+            throw new IllegalStateException("Payment timeout wheel lease is not held by " + owner);
+        }
+    }
+
+    /**
+     * Потоково читает все сохранённые таймауты — без загрузки списка целиком в память.
+     */
+    public void loadAll(HierarchicalTimingWheel.TimeoutVisitor visitor) {
+        jdbcTemplate.query("SELECT order_id, deadline_at FROM saga_payment_timeout",
+                (RowCallbackHandler) rs -> visitor.visit(rs.getLong("order_id"), rs.getTimestamp("deadline_at").getTime()));
+    }
+
+    public Instant lastCheckpointAt() {
+        Timestamp checkpointedAt = jdbcTemplate.queryForObject(
+                "SELECT checkpointed_at FROM saga_payment_timeout_checkpoint WHERE id = 1", Timestamp.class);
+        return checkpointedAt == null ? Instant.EPOCH : checkpointedAt.toInstant();
+    }
+
+    private static List<List<Object[]>> chunks(List<Object[]> args) {
+        List<List<Object[]>> chunks = new ArrayList<>();
+        for (int from = 0; from < args.size(); from += BATCH_SIZE) {
+            chunks.add(args.subList(from, Math.min(from + BATCH_SIZE, args.size())));
+        }
+        return chunks;
+    }
+}
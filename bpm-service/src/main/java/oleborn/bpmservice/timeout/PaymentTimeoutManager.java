@@ -0,0 +1,34 @@
+package oleborn.bpmservice.timeout;
+
+/**
+ * Способ отслеживания таймаута оплаты в саге.
+ * <p>
+ * Выбирается свойством {@code app.saga.timeout.mode}:
+ * <ul>
+ *   <li>{@code camunda} — {@link CamundaTimerPaymentTimeoutManager}: таймер в BPMN
+ *       (по job'у на каждую сагу);</li>
+ *   <li>{@code wheel} — {@link TimingWheelPaymentTimeoutManager}: колесо таймеров в памяти
+ *       и процесс без таймерного события.</li>
+ * </ul>
+ */
+public interface PaymentTimeoutManager {
+
+    /**
+     * Ключ BPMN-процесса, который нужно запускать в этом режиме.
+     */
+    String processKey();
+
+    /**
+     * Сага дошла до ожидания результата оплаты и команда оплаты отправлена — начинаем отсчёт таймаута.
+     * <p>
+     * Вызывается после коммита транзакции, в которой экземпляр вошёл в gateway
+     * {@code Gateway_05jdm5o} ({@link PaymentAwaitListener}): к этому моменту подписка
+     * {@code paymentFailed} уже видна и сработавший таймаут гарантированно найдёт сагу.
+     */
+    void onPaymentAwaited(Long orderId);
+
+    /**
+     * Пришёл результат оплаты (успех или отказ) — таймаут больше не нужен.
+     */
+    void onPaymentResult(Long orderId);
+}
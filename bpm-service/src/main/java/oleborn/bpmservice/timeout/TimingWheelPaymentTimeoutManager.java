@@ -0,0 +1,383 @@
+package oleborn.bpmservice.timeout;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.history.HistoricActivityInstance;
+import org.camunda.bpm.engine.runtime.MessageCorrelationResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймауты оплаты на иерархическом колесе таймеров в памяти.
+ * <p>
+ * В режиме Camunda каждая сага создаёт timer job, который job executor должен опросить,
+ * заблокировать и — почти всегда — удалить при успешной оплате. При миллионах саг
+ * в работе таблица ACT_RU_JOB становится узким местом. Здесь процесс
+ * {@code create-order-saga-external-timeout} не содержит таймера, а отсчёт ведётся
+ * в {@link HierarchicalTimingWheel}:
+ * <ul>
+ *   <li>постановка и снятие таймаута — O(1) в памяти, без обращений к БД;</li>
+ *   <li>раз в {@code checkpoint-interval} изменения за интервал пакетно пишутся
+ *       в {@code saga_payment_timeout} ({@link PaymentTimeoutCheckpointStore});</li>
+ *   <li>сработавший таймаут коррелирует {@code paymentFailed} по business key.
+ *       Если оплата уже пришла, подходящего экземпляра нет и корреляция ничего не делает —
+ *       наружу уходят только настоящие таймауты.</li>
+ * </ul>
+ * Отсчёт начинается не при старте саги, а когда экземпляр дошёл до gateway
+ * {@value #PAYMENT_GATEWAY_ID} и транзакция закоммичена ({@link PaymentAwaitListener}).
+ * Иначе при отставании job executor'а таймаут срабатывал бы до появления подписки
+ * {@code paymentFailed}, считался бы устаревшим и сага ждала бы оплату вечно.
+ * <p>
+ * <b>Восстановление после рестарта:</b> загружаем контрольную точку, затем добираем саги,
+ * вошедшие в gateway после неё (из истории движка: незавершённые экземпляры активности
+ * {@value #PAYMENT_GATEWAY_ID}, {@code startedAfter}), со сроком {@code startTime + duration}.
+ * Саги, ещё не дошедшие до gateway, поставит listener, когда их job выполнится.
+ * Требуется history-level не ниже {@code activity}. Просроченные за время простоя таймауты
+ * срабатывают сразу.
+ * <p>
+ * <b>Один узел:</b> снимок и догон по истории общие на кластер, поэтому колесо держит только
+ * владелец аренды в {@code saga_payment_timeout_checkpoint}. Узел без аренды при старте ждёт её
+ * истечения ({@code lease}) и не поднимается, если она так и не освободилась: второй экземпляр
+ * bpm-service в режиме {@code wheel} должен получить {@code app.saga.timeout.mode=camunda}.
+ * <p>
+ * Память: ~120 байт на ожидающий таймаут (запись колеса + узел индекса + Long),
+ * т.е. порядка 120 МБ на миллион саг в ожидании оплаты (см. PaymentTimeoutWheelBenchmark).
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.saga.timeout.mode", havingValue = "wheel")
+public class TimingWheelPaymentTimeoutManager implements PaymentTimeoutManager {
+
+    public static final String PROCESS_KEY = "create-order-saga-external-timeout";
+
+    static final String PAYMENT_GATEWAY_ID = "Gateway_05jdm5o";
+
+    private static final String TIMEOUT_REASON = "Payment timeout";
+
+    private final RuntimeService runtimeService;
+    private final HistoryService historyService;
+    private final PaymentTimeoutCheckpointStore checkpointStore;
+
+    private final Duration timeout;
+    private final Duration tick;
+    private final Duration checkpointInterval;
+    private final Duration fireRetryDelay;
+    private final int fireThreads;
+    private final Duration lease;
+    private final String owner;
+
+    private final HierarchicalTimingWheel wheel;
+
+    // Изменения с момента последней контрольной точки; защищены монитором this
+    private final CheckpointChanges changes = new CheckpointChanges();
+
+    private final Counter firedCounter;
+    private final Counter staleCounter;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService fireExecutor;
+
+    public TimingWheelPaymentTimeoutManager(
+            RuntimeService runtimeService,
+            HistoryService historyService,
+            PaymentTimeoutCheckpointStore checkpointStore,
+            MeterRegistry meterRegistry,
+            @Value("${app.saga.timeout.duration:PT30S}") Duration timeout,
+            @Value("${app.saga.timeout.wheel.tick:100ms}") Duration tick,
+            @Value("${app.saga.timeout.wheel.wheel-size:512}") int wheelSize,
+            @Value("${app.saga.timeout.wheel.levels:4}") int levels,
+            @Value("${app.saga.timeout.wheel.checkpoint-interval:5s}") Duration checkpointInterval,
+            @Value("${app.saga.timeout.wheel.fire-threads:4}") int fireThreads,
+            @Value("${app.saga.timeout.wheel.fire-retry-delay:5s}") Duration fireRetryDelay,
+            @Value("${app.saga.timeout.wheel.lease:30s}") Duration lease
+    ) {
+        this.runtimeService = runtimeService;
+        this.historyService = historyService;
+        this.checkpointStore = checkpointStore;
+        this.timeout = timeout;
+        this.tick = tick;
+        this.checkpointInterval = checkpointInterval;
+        this.fireRetryDelay = fireRetryDelay;
+        this.fireThreads = fireThreads;
+        this.lease = lease;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+        this.wheel = new HierarchicalTimingWheel(tick.toMillis(), wheelSize, levels, System.currentTimeMillis());
+
+        Gauge.builder("saga.payment.timeout.pending", this, TimingWheelPaymentTimeoutManager::pending)
+                .description("Таймауты оплаты, ожидающие в колесе")
+                .register(meterRegistry);
+        this.firedCounter = Counter.builder("saga.payment.timeout.fired")
+                .description("Сработавшие таймауты, по которым коррелирован paymentFailed")
+                .register(meterRegistry);
+        this.staleCounter = Counter.builder("saga.payment.timeout.stale")
+                .description("Сработавшие таймауты без ожидающей саги (оплата успела раньше)")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws InterruptedException {
+        acquireLease();
+        recover();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("payment-timeout-wheel").daemon().factory());
+        fireExecutor = Executors.newFixedThreadPool(fireThreads,
+                Thread.ofPlatform().name("payment-timeout-fire-", 0).daemon().factory());
+
+        scheduler.scheduleAtFixedRate(this::advance,
+                tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::checkpoint,
+                checkpointInterval.toMillis(), checkpointInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+        log.info("Таймауты оплаты на колесе таймеров: ожидает {}, тик {}, контрольная точка каждые {}",
+                pending(), tick, checkpointInterval);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        fireExecutor.shutdown();
+        fireExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        // Финальная контрольная точка, чтобы после рестарта не добирать саги из истории
+        checkpoint();
+        checkpointStore.releaseLease(owner);
+    }
+
+    @Override
+    public String processKey() {
+        return PROCESS_KEY;
+    }
+
+    @Override
+    public void onPaymentAwaited(Long orderId) {
+        scheduleAt(orderId, System.currentTimeMillis() + timeout.toMillis());
+    }
+
+    @Override
+    public void onPaymentResult(Long orderId) {
+        synchronized (this) {
+            if (wheel.cancel(orderId)) {
+                changes.removed(orderId);
+            }
+        }
+    }
+
+    private void scheduleAt(long orderId, long deadlineMillis) {
+        boolean scheduled;
+        synchronized (this) {
+            boolean replaced = wheel.contains(orderId);
+            scheduled = wheel.schedule(orderId, deadlineMillis);
+            if (scheduled) {
+                changes.scheduled(orderId, replaced);
+            } else if (replaced) {
+                changes.removed(orderId);
+            }
+        }
+        if (!scheduled) {
+            // Срок уже прошёл (восстановление после долгого простоя)
+            fireExecutor.execute(() -> fire(orderId));
+        }
+    }
+
+    private void advance() {
+        try {
+            List<Long> expired = new ArrayList<>();
+            synchronized (this) {
+                wheel.advanceTo(System.currentTimeMillis(), expired::add);
+                expired.forEach(changes::removed);
+            }
+            for (Long orderId : expired) {
+                fireExecutor.execute(() -> fire(orderId));
+            }
+        } catch (Exception e) {
+            // Исключение в scheduleAtFixedRate молча отменило бы все следующие тики
+            log.error("Ошибка продвижения колеса таймаутов", e);
+        }
+    }
+
+    private void fire(long orderId) {
+        try {
+            List<MessageCorrelationResult> results = runtimeService.createMessageCorrelation("paymentFailed")
+                    .processInstanceBusinessKey(String.valueOf(orderId))
+                    .setVariable("failureReason", TIMEOUT_REASON)
+                    .correlateAllWithResult();
+
+            if (results.isEmpty()) {
+                staleCounter.increment();
+                log.debug("Таймаут оплаты заказа {}: сага уже не ждёт оплату", orderId);
+            } else {
+                firedCounter.increment();
+                log.info("Таймаут оплаты заказа {}: коррелирован paymentFailed", orderId);
+            }
+
+        } catch (Exception e) {
+            log.warn("Не удалось коррелировать таймаут оплаты заказа {}, повтор через {}",
+                    orderId, fireRetryDelay, e);
+            if (!fireExecutor.isShutdown()) {
+                scheduleAt(orderId, System.currentTimeMillis() + fireRetryDelay.toMillis());
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает изменения за интервал в БД. Таймауты, поставленные и снятые
+     * внутри интервала, взаимно уничтожаются в {@link CheckpointChanges} и не пишутся.
+     */
+    private void checkpoint() {
+        CheckpointChanges.Snapshot snapshot = null;
+        Map<Long, Long> added = null;
+        Instant checkpointAt = null;
+
+        synchronized (this) {
+            if (!changes.isEmpty()) {
+                checkpointAt = Instant.now();
+                snapshot = changes.drain();
+                added = new HashMap<>(snapshot.added().size());
+                for (Long orderId : snapshot.added()) {
+                    added.put(orderId, wheel.deadlineOf(orderId));
+                }
+            }
+        }
+        if (snapshot == null) {
+            // Изменений нет, но аренду продлеваем — иначе её перехватил бы другой узел
+            renewLease();
+            return;
+        }
+
+        try {
+            checkpointStore.apply(added, snapshot.removed(), checkpointAt, owner, lease);
+            log.debug("Контрольная точка таймаутов: +{} / -{}", added.size(), snapshot.removed().size());
+
+        } catch (Exception e) {
+            log.error("Не удалось записать контрольную точку таймаутов, повтор в следующем интервале", e);
+            synchronized (this) {
+                changes.restore(snapshot, wheel::contains);
+            }
+        }
+    }
+
+    /**
+     * Ждёт аренду не дольше её срока (плюс интервал): аренда упавшего узла к этому моменту истекла,
+     * а занятая дольше — значит, колесо держит другой живой узел.
+     */
+    private void acquireLease() throws InterruptedException {
+        long deadline = System.nanoTime() + lease.plus(checkpointInterval).toNanos();
+        while (!checkpointStore.acquireLease(owner, lease)) {
+            if (System.nanoTime() >= deadline) {
+                throw new IllegalStateException("Payment timeout wheel is held by another node, "
+                        + "only one bpm-service instance may run with app.saga.timeout.mode=wheel");
+            }
+            log.info("Колесо таймаутов оплаты занято другим узлом, ожидание аренды");
+            TimeUnit.MILLISECONDS.sleep(checkpointInterval.toMillis());
+        }
+        log.info("Аренда колеса таймаутов оплаты получена: {}", owner);
+    }
+
+    private void renewLease() {
+        try {
+            if (!checkpointStore.acquireLease(owner, lease)) {
+                log.error("Аренду колеса таймаутов оплаты перехватил другой узел: контрольные точки этого узла не пишутся");
+            }
+        } catch (Exception e) {
+            log.error("Не удалось продлить аренду колеса таймаутов", e);
+        }
+    }
+
+    private void recover() {
+        Instant lastCheckpointAt = checkpointStore.lastCheckpointAt();
+        List<long[]> restored = new ArrayList<>();
+        checkpointStore.loadAll((orderId, deadlineMillis) -> restored.add(new long[]{orderId, deadlineMillis}));
+
+        // Саги, вошедшие в gateway после контрольной точки, в снимок не попали — берём их из истории движка
+        List<HistoricActivityInstance> awaitingSinceCheckpoint = historyService.createHistoricActivityInstanceQuery()
+                .activityId(PAYMENT_GATEWAY_ID)
+                .unfinished()
+                .startedAfter(Date.from(lastCheckpointAt.minus(tick)))
+                .list();
+
+        Map<String, String> businessKeys = businessKeysOf(awaitingSinceCheckpoint);
+
+        for (long[] timeout : restored) {
+            scheduleRecovered(timeout[0], timeout[1], true);
+        }
+
+        int fromHistory = 0;
+        for (HistoricActivityInstance gateway : awaitingSinceCheckpoint) {
+            String businessKey = businessKeys.get(gateway.getProcessInstanceId());
+            if (businessKey == null) {
+                continue;
+            }
+            long orderId = Long.parseLong(businessKey);
+            boolean known;
+            synchronized (this) {
+                known = wheel.contains(orderId);
+            }
+            if (!known) {
+                scheduleRecovered(orderId, gateway.getStartTime().getTime() + timeout.toMillis(), false);
+                fromHistory++;
+            }
+        }
+
+        log.info("Восстановлено таймаутов оплаты: {} из контрольной точки, {} из истории движка",
+                restored.size(), fromHistory);
+    }
+
+    private Map<String, String> businessKeysOf(List<HistoricActivityInstance> activities) {
+        Map<String, String> businessKeys = new HashMap<>();
+        if (activities.isEmpty()) {
+            return businessKeys;
+        }
+        Set<String> processInstanceIds = new HashSet<>();
+        activities.forEach(activity -> processInstanceIds.add(activity.getProcessInstanceId()));
+
+        historyService.createHistoricProcessInstanceQuery()
+                .processDefinitionKey(PROCESS_KEY)
+                .processInstanceIds(processInstanceIds)
+                .list()
+                .forEach(instance -> businessKeys.put(instance.getId(), instance.getBusinessKey()));
+        return businessKeys;
+    }
+
+    /**
+     * Просроченные за время простоя таймауты ставятся на ближайший тик —
+     * исполнителей ещё нет, поэтому сразу коррелировать нельзя.
+     *
+     * @param persisted таймаут уже лежит в БД и повторно писать его не нужно
+     */
+    private void scheduleRecovered(long orderId, long deadlineMillis, boolean persisted) {
+        synchronized (this) {
+            if (!wheel.schedule(orderId, deadlineMillis)) {
+                wheel.schedule(orderId, System.currentTimeMillis() + tick.toMillis());
+            }
+            changes.recovered(orderId, persisted);
+        }
+    }
+
+    private synchronized int pending() {
+        return wheel.size();
+    }
+}
@@ -0,0 +1,11 @@
+CREATE TABLE saga_payment_timeout(
+    order_id BIGINT PRIMARY KEY,
+    deadline_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE saga_payment_timeout_checkpoint(
+    id SMALLINT PRIMARY KEY,
+    checkpointed_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+INSERT INTO saga_payment_timeout_checkpoint(id, checkpointed_at) VALUES (1, TIMESTAMP WITH TIME ZONE '1970-01-01 00:00:00+00');
@@ -0,0 +1,3 @@
+ALTER TABLE saga_payment_timeout_checkpoint
+    ADD COLUMN owner VARCHAR(255),
+    ADD COLUMN lease_until TIMESTAMP WITH TIME ZONE;
@@ -0,0 +1,91 @@
+package oleborn.bpmservice.benchmark;
+
+import oleborn.bpmservice.timeout.HierarchicalTimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Память и пропускная способность {@link HierarchicalTimingWheel} на профиле саг:
+ * N таймаутов по 30 с, большая часть снимается (оплата пришла), остальные срабатывают.
+ * <p>
+ * Время симулируется, поэтому замер не зависит от реальных часов. Сравнение с таймерами
+ * Camunda — сквозным {@link SagaThroughputBenchmark} с {@code -Dapp.saga.timeout.mode=camunda|wheel}.
+ * Запуск только явный:
+ * <pre>
+ * mvn -pl bpm-service test -Dtest=PaymentTimeoutWheelBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dwheel.benchmark.count=1000000 -Dwheel.benchmark.completed-ratio=0.95
+ * </pre>
+ */
+class PaymentTimeoutWheelBenchmark {
+
+    private static final int COUNT = Integer.getInteger("wheel.benchmark.count", 1_000_000);
+    private static final double COMPLETED_RATIO =
+            Double.parseDouble(System.getProperty("wheel.benchmark.completed-ratio", "0.95"));
+
+    private static final long TICK_MILLIS = 100;
+    private static final long TIMEOUT_MILLIS = 30_000;
+    // Старты саг равномерно размазаны по этому окну
+    private static final long ARRIVAL_WINDOW_MILLIS = 60_000;
+
+    @Test
+    void scheduleCancelAndExpire() {
+        long start = 0;
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK_MILLIS, 512, 4, start);
+
+        long heapBefore = usedHeap();
+
+        long scheduleStart = System.nanoTime();
+        for (int orderId = 0; orderId < COUNT; orderId++) {
+            long startedAt = start + (long) orderId * ARRIVAL_WINDOW_MILLIS / COUNT;
+            wheel.schedule(orderId, startedAt + TIMEOUT_MILLIS + 1);
+        }
+        long scheduleNanos = System.nanoTime() - scheduleStart;
+
+        long heapAfter = usedHeap();
+
+        int cancelled = 0;
+        long cancelStart = System.nanoTime();
+        for (int orderId = 0; orderId < COUNT; orderId++) {
+            if ((orderId % 1000) < COMPLETED_RATIO * 1000) {
+                wheel.cancel(orderId);
+                cancelled++;
+            }
+        }
+        long cancelNanos = System.nanoTime() - cancelStart;
+
+        AtomicLong fired = new AtomicLong();
+        long advanceStart = System.nanoTime();
+        wheel.advanceTo(start + ARRIVAL_WINDOW_MILLIS + TIMEOUT_MILLIS + TICK_MILLIS * 2, orderId -> fired.incrementAndGet());
+        long advanceNanos = System.nanoTime() - advanceStart;
+
+        System.out.printf("""
+
+                === Timing wheel: %,d timeouts, %.0f%% cancelled ===
+                memory:   %,d bytes total, %.1f bytes/timeout
+                schedule: %,.0f ops/sec
+                cancel:   %,.0f ops/sec
+                expire:   %,d fired in %.1f ms (%,.0f ops/sec incl. cascades and %,d ticks)
+
+                """,
+                COUNT, COMPLETED_RATIO * 100,
+                heapAfter - heapBefore, (double) (heapAfter - heapBefore) / COUNT,
+                COUNT / (scheduleNanos / 1e9),
+                cancelled / (cancelNanos / 1e9),
+                fired.get(), advanceNanos / 1e6, fired.get() / (advanceNanos / 1e9),
+                (ARRIVAL_WINDOW_MILLIS + TIMEOUT_MILLIS) / TICK_MILLIS);
+
+        assertThat(fired.get()).isEqualTo(COUNT - cancelled);
+        assertThat(wheel.size()).isZero();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
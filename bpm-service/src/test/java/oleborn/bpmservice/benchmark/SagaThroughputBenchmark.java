@@ -0,0 +1,185 @@
+package oleborn.bpmservice.benchmark;
+
+import oleborn.bpmservice.domain.comand.ProcessPaymentCommand;
+import oleborn.bpmservice.domain.comand.UpdateOrderStatusCommand;
+import oleborn.bpmservice.domain.event.OrderCreatedEvent;
+import oleborn.bpmservice.domain.event.PaymentCompletedEvent;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сквозной замер пропускной способности саги: OrderCreatedEvent → processPayment (job) →
+ * PaymentCompletedEvent → корреляция сообщения → updateOrderStatus (job) → конец процесса.
+ * <p>
+ * Postgres заменён на H2, Kafka — на встроенный брокер; payment-service и order-service
+ * эмулируются слушателями из {@link Stubs}. Это не функциональный тест: имя класса не
+ * попадает под шаблоны surefire, поэтому запуск только явный:
+ * <pre>
+ * mvn -pl bpm-service test -Dtest=SagaThroughputBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dsaga.benchmark.count=1000 -Dsaga.benchmark.profiles=high-throughput
+ * </pre>
+ * Для сравнения с настройками по умолчанию — {@code -Dsaga.benchmark.profiles=default},
+ * таймеров Camunda с колесом таймаутов — {@code -Dapp.saga.timeout.mode=camunda|wheel}.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:saga-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "camunda.bpm.admin-user.id=benchmark",
+                "camunda.bpm.admin-user.password=benchmark",
+                "management.tracing.enabled=false",
+                "logging.level.root=WARN",
+                "logging.level.oleborn.bpmservice=WARN",
+                "logging.level.org.hibernate.SQL=WARN"
+        }
+)
+@EmbeddedKafka(
+        partitions = 3,
+        topics = {"order.outbox", "payment-events", "payment-commands", "order-commands"},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers"
+)
+@ActiveProfiles(resolver = SagaThroughputBenchmark.BenchmarkProfiles.class)
+class SagaThroughputBenchmark {
+
+    private static final int SAGA_COUNT = Integer.getInteger("saga.benchmark.count", 500);
+
+    // Все саги прогона должны дойти до UpdateOrderStatusCommand
+    static final CountDownLatch COMPLETED = new CountDownLatch(SAGA_COUNT);
+    static final Set<Long> COMPLETED_ORDERS = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private KafkaTemplate<String, Object> benchmarkKafkaTemplate;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Value("${app.topic.order-create-topic}")
+    private String orderCreateTopic;
+
+    @Value("${app.saga.timeout.mode}")
+    private String timeoutMode;
+
+    @Test
+    void sagasPerSecond() throws InterruptedException {
+
+        long start = System.nanoTime();
+
+        for (long orderId = 1; orderId <= SAGA_COUNT; orderId++) {
+            benchmarkKafkaTemplate.send(orderCreateTopic, String.valueOf(orderId),
+                    OrderCreatedEvent.of(orderId, Map.of()));
+        }
+        benchmarkKafkaTemplate.flush();
+
+        boolean finished = COMPLETED.await(5, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - start;
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf("%n=== Saga throughput: profiles=%s, timeout mode=%s, sagas=%d, completed=%d, time=%.2f s, %.1f sagas/sec ===%n%n",
+                String.join(",", new BenchmarkProfiles().resolve(SagaThroughputBenchmark.class)), timeoutMode,
+                SAGA_COUNT, COMPLETED_ORDERS.size(), seconds, COMPLETED_ORDERS.size() / seconds);
+
+        assertThat(finished).as("все саги завершились за отведённое время").isTrue();
+
+        // Команда уходит в Kafka до коммита последнего job'а — даём транзакциям завершиться
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (runtimeService.createProcessInstanceQuery().count() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertThat(runtimeService.createProcessInstanceQuery().count()).isZero();
+        assertThat(historyService.createHistoricProcessInstanceQuery().finished().count())
+                .isEqualTo(SAGA_COUNT);
+    }
+
+    /**
+     * Профили берутся из {@code -Dsaga.benchmark.profiles}, по умолчанию — high-throughput.
+     */
+    static class BenchmarkProfiles implements ActiveProfilesResolver {
+
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            return System.getProperty("saga.benchmark.profiles", "high-throughput").split(",");
+        }
+    }
+
+    @TestConfiguration
+    static class Stubs {
+
+        @Value("${spring.kafka.bootstrap-servers}")
+        private String bootstrapServers;
+
+        @Value("${app.topic.payment-events}")
+        private String paymentEventsTopic;
+
+        /**
+         * Продюсер с теми же type-id, что отправляют order-service и payment-service.
+         */
+        @Bean
+        KafkaTemplate<String, Object> benchmarkKafkaTemplate() {
+            Map<String, Object> props = new HashMap<>();
+            props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+            props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+            props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+            props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+            props.put(JsonSerializer.TYPE_MAPPINGS,
+                    """
+                    OrderCreatedEvent:oleborn.bpmservice.domain.event.OrderCreatedEvent,
+                    paymentCompletedEvent:oleborn.bpmservice.domain.event.PaymentCompletedEvent
+                    """);
+            return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props));
+        }
+
+        /**
+         * Эмуляция payment-service: на каждую команду оплаты сразу отвечает успехом.
+         */
+        @KafkaListener(topics = "${app.topic.payment-commands}", groupId = "benchmark-payment-stub")
+        void onPaymentCommand(ProcessPaymentCommand command, Acknowledgment acknowledgment) {
+            benchmarkKafkaTemplate().send(paymentEventsTopic, String.valueOf(command.orderId()),
+                    new PaymentCompletedEvent(command.orderId(), UUID.randomUUID().toString(), "COMPLETED"));
+            acknowledgment.acknowledge();
+        }
+
+        /**
+         * Эмуляция order-service: финальная команда саги засчитывается как завершение.
+         */
+        @KafkaListener(topics = "${app.topic.order-commands}", groupId = "benchmark-order-stub")
+        void onOrderCommand(UpdateOrderStatusCommand command, Acknowledgment acknowledgment) {
+            if (COMPLETED_ORDERS.add(command.orderId())) {
+                COMPLETED.countDown();
+            }
+            acknowledgment.acknowledge();
+        }
+    }
+}
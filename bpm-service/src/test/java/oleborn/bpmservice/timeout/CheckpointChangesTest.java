@@ -0,0 +1,110 @@
+package oleborn.bpmservice.timeout;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link CheckpointChanges}: какие строки {@code saga_payment_timeout} контрольная точка
+ * вставит и удалит. Главное — записанная строка не должна остаться без DELETE.
+ */
+class CheckpointChangesTest {
+
+    private static final long ORDER = 42;
+
+    private final CheckpointChanges changes = new CheckpointChanges();
+
+    @Test
+    void forgetsTimeoutScheduledAndRemovedWithinInterval() {
+        changes.scheduled(ORDER, false);
+        changes.removed(ORDER);
+
+        assertThat(changes.isEmpty()).isTrue();
+    }
+
+    @Test
+    void deletesPersistedTimeoutRetriedAfterFailedFireOnceRetryExpires() {
+        persisted();
+
+        // Сработал, корреляция упала — перепланирован на повтор, повтор тоже истёк
+        changes.removed(ORDER);
+        changes.scheduled(ORDER, false);
+        CheckpointChanges.Snapshot retried = changes.drain();
+        assertThat(retried.removed()).containsExactly(ORDER);
+        assertThat(retried.added()).containsExactly(ORDER);
+
+        changes.removed(ORDER);
+        assertThat(changes.drain().removed()).containsExactly(ORDER);
+    }
+
+    @Test
+    void deletesPersistedTimeoutRetriedAndExpiredWithinInterval() {
+        persisted();
+
+        changes.removed(ORDER);
+        changes.scheduled(ORDER, false);
+        changes.removed(ORDER);
+
+        CheckpointChanges.Snapshot snapshot = changes.drain();
+        assertThat(snapshot.added()).isEmpty();
+        assertThat(snapshot.removed()).containsExactly(ORDER);
+    }
+
+    @Test
+    void deletesPersistedTimeoutRescheduledAndCancelledWithinInterval() {
+        persisted();
+
+        changes.scheduled(ORDER, true);
+        changes.removed(ORDER);
+
+        CheckpointChanges.Snapshot snapshot = changes.drain();
+        assertThat(snapshot.added()).isEmpty();
+        assertThat(snapshot.removed()).containsExactly(ORDER);
+    }
+
+    @Test
+    void rewritesPersistedTimeoutRescheduledOverItself() {
+        persisted();
+
+        changes.scheduled(ORDER, true);
+
+        CheckpointChanges.Snapshot snapshot = changes.drain();
+        assertThat(snapshot.removed()).containsExactly(ORDER);
+        assertThat(snapshot.added()).containsExactly(ORDER);
+    }
+
+    @Test
+    void writesOnlyNotPersistedRecoveredTimeouts() {
+        changes.recovered(1, true);
+        changes.recovered(2, false);
+
+        CheckpointChanges.Snapshot snapshot = changes.drain();
+        assertThat(snapshot.added()).containsExactly(2L);
+        assertThat(snapshot.removed()).isEmpty();
+
+        changes.removed(1);
+        assertThat(changes.drain().removed()).containsExactly(1L);
+    }
+
+    @Test
+    void restoresFailedCheckpointKeepingEveryDelete() {
+        changes.scheduled(1, false);
+        changes.scheduled(2, false);
+        changes.removed(3);
+        CheckpointChanges.Snapshot failed = changes.drain();
+
+        // Пока запись падала, таймаут 2 сработал
+        changes.removed(2);
+        changes.restore(failed, orderId -> orderId == 1);
+
+        CheckpointChanges.Snapshot retry = changes.drain();
+        assertThat(retry.added()).containsExactly(1L);
+        assertThat(retry.removed()).containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    // Таймаут записан предыдущей контрольной точкой
+    private void persisted() {
+        changes.scheduled(ORDER, false);
+        changes.drain();
+    }
+}
@@ -0,0 +1,187 @@
+package oleborn.bpmservice.timeout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link HierarchicalTimingWheel} на маленьком колесе: тик 10 мс, 4 корзины, 3 уровня —
+ * корзины уровней шириной 1, 4 и 16 тиков, без повторного осыпания покрывается 64 тика.
+ * Время задаётся явно, поэтому каждое срабатывание проверяется с точностью до тика.
+ */
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 10;
+
+    private final HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, 4, 3, 0);
+    private final List<Long> fired = new ArrayList<>();
+
+    @Test
+    void firesAtDeadlineTickInDeadlineOrder() {
+        wheel.schedule(1, 35);
+        wheel.schedule(2, 20);
+        wheel.schedule(3, 21);
+
+        assertThat(advanceTo(19)).isEmpty();
+        assertThat(advanceTo(20)).containsExactly(2L);
+        // Срок округляется вверх до тика: 21 и 35 мс — тики 3 и 4
+        assertThat(advanceTo(39)).containsExactly(3L);
+        assertThat(advanceTo(40)).containsExactly(1L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void roundsDeadlineUpToTick() {
+        wheel.schedule(1, 101);
+
+        assertThat(wheel.deadlineOf(1)).isEqualTo(110);
+        assertThat(advanceTo(109)).isEmpty();
+        assertThat(advanceTo(110)).containsExactly(1L);
+        assertThat(wheel.deadlineOf(1)).isEqualTo(-1);
+    }
+
+    @Test
+    void firesExactlyOnCascadeBoundaries() {
+        // Границы корзин уровней 1 и 2 и последний тик без повторного осыпания
+        long[] deadlineTicks = {3, 4, 5, 15, 16, 17, 47, 48, 63, 64, 65};
+        for (long tick : deadlineTicks) {
+            wheel.schedule(tick, tick * TICK);
+        }
+
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = 1; now <= 70; now++) {
+            long tick = now;
+            wheel.advanceTo(now * TICK, orderId -> firedAt.put(orderId, tick));
+        }
+
+        for (long tick : deadlineTicks) {
+            assertThat(firedAt).containsEntry(tick, tick);
+        }
+    }
+
+    @Test
+    void firesDeadlinesBeyondTopLevelAcrossSeveralTurnsInOneAdvance() {
+        // 64 тика — полный оборот верхнего уровня; сроки на 1–5 оборотов вперёд
+        long[] deadlineTicks = {300, 64, 129, 200, 65, 257};
+        for (long tick : deadlineTicks) {
+            wheel.schedule(tick, tick * TICK);
+        }
+
+        assertThat(advanceTo(63 * TICK)).isEmpty();
+        assertThat(advanceTo(300 * TICK)).containsExactly(64L, 65L, 129L, 200L, 257L, 300L);
+    }
+
+    @Test
+    void cancelledTimeoutNeverFiresEvenAfterCascade() {
+        wheel.schedule(1, 20 * TICK);
+        wheel.schedule(2, 20 * TICK);
+
+        // На 16-м тике корзина уровня 2 осыпалась, записи уже на уровне 0
+        assertThat(advanceTo(17 * TICK)).isEmpty();
+        assertThat(wheel.cancel(1)).isTrue();
+        assertThat(wheel.cancel(1)).isFalse();
+
+        assertThat(advanceTo(30 * TICK)).containsExactly(2L);
+        assertThat(wheel.contains(1)).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelOfUnknownOrderIsSafe() {
+        assertThat(wheel.cancel(7)).isFalse();
+        wheel.schedule(1, 50);
+        assertThat(wheel.cancel(7)).isFalse();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rescheduleReplacesExistingTimeout() {
+        wheel.schedule(1, 50 * TICK);
+        wheel.schedule(1, 20 * TICK);
+        wheel.schedule(2, 20 * TICK);
+        wheel.schedule(2, 40 * TICK);
+
+        assertThat(wheel.size()).isEqualTo(2);
+        assertThat(advanceTo(20 * TICK)).containsExactly(1L);
+        assertThat(advanceTo(39 * TICK)).isEmpty();
+        assertThat(advanceTo(100 * TICK)).containsExactly(2L);
+    }
+
+    @Test
+    void rescheduleAfterCascadeMovesEntryOutOfLowerLevel() {
+        wheel.schedule(1, 18 * TICK);
+        assertThat(advanceTo(16 * TICK)).isEmpty();
+
+        wheel.schedule(1, 40 * TICK);
+
+        assertThat(advanceTo(39 * TICK)).isEmpty();
+        assertThat(advanceTo(40 * TICK)).containsExactly(1L);
+    }
+
+    @Test
+    void rejectsDeadlineAlreadyPassed() {
+        advanceTo(100);
+
+        assertThat(wheel.schedule(1, 100)).isFalse();
+        assertThat(wheel.schedule(2, 95)).isFalse();
+        assertThat(wheel.schedule(3, 101)).isTrue();
+        assertThat(wheel.contains(1)).isFalse();
+        assertThat(wheel.contains(2)).isFalse();
+    }
+
+    @Test
+    void rescheduleIntoPastCancelsPendingTimeout() {
+        wheel.schedule(1, 50 * TICK);
+        advanceTo(10 * TICK);
+
+        assertThat(wheel.schedule(1, 5 * TICK)).isFalse();
+
+        assertThat(wheel.contains(1)).isFalse();
+        assertThat(advanceTo(60 * TICK)).isEmpty();
+    }
+
+    @Test
+    void matchesReferenceOnRandomSchedule() {
+        Random random = new Random(42);
+        Map<Long, Long> pending = new HashMap<>();
+        long now = 0;
+
+        for (int step = 0; step < 2_000; step++) {
+            long orderId = random.nextInt(200);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    long deadlineTick = now / TICK + 1 + random.nextInt(300);
+                    wheel.schedule(orderId, deadlineTick * TICK);
+                    pending.put(orderId, deadlineTick);
+                }
+                case 2 -> assertThat(wheel.cancel(orderId)).isEqualTo(pending.remove(orderId) != null);
+                default -> {
+                    long to = now + random.nextInt(40) * TICK;
+                    List<Long> expected = pending.entrySet().stream()
+                            .filter(entry -> entry.getValue() <= to / TICK)
+                            .sorted(Map.Entry.comparingByValue())
+                            .map(Map.Entry::getKey)
+                            .toList();
+                    List<Long> actual = advanceTo(to);
+                    assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+                    assertThat(actual.stream().map(pending::get).toList()).isSorted();
+                    expected.forEach(pending::remove);
+                    now = to;
+                }
+            }
+            assertThat(wheel.size()).isEqualTo(pending.size());
+        }
+    }
+
+    private List<Long> advanceTo(long nowMillis) {
+        fired.clear();
+        wheel.advanceTo(nowMillis, fired::add);
+        return List.copyOf(fired);
+    }
+}
@@ -0,0 +1,23 @@
+package oleborn.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Сквозной нагрузочный прогон саги: поднимает встроенные Kafka, Postgres и Redis,
+ * запускает jar'ы сервисов отдельными JVM и подаёт заказы через {@code POST /orders}.
+ * <p>
+ * Сервисы должны быть собраны заранее:
+ * <pre>
+ * mvn -B package -DskipTests
+ * java -jar load-test/target/load-test-0.0.1-SNAPSHOT.jar --app.load-test.rate=200 --app.load-test.duration=2m
+ * </pre>
+ */
+@SpringBootApplication
+public class LoadTestApplication {
+
+    public static void main(String[] args) {
+        System.exit(SpringApplication.exit(SpringApplication.run(LoadTestApplication.class, args)));
+    }
+
+}
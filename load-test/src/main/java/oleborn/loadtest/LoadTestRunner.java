@@ -0,0 +1,106 @@
+package oleborn.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.loadtest.driver.OrderLoadDriver;
+import oleborn.loadtest.infra.EmbeddedInfrastructure;
+import oleborn.loadtest.infra.OutboxRelay;
+import oleborn.loadtest.infra.ServiceLauncher;
+import oleborn.loadtest.metrics.ConsumerLagMonitor;
+import oleborn.loadtest.metrics.SagaCompletionTracker;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Сценарий прогона: инфраструктура → сервисы → прогрев → замер → дренаж → отчёт.
+ * <p>
+ * Прогрев нужен, чтобы JIT, пулы соединений и ребалансы consumer-групп не попали в замер.
+ * После подачи прогон ждёт до {@code drain-timeout}, пока все принятые заказы дойдут до конца саги:
+ * пропускная способность считается по завершённым сагам, а не по принятым запросам.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LoadTestRunner implements CommandLineRunner {
+
+    private final EmbeddedInfrastructure infrastructure;
+    private final ServiceLauncher serviceLauncher;
+    private final OutboxRelay outboxRelay;
+    private final SagaCompletionTracker completionTracker;
+    private final ConsumerLagMonitor lagMonitor;
+    private final OrderLoadDriver driver;
+
+    @Value("${app.load-test.services}")
+    private List<String> services;
+
+    @Value("${app.load-test.rate:50}")
+    private double rate;
+
+    @Value("${app.load-test.warmup:30s}")
+    private Duration warmup;
+
+    @Value("${app.load-test.duration:1m}")
+    private Duration duration;
+
+    @Value("${app.load-test.drain-timeout:1m}")
+    private Duration drainTimeout;
+
+    @Override
+    public void run(String... args) throws Exception {
+        infrastructure.start();
+        serviceLauncher.startAll(services, infrastructure.serviceEnvironment());
+        outboxRelay.start();
+        completionTracker.start(infrastructure.bootstrapServers());
+        lagMonitor.start(infrastructure.bootstrapServers());
+
+        String orderService = "http://localhost:" + serviceLauncher.port("order-service");
+
+        log.info("Прогрев {}", warmup);
+        driver.run(orderService, warmup);
+
+        log.info("Замер {}", duration);
+        completionTracker.startMeasuring();
+        long measureStart = System.nanoTime();
+        OrderLoadDriver.PhaseResult result = driver.run(orderService, duration);
+
+        long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        while (completionTracker.inFlight() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(200);
+        }
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+
+        print(result, seconds);
+    }
+
+    private void print(OrderLoadDriver.PhaseResult result, double seconds) {
+        Histogram latency = completionTracker.latencyMicros();
+        StringBuilder lag = new StringBuilder();
+        lagMonitor.lags().forEach((key, value) ->
+                lag.append("  %-60s current %,8d   max %,8d%n".formatted(key, value.current(), value.max())));
+
+        System.out.printf("""
+
+                === Saga load test: %s, %.0f orders/sec target ===
+                orders:     %,d sent, %,d accepted, %,d failed, %,d skipped (max-in-flight)
+                offered:    %,.1f orders/sec
+                completed:  %,d sagas in %.1f s — %,.1f sagas/sec, %,d still in flight
+                latency ms: p50 %,.1f   p90 %,.1f   p99 %,.1f   p99.9 %,.1f   max %,.1f
+                consumer lag (messages):
+                %s
+                """,
+                String.join(", ", services), rate,
+                result.sent(), result.accepted(), result.failed(), result.skipped(),
+                result.offeredRate(),
+                completionTracker.completed(), seconds, completionTracker.completed() / seconds,
+                completionTracker.inFlight(),
+                latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(90) / 1e3,
+                latency.getValueAtPercentile(99) / 1e3, latency.getValueAtPercentile(99.9) / 1e3,
+                latency.getMaxValue() / 1e3,
+                lag);
+    }
+}
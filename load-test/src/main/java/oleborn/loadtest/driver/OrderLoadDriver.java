@@ -0,0 +1,155 @@
+package oleborn.loadtest.driver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.loadtest.metrics.SagaCompletionTracker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Подача заказов в {@code POST /orders} с постоянной частотой {@code rate}.
+ * <p>
+ * Модель открытая: момент отправки каждого заказа назначен заранее и не зависит от того,
+ * ответил ли сервис на предыдущие, а задержка саги считается от назначенного момента.
+ * Так замедление сервиса видно в задержках, а не прячется в снизившейся частоте подачи.
+ * Одновременных запросов не больше {@code max-in-flight}: если и их не хватает, заказ
+ * не отправляется и учитывается как пропущенный.
+ */
+@Component
+@Slf4j
+public class OrderLoadDriver {
+
+    private final SagaCompletionTracker completionTracker;
+    private final double rate;
+    private final int itemsPerOrder;
+    private final Duration requestTimeout;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public OrderLoadDriver(
+            SagaCompletionTracker completionTracker,
+            @Value("${app.load-test.rate:50}") double rate,
+            @Value("${app.load-test.items-per-order:2}") int itemsPerOrder,
+            @Value("${app.load-test.request-timeout:10s}") Duration requestTimeout,
+            @Value("${app.load-test.max-in-flight:1000}") int maxInFlight
+    ) {
+        this.completionTracker = completionTracker;
+        this.rate = rate;
+        this.itemsPerOrder = itemsPerOrder;
+        this.requestTimeout = requestTimeout;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Подаёт заказы в течение {@code duration} и ждёт ответов на все отправленные.
+     */
+    public PhaseResult run(String baseUrl, Duration duration) throws InterruptedException {
+        URI orders = URI.create(baseUrl + "/orders");
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long sent = 0;
+        long skipped = 0;
+
+        for (long scheduledAt = start; scheduledAt < end; scheduledAt += intervalNanos) {
+            long wait = scheduledAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                skipped++;
+                continue;
+            }
+            sent++;
+            send(orders, scheduledAt, accepted, failed);
+        }
+
+        // Все разрешения свободны — ответы на всё отправленное в фазе получены
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new PhaseResult(sent, accepted.get(), failed.get(), skipped, sent / seconds);
+    }
+
+    private void send(URI orders, long scheduledAt, AtomicLong accepted, AtomicLong failed) {
+        HttpRequest request = HttpRequest.newBuilder(orders)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofString(orderJson()))
+                .build();
+
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, ex) -> {
+                    try {
+                        if (ex == null && response.statusCode() / 100 == 2) {
+                            completionTracker.started(orderId(response.body()), scheduledAt);
+                            accepted.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                            log.debug("Заказ не принят: {}", ex != null ? ex.getMessage() : response.statusCode());
+                        }
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+    }
+
+    private long orderId(String body) throws IOException {
+        JsonNode id = objectMapper.readTree(body).path("id");
+        if (!id.canConvertToLong()) {
+            throw new IOException("No order id in response: " + body);
+        }
+        return id.asLong();
+    }
+
+    private String orderJson() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < itemsPerOrder; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            long productId = random.nextLong(1, 10_000);
+            json.append("{\"productId\":").append(productId)
+                    .append(",\"productName\":\"product-").append(productId)
+                    .append("\",\"quantity\":").append(random.nextInt(1, 5))
+                    .append(",\"price\":").append(random.nextInt(100, 100_000) / 100.0)
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * @param offeredRate фактическая частота отправки, заказов/с
+     */
+    public record PhaseResult(long sent, long accepted, long failed, long skipped, double offeredRate) {
+    }
+}
@@ -0,0 +1,117 @@
+package oleborn.loadtest.infra;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.stereotype.Component;
+import redis.embedded.RedisServer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Встроенная инфраструктура прогона вместо docker-compose: KRaft-брокер Kafka,
+ * Postgres 15 (настоящие бинарники, не эмуляция — нужны секционирование и plpgsql analytics)
+ * и Redis.
+ * <p>
+ * Как и в docker-compose, все сервисы работают в одной базе — каждый со своим changelog'ом Liquibase.
+ */
+@Component
+@Slf4j
+public class EmbeddedInfrastructure {
+
+    static final String DATABASE = "orderhub";
+    static final String USER = "postgres";
+
+    private final List<String> topics;
+    private final int partitions;
+    private final int maxConnections;
+
+    private EmbeddedPostgres postgres;
+    private EmbeddedKafkaKraftBroker kafka;
+    private RedisServer redis;
+    private int redisPort;
+
+    public EmbeddedInfrastructure(
+            @Value("${app.load-test.kafka.topics}") List<String> topics,
+            @Value("${app.load-test.kafka.partitions:3}") int partitions,
+            @Value("${app.load-test.postgres.max-connections:300}") int maxConnections
+    ) {
+        this.topics = topics;
+        this.partitions = partitions;
+        this.maxConnections = maxConnections;
+    }
+
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", String.valueOf(maxConnections))
+                .start();
+        new JdbcTemplate(postgres.getPostgresDatabase()).execute("CREATE DATABASE " + DATABASE);
+        log.info("Postgres запущен на порту {}", postgres.getPort());
+
+        kafka = new EmbeddedKafkaKraftBroker(1, partitions, topics.toArray(String[]::new));
+        kafka.afterPropertiesSet();
+        log.info("Kafka запущена: {}", kafka.getBrokersAsString());
+
+        redisPort = freePort();
+        redis = RedisServer.newRedisServer()
+                .port(redisPort)
+                .setting("maxmemory 256M")
+                .setting("save \"\"")
+                .build();
+        redis.start();
+        log.info("Redis запущен на порту {}", redisPort);
+    }
+
+    /**
+     * Переменные окружения, которые сервисы читают в своих {@code application.yaml}.
+     */
+    public Map<String, String> serviceEnvironment() {
+        Map<String, String> env = new LinkedHashMap<>();
+        env.put("POSTGRES_HOST", "localhost");
+        env.put("POSTGRES_PORT", String.valueOf(postgres.getPort()));
+        env.put("POSTGRES_DB", DATABASE);
+        env.put("POSTGRES_USER", USER);
+        env.put("POSTGRES_PASSWORD", "");
+        env.put("KAFKA_BOOTSTRAP_SERVERS", kafka.getBrokersAsString());
+        env.put("REDIS_HOST", "localhost");
+        env.put("REDIS_PORT", String.valueOf(redisPort));
+        env.put("CAMUNDA_ADMIN_ID", "load-test");
+        env.put("CAMUNDA_ADMIN_PASSWORD", "load-test");
+        return env;
+    }
+
+    public DataSource dataSource() {
+        return postgres.getDatabase(USER, DATABASE);
+    }
+
+    public String bootstrapServers() {
+        return kafka.getBrokersAsString();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (redis != null) {
+            redis.stop();
+        }
+        if (kafka != null) {
+            kafka.destroy();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
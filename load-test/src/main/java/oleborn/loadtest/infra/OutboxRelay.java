@@ -0,0 +1,112 @@
+package oleborn.loadtest.infra;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Замена Debezium на время прогона: Kafka Connect во встроенную инфраструктуру не входит,
+ * поэтому строки {@code outbox_event} забирает этот поток.
+ * <p>
+ * Сообщение повторяет то, что даёт EventRouter из {@code KafkaConnectService}: тело — payload,
+ * ключ — aggregateid в JSON, заголовки {@code __TypeId__} и {@code traceparent}.
+ * Строки забираются с {@code FOR UPDATE SKIP LOCKED} и сразу помечаются PUBLISHED;
+ * {@code OutboxStatusUpdater} order-service потом ставит тот же статус повторно — это безвредно.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String CLAIM = """
+            UPDATE outbox_event SET status = 'PUBLISHED'
+            WHERE id IN (
+                SELECT id FROM outbox_event
+                WHERE status = 'NEW'
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, aggregateid, eventtype, payload::text AS payload, traceparent
+            """;
+
+    private final EmbeddedInfrastructure infrastructure;
+    private final String topic;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public OutboxRelay(
+            EmbeddedInfrastructure infrastructure,
+            @Value("${app.load-test.outbox.topic:order.outbox}") String topic,
+            @Value("${app.load-test.outbox.batch-size:500}") int batchSize,
+            @Value("${app.load-test.outbox.poll-interval:20}") long pollIntervalMillis
+    ) {
+        this.infrastructure = infrastructure;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("outbox-relay").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join();
+        }
+    }
+
+    private void run() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(infrastructure.dataSource());
+        Map<String, Object> props = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, infrastructure.bootstrapServers(),
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.LINGER_MS_CONFIG, 5
+        );
+
+        try (KafkaProducer<String, String> producer =
+                     new KafkaProducer<>(props, new StringSerializer(), new StringSerializer())) {
+            while (running) {
+                List<ProducerRecord<String, String>> records;
+                try {
+                    records = jdbcTemplate.query(CLAIM, (rs, rowNum) -> {
+                        ProducerRecord<String, String> record = new ProducerRecord<>(
+                                topic, "\"" + rs.getString("aggregateid") + "\"", rs.getString("payload"));
+                        record.headers().add("__TypeId__", rs.getString("eventtype").getBytes(StandardCharsets.UTF_8));
+                        record.headers().add("traceparent", rs.getString("traceparent").getBytes(StandardCharsets.UTF_8));
+                        return record;
+                    }, batchSize);
+                } catch (RuntimeException e) {
+                    // Таблицы ещё нет — order-service не закончил миграции
+                    log.debug("Outbox недоступен: {}", e.getMessage());
+                    records = List.of();
+                }
+
+                records.forEach(producer::send);
+                producer.flush();
+
+                if (records.size() < batchSize) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package oleborn.loadtest.infra;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Запуск сервисов отдельными JVM из их собранных jar'ов.
+ * <p>
+ * Одна JVM на все сервисы не подходит: у них разные наборы зависимостей (Camunda, jOOQ,
+ * Liquibase-changelog'и по одному пути) и одинаковые имена бинов. Каждому сервису
+ * выдаётся свободный порт, лог пишется в {@code log-dir/<сервис>.log}; готовность —
+ * по {@code /actuator/health/readiness}.
+ */
+@Component
+@Slf4j
+// Сервисы останавливаются раньше инфраструктуры, на которой работают
+@DependsOn("embeddedInfrastructure")
+public class ServiceLauncher {
+
+    private final Path servicesDir;
+    private final Path logDir;
+    private final List<String> jvmArgs;
+    private final Duration startupTimeout;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final Map<String, Process> processes = new LinkedHashMap<>();
+    private final Map<String, Integer> ports = new LinkedHashMap<>();
+
+    public ServiceLauncher(
+            @Value("${app.load-test.services-dir:..}") Path servicesDir,
+            @Value("${app.load-test.log-dir:target/load-test}") Path logDir,
+            @Value("${app.load-test.jvm-args:-Xmx512m}") String jvmArgs,
+            @Value("${app.load-test.startup-timeout:3m}") Duration startupTimeout
+    ) {
+        this.servicesDir = servicesDir;
+        this.logDir = logDir;
+        this.jvmArgs = Arrays.asList(jvmArgs.trim().split("\\s+"));
+        this.startupTimeout = startupTimeout;
+    }
+
+    /**
+     * Запускает все сервисы параллельно и ждёт готовности каждого.
+     *
+     * @throws IllegalStateException jar не найден, процесс завершился или не стал готов за {@code startup-timeout}
+     */
+    public void startAll(List<String> services, Map<String, String> environment) throws IOException, InterruptedException {
+        Files.createDirectories(logDir);
+        for (String service : services) {
+            start(service, environment);
+        }
+        for (String service : services) {
+            awaitReady(service);
+        }
+    }
+
+    public int port(String service) {
+        return ports.get(service);
+    }
+
+    @PreDestroy
+    public void stopAll() throws InterruptedException {
+        processes.values().forEach(Process::destroy);
+        for (Map.Entry<String, Process> entry : processes.entrySet()) {
+            if (!entry.getValue().waitFor(30, TimeUnit.SECONDS)) {
+                log.warn("{} не остановился за 30 с, завершаем принудительно", entry.getKey());
+                entry.getValue().destroyForcibly();
+            }
+        }
+        processes.clear();
+    }
+
+    private void start(String service, Map<String, String> environment) throws IOException {
+        int port = freePort();
+        File logFile = logDir.resolve(service + ".log").toFile();
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(findJar(service).toString());
+        command.add("--server.port=" + port);
+        command.add("--spring.profiles.active=default");
+        command.add("--management.endpoint.health.probes.enabled=true");
+        // Kafka Connect во встроенной инфраструктуре нет — outbox забирает OutboxRelay
+        command.add("--debezium.connect.enabled=false");
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile);
+        builder.environment().putAll(environment);
+
+        processes.put(service, builder.start());
+        ports.put(service, port);
+        log.info("{} запускается на порту {}, лог: {}", service, port, logFile);
+    }
+
+    private void awaitReady(String service) throws InterruptedException {
+        Process process = processes.get(service);
+        URI readiness = URI.create("http://localhost:" + ports.get(service) + "/actuator/health/readiness");
+        long deadline = System.nanoTime() + startupTimeout.toNanos();
+
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("%s exited with code %d, see %s"
+                        .formatted(service, process.exitValue(), logDir.resolve(service + ".log")));
+            }
+            try {
+                HttpResponse<Void> response = httpClient.send(
+                        HttpRequest.newBuilder(readiness).timeout(Duration.ofSeconds(2)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    log.info("{} готов", service);
+                    return;
+                }
+            } catch (IOException e) {
+                // Порт ещё не открыт
+            }
+            Thread.sleep(1000);
+        }
+        throw new IllegalStateException(service + " is not ready after " + startupTimeout);
+    }
+
+    private Path findJar(String service) throws IOException {
+        Path target = servicesDir.resolve(service).resolve("target");
+        if (!Files.isDirectory(target)) {
+            throw new IllegalStateException("No " + target + ", build services first: mvn -B package -DskipTests");
+        }
+        try (Stream<Path> files = Files.list(target)) {
+            // У order-service исполняемый jar с классификатором exec, рядом лежит обычный
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(service))
+                    .filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .min(Comparator.comparing(file -> !file.getFileName().toString().endsWith("-exec.jar")))
+                    .orElseThrow(() -> new IllegalStateException(
+                            "No jar in " + target + ", build services first: mvn -B package -DskipTests"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
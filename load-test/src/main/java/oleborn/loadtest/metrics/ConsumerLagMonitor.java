@@ -0,0 +1,107 @@
+package oleborn.loadtest.metrics;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отставание consumer-групп сервисов по топикам: раз в {@code lag-interval} снимает
+ * закоммиченные offset'ы групп и конечные offset'ы партиций через Admin API.
+ * <p>
+ * Для каждой пары «топик, группа» хранит последнее и максимальное отставание (сумма по партициям).
+ * Группы самого прогона ({@code load-test-*}) не учитываются.
+ */
+@Component
+@Slf4j
+public class ConsumerLagMonitor {
+
+    private final Duration interval;
+    private final ConcurrentMap<String, Lag> lags = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "consumer-lag"));
+
+    private Admin admin;
+
+    public ConsumerLagMonitor(@Value("${app.load-test.lag-interval:1s}") Duration interval) {
+        this.interval = interval;
+    }
+
+    public void start(String bootstrapServers) {
+        admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        timer.scheduleWithFixedDelay(this::sample, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return «топик (группа)» → отставание, по алфавиту
+     */
+    public Map<String, Lag> lags() {
+        return new TreeMap<>(lags);
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        if (admin != null) {
+            admin.close(Duration.ofSeconds(5));
+        }
+    }
+
+    private void sample() {
+        try {
+            for (ConsumerGroupListing group : admin.listConsumerGroups().all().get()) {
+                if (!group.groupId().startsWith("load-test-")) {
+                    sampleGroup(group.groupId());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            log.debug("Не удалось снять отставание: {}", e.getMessage());
+        }
+    }
+
+    private void sampleGroup(String groupId) throws InterruptedException, ExecutionException {
+        Map<TopicPartition, OffsetAndMetadata> committed =
+                admin.listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata().get();
+        if (committed.isEmpty()) {
+            return;
+        }
+
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        committed.keySet().forEach(partition -> request.put(partition, OffsetSpec.latest()));
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(request).all().get();
+
+        Map<String, Long> byTopic = new HashMap<>();
+        committed.forEach((partition, offset) -> {
+            if (offset != null && ends.containsKey(partition)) {
+                long lag = Math.max(0, ends.get(partition).offset() - offset.offset());
+                byTopic.merge(partition.topic(), lag, Long::sum);
+            }
+        });
+
+        byTopic.forEach((topic, lag) -> lags.merge(topic + " (" + groupId + ")", new Lag(lag, lag),
+                (previous, current) -> new Lag(current.current(), Math.max(previous.max(), current.current()))));
+    }
+
+    public record Lag(long current, long max) {
+    }
+}
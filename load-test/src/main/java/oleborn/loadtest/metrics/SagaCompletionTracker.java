@@ -0,0 +1,148 @@
+package oleborn.loadtest.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Время завершения саги: от отправки {@code POST /orders} до подтверждения уведомления
+ * ({@code NotificationSentEvent} в {@code notification-events}) — последнего шага саги.
+ * <p>
+ * Подтверждение может прийти раньше, чем драйвер получит orderId из ответа, поэтому
+ * отметки старта и завершения сливаются в одну запись, кто бы ни пришёл первым.
+ */
+@Component
+@Slf4j
+public class SagaCompletionTracker {
+
+    private static final String COMPLETION_TYPE = "notificationSentEvent";
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String topic;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentMap<Long, Timing> timings = new ConcurrentHashMap<>();
+    private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final AtomicLong completed = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean measuring;
+    private Thread worker;
+
+    public SagaCompletionTracker(@Value("${app.load-test.completion-topic:notification-events}") String topic) {
+        this.topic = topic;
+    }
+
+    public void start(String bootstrapServers) {
+        running = true;
+        worker = Thread.ofPlatform().name("saga-completion").start(() -> consume(bootstrapServers));
+    }
+
+    /**
+     * Начало замера: всё, что завершилось до этого (прогрев), в гистограмму не попадает.
+     */
+    public void startMeasuring() {
+        latency.reset();
+        completed.set(0);
+        measuring = true;
+    }
+
+    public void started(long orderId, long sentAtNanos) {
+        settle(orderId, new Timing(sentAtNanos, null));
+    }
+
+    public long completed() {
+        return completed.get();
+    }
+
+    /**
+     * @return заказы, принятые order-service, но ещё не дошедшие до конца саги
+     */
+    public long inFlight() {
+        return timings.values().stream().filter(timing -> timing.sentAt != null).count();
+    }
+
+    public Histogram latencyMicros() {
+        return latency.getIntervalHistogram();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join();
+        }
+    }
+
+    private void consume(String bootstrapServers) {
+        Map<String, Object> props = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.GROUP_ID_CONFIG, "load-test-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false
+        );
+
+        try (KafkaConsumer<String, String> consumer =
+                     new KafkaConsumer<>(props, new StringDeserializer(), new StringDeserializer())) {
+            consumer.subscribe(List.of(topic));
+            while (running) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    Header type = record.headers().lastHeader("__TypeId__");
+                    if (type != null && COMPLETION_TYPE.equals(new String(type.value(), StandardCharsets.UTF_8))) {
+                        onCompleted(record.value());
+                    }
+                }
+            }
+        }
+    }
+
+    private void onCompleted(String value) {
+        long now = System.nanoTime();
+        try {
+            JsonNode orderId = objectMapper.readTree(value).path("orderId");
+            if (orderId.canConvertToLong()) {
+                settle(orderId.asLong(), new Timing(null, now));
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось разобрать подтверждение: {}", value);
+        }
+    }
+
+    private void settle(long orderId, Timing timing) {
+        Timing merged = timings.merge(orderId, timing, Timing::merge);
+        if (merged.sentAt != null && merged.completedAt != null && timings.remove(orderId, merged)) {
+            if (measuring) {
+                long micros = TimeUnit.NANOSECONDS.toMicros(merged.completedAt - merged.sentAt);
+                latency.recordValue(Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_MICROS));
+                completed.incrementAndGet();
+            }
+        }
+    }
+
+    // Повторное подтверждение того же заказа (ретрай) оставит запись без sentAt — она не считается в inFlight
+    private record Timing(Long sentAt, Long completedAt) {
+        Timing merge(Timing other) {
+            return new Timing(sentAt != null ? sentAt : other.sentAt, completedAt != null ? completedAt : other.completedAt);
+        }
+    }
+}
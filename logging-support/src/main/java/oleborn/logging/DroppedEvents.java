@@ -0,0 +1,66 @@
+package oleborn.logging;
+
+import ch.qos.logback.classic.Level;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики потерянных событий лога.
+ * <p>
+ * Статические: аппендеры и фильтры создаёт logback до старта Spring-контекста, а метрики
+ * ({@link LoggingPipelineMetrics}) читают те же счётчики, когда реестр уже есть.
+ */
+public final class DroppedEvents {
+
+    public enum Reason {
+        /** DEBUG/TRACE сброшены, когда буфер заполнен выше порога */
+        SHED,
+        /** буфер полон целиком */
+        QUEUE_FULL,
+        /** повторяющееся сообщение сверх лимита за окно */
+        RATE_LIMITED
+    }
+
+    static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+
+    private static final LongAdder[][] COUNTERS = new LongAdder[Reason.values().length][LEVELS.length];
+
+    static {
+        for (LongAdder[] byLevel : COUNTERS) {
+            for (int i = 0; i < byLevel.length; i++) {
+                byLevel[i] = new LongAdder();
+            }
+        }
+    }
+
+    private DroppedEvents() {
+    }
+
+    static void record(Reason reason, Level level) {
+        COUNTERS[reason.ordinal()][levelIndex(level)].increment();
+    }
+
+    static LongAdder counter(Reason reason, Level level) {
+        return COUNTERS[reason.ordinal()][levelIndex(level)];
+    }
+
+    public static long total() {
+        long total = 0;
+        for (LongAdder[] byLevel : COUNTERS) {
+            for (LongAdder counter : byLevel) {
+                total += counter.sum();
+            }
+        }
+        return total;
+    }
+
+    private static int levelIndex(Level level) {
+        return switch (level.toInt()) {
+            case Level.TRACE_INT -> 0;
+            case Level.DEBUG_INT -> 1;
+            case Level.INFO_INT -> 2;
+            case Level.WARN_INT -> 3;
+            default -> 4;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package oleborn.logging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Регистрирует {@link LoggingPipelineMetrics} в каждом сервисе, у которого есть Micrometer.
+ */
+@AutoConfiguration
+@ConditionalOnClass(MeterRegistry.class)
+public class LoggingPipelineAutoConfiguration {
+
+    @Bean
+    public LoggingPipelineMetrics loggingPipelineMetrics() {
+        return new LoggingPipelineMetrics();
+    }
+}
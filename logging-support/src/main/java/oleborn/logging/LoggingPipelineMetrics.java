@@ -0,0 +1,42 @@
+package oleborn.logging;
+
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики конвейера логирования:
+ * <ul>
+ *   <li>{@code logging.events.dropped{reason, level}} — отброшенные события
+ *       ({@code shed} — DEBUG под нагрузкой, {@code queue_full}, {@code rate_limited});</li>
+ *   <li>{@code logging.queue.size} / {@code logging.queue.capacity} — заполненность буферов асинхронных аппендеров.</li>
+ * </ul>
+ */
+public class LoggingPipelineMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (DroppedEvents.Reason reason : DroppedEvents.Reason.values()) {
+            for (Level level : DroppedEvents.LEVELS) {
+                FunctionCounter.builder("logging.events.dropped", DroppedEvents.counter(reason, level), LongAdder::sum)
+                        .description("Log events dropped by the async logging pipeline")
+                        .tag("reason", reason.name().toLowerCase())
+                        .tag("level", level.levelStr)
+                        .register(registry);
+            }
+        }
+
+        Gauge.builder("logging.queue.size", () -> RingBufferAsyncAppender.ACTIVE.stream()
+                        .mapToInt(RingBufferAsyncAppender::size).sum())
+                .description("Log events waiting in async appender ring buffers")
+                .register(registry);
+        Gauge.builder("logging.queue.capacity", () -> RingBufferAsyncAppender.ACTIVE.stream()
+                        .mapToInt(RingBufferAsyncAppender::bufferCapacity).sum())
+                .description("Total capacity of async appender ring buffers")
+                .register(registry);
+    }
+}
@@ -0,0 +1,108 @@
+package oleborn.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.util.Duration;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение повторяющихся сообщений: один и тот же шаблон сообщения одного логгера проходит
+ * не больше {@code burst} раз за {@code interval}, остальное в этом окне отбрасывается.
+ * <p>
+ * Работает как {@link TurboFilter} — до создания события, поэтому отброшенное сообщение не стоит
+ * ни форматирования, ни места в буфере. Ключ — шаблон ({@code "Заказ {} сохранен"}), а не готовая строка:
+ * сообщения с разными аргументами считаются одним потоком.
+ * <p>
+ * По умолчанию ограничиваются уровни до INFO включительно ({@code maxLevel}): предупреждения и ошибки
+ * проходят всегда. Отброшенные учитываются в {@link DroppedEvents} с причиной {@code RATE_LIMITED}.
+ */
+public class RepeatedMessageRateLimiter extends TurboFilter {
+
+    private int burst = 20;
+    private Duration interval = Duration.buildBySeconds(1);
+    private Level maxLevel = Level.INFO;
+    private int cacheSize = 4096;
+
+    private long intervalNanos;
+    private final ConcurrentMap<String, ConcurrentMap<String, Window>> windows = new ConcurrentHashMap<>();
+    private final AtomicLong keys = new AtomicLong();
+
+    @Override
+    public void start() {
+        intervalNanos = interval.getMilliseconds() * 1_000_000L;
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // Уровень проверяется здесь сам: turbo-фильтры вызываются до проверки уровня логгера,
+        // и выключенный DEBUG не должен расходовать лимит. isEnabledFor снова вызвал бы этот фильтр
+        if (format == null || level.toInt() > maxLevel.toInt() || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        Window window = window(logger.getName(), format);
+        if (window == null || window.tryAcquire(System.nanoTime())) {
+            return FilterReply.NEUTRAL;
+        }
+        DroppedEvents.record(DroppedEvents.Reason.RATE_LIMITED, level);
+        return FilterReply.DENY;
+    }
+
+    private Window window(String loggerName, String format) {
+        ConcurrentMap<String, Window> byFormat = windows.computeIfAbsent(loggerName, name -> new ConcurrentHashMap<>());
+        Window window = byFormat.get(format);
+        if (window != null) {
+            return window;
+        }
+        // Шаблонов может оказаться неограниченно много (строки, склеенные без {}): сверх лимита не ограничиваем
+        if (keys.get() >= cacheSize) {
+            return null;
+        }
+        Window created = new Window();
+        window = byFormat.putIfAbsent(format, created);
+        if (window == null) {
+            keys.incrementAndGet();
+            return created;
+        }
+        return window;
+    }
+
+    // Параметры из logback-spring.xml
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public void setMaxLevel(String maxLevel) {
+        this.maxLevel = Level.toLevel(maxLevel, Level.INFO);
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    private final class Window {
+
+        private final AtomicLong start = new AtomicLong(System.nanoTime());
+        private final AtomicLong count = new AtomicLong();
+
+        boolean tryAcquire(long now) {
+            long windowStart = start.get();
+            if (now - windowStart >= intervalNanos && start.compareAndSet(windowStart, now)) {
+                count.set(0);
+            }
+            return count.incrementAndGet() <= burst;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package oleborn.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import ch.qos.logback.core.util.Duration;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный аппендер: поток запроса только кладёт событие в {@link MpscRingBuffer}, кодирование
+ * (JSON {@code LogstashEncoder}) и запись в консоль выполняет отдельный поток.
+ * <p>
+ * На потоке запроса остаётся {@link ILoggingEvent#prepareForDeferredProcessing()} — форматирование
+ * сообщения и снимок MDC, без них поток-писатель увидел бы чужой контекст.
+ * <p>
+ * Политика под нагрузкой:
+ * <ul>
+ *   <li>буфер заполнен выше {@code discardingThreshold} — DEBUG и TRACE отбрасываются, не доходя до буфера;</li>
+ *   <li>буфер полон — INFO отбрасывается, WARN и ERROR ждут место не дольше {@code maxBlockTime}
+ *       и только потом отбрасываются.</li>
+ * </ul>
+ * Каждое отброшенное событие учитывается в {@link DroppedEvents} (метрика {@code logging.events.dropped}).
+ * <pre>
+ * &lt;appender name="ASYNC" class="oleborn.logging.RingBufferAsyncAppender"&gt;
+ *     &lt;capacity&gt;8192&lt;/capacity&gt;
+ *     &lt;appender-ref ref="JSON_CONSOLE"/&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ */
+public class RingBufferAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    static final Set<RingBufferAsyncAppender> ACTIVE = ConcurrentHashMap.newKeySet();
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    private int capacity = 8192;
+    private int discardingThreshold = -1;
+    private Duration maxBlockTime = Duration.buildByMilliseconds(100);
+    private Duration maxFlushTime = Duration.buildBySeconds(1);
+    private boolean includeCallerData;
+
+    private MpscRingBuffer<ILoggingEvent> buffer;
+    private int discardFrom;
+    private Thread worker;
+    private volatile boolean workerIdle;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to [" + name + "]");
+            return;
+        }
+        // Буфер — степень двойки: индекс ячейки считается маской
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        buffer = new MpscRingBuffer<>(size);
+        discardFrom = discardingThreshold >= 0 ? discardingThreshold : size - size / 5;
+
+        super.start();
+        worker = Thread.ofPlatform()
+                .name("logback-async-" + name)
+                .daemon(true)
+                .start(this::drain);
+        ACTIVE.add(this);
+        addInfo("Ring buffer of " + size + " events, DEBUG discarded above " + discardFrom);
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        ACTIVE.remove(this);
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushTime.getMilliseconds());
+            if (worker.isAlive()) {
+                addWarn("Not all events flushed within " + maxFlushTime + ", " + buffer.size() + " left");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        Level level = event.getLevel();
+        if (level.toInt() <= Level.DEBUG_INT && buffer.size() >= discardFrom) {
+            DroppedEvents.record(DroppedEvents.Reason.SHED, level);
+            return;
+        }
+
+        event.prepareForDeferredProcessing();
+        if (includeCallerData) {
+            event.getCallerData();
+        }
+
+        if (offer(event, level)) {
+            if (workerIdle) {
+                LockSupport.unpark(worker);
+            }
+            return;
+        }
+        DroppedEvents.record(DroppedEvents.Reason.QUEUE_FULL, level);
+    }
+
+    private boolean offer(ILoggingEvent event, Level level) {
+        if (buffer.offer(event)) {
+            return true;
+        }
+        if (level.toInt() < Level.WARN_INT) {
+            return false;
+        }
+        // Предупреждения и ошибки не теряем из-за короткого всплеска: ждём, пока писатель освободит место
+        LockSupport.unpark(worker);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBlockTime.getMilliseconds());
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+            if (buffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain() {
+        while (true) {
+            ILoggingEvent event = buffer.poll();
+            if (event != null) {
+                try {
+                    appenders.appendLoopOnAppenders(event);
+                } catch (RuntimeException e) {
+                    addError("Appender failed on event from " + event.getLoggerName(), e);
+                }
+                continue;
+            }
+            if (!isStarted()) {
+                return;
+            }
+            workerIdle = true;
+            // Повторная проверка после флага: писатель мог положить событие до того, как увидел флаг
+            if (buffer.size() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            workerIdle = false;
+        }
+    }
+
+    int size() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    int bufferCapacity() {
+        return buffer == null ? 0 : buffer.capacity();
+    }
+
+    // Параметры из logback-spring.xml
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Заполненность буфера (в событиях), с которой отбрасываются DEBUG и TRACE. По умолчанию — 80% ёмкости.
+     */
+    public void setDiscardingThreshold(int discardingThreshold) {
+        this.discardingThreshold = discardingThreshold;
+    }
+
+    public void setMaxBlockTime(Duration maxBlockTime) {
+        this.maxBlockTime = maxBlockTime;
+    }
+
+    public void setMaxFlushTime(Duration maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    public void setIncludeCallerData(boolean includeCallerData) {
+        this.includeCallerData = includeCallerData;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,101 @@
+package oleborn.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.util.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link RepeatedMessageRateLimiter}: лимит на шаблон в окне, новое окно, уровни вне ограничения.
+ */
+class RepeatedMessageRateLimiterTest {
+
+    private static final int BURST = 5;
+
+    private final LoggerContext context = new LoggerContext();
+    private final ListAppender<ILoggingEvent> target = new ListAppender<>();
+    private Logger logger;
+
+    @AfterEach
+    void tearDown() {
+        context.stop();
+    }
+
+    @Test
+    void passesBurstPerFormatAndDeniesTheRest() {
+        start(Duration.buildBySeconds(60), Level.INFO);
+
+        long limitedBefore = DroppedEvents.counter(DroppedEvents.Reason.RATE_LIMITED, Level.INFO).sum();
+        for (int i = 0; i < 20; i++) {
+            logger.info("Заказ {} сохранен", i);
+        }
+        logger.info("Другой шаблон {}", 1);
+
+        assertThat(target.list).hasSize(BURST + 1);
+        assertThat(target.list.getLast().getFormattedMessage()).isEqualTo("Другой шаблон 1");
+        assertThat(DroppedEvents.counter(DroppedEvents.Reason.RATE_LIMITED, Level.INFO).sum() - limitedBefore)
+                .isEqualTo(20 - BURST);
+    }
+
+    @Test
+    void opensNewWindowAfterInterval() throws InterruptedException {
+        start(Duration.buildByMilliseconds(50), Level.INFO);
+
+        for (int i = 0; i < 2 * BURST; i++) {
+            logger.info("Заказ {} сохранен", i);
+        }
+        Thread.sleep(60);
+        logger.info("Заказ {} сохранен", -1);
+
+        assertThat(target.list).hasSize(BURST + 1);
+    }
+
+    @Test
+    void neverLimitsWarnings() {
+        start(Duration.buildBySeconds(60), Level.INFO);
+
+        for (int i = 0; i < 20; i++) {
+            logger.warn("Повтор {}", i);
+        }
+
+        assertThat(target.list).hasSize(20);
+    }
+
+    @Test
+    void disabledLevelDoesNotSpendLimit() {
+        start(Duration.buildBySeconds(60), Level.INFO);
+
+        for (int i = 0; i < 20; i++) {
+            logger.debug("Заказ {} сохранен", i);
+        }
+        logger.setLevel(Level.DEBUG);
+        for (int i = 0; i < BURST; i++) {
+            logger.debug("Заказ {} сохранен", i);
+        }
+
+        assertThat(target.list).hasSize(BURST);
+    }
+
+    private void start(Duration interval, Level loggerLevel) {
+        RepeatedMessageRateLimiter limiter = new RepeatedMessageRateLimiter();
+        limiter.setContext(context);
+        limiter.setBurst(BURST);
+        limiter.setInterval(interval);
+        limiter.start();
+        context.addTurboFilter(limiter);
+
+        target.setContext(context);
+        target.start();
+
+        logger = context.getLogger("test");
+        logger.setLevel(loggerLevel);
+        logger.setAdditive(false);
+        logger.addAppender(target);
+    }
+}
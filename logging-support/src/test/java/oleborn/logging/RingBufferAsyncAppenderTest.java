@@ -0,0 +1,222 @@
+package oleborn.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.util.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Политика {@link RingBufferAsyncAppender} под нагрузкой: DEBUG отбрасывается выше порога,
+ * INFO — при полном буфере, WARN ждёт место; на остановке буфер дописывается до конца.
+ * <p>
+ * Поток-писатель удерживается на первом событии ({@link GatedAppender}), поэтому заполненность
+ * буфера в тестах определяется только числом записанных событий.
+ */
+class RingBufferAsyncAppenderTest {
+
+    // Буфер на 16 событий, DEBUG отбрасывается с 13-го (80% ёмкости)
+    private static final int CAPACITY = 16;
+    private static final int DISCARD_FROM = 13;
+
+    private final LoggerContext context = new LoggerContext();
+    private final GatedAppender target = new GatedAppender();
+    private final RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        // Снимок MDC в prepareForDeferredProcessing требует адаптер, в приложении его ставит SLF4J
+        context.setMDCAdapter(new LogbackMDCAdapter());
+
+        target.setContext(context);
+        target.setName("TARGET");
+        target.start();
+
+        appender.setContext(context);
+        appender.setName("ASYNC");
+        appender.setCapacity(CAPACITY);
+        appender.setMaxBlockTime(Duration.buildByMilliseconds(50));
+        appender.setMaxFlushTime(Duration.buildBySeconds(5));
+        appender.addAppender(target);
+        appender.start();
+
+        logger = context.getLogger("test");
+        logger.setLevel(Level.TRACE);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        target.release.countDown();
+        appender.stop();
+        context.stop();
+    }
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        RingBufferAsyncAppender rounded = new RingBufferAsyncAppender();
+        rounded.setContext(context);
+        rounded.setName("ROUNDED");
+        rounded.setCapacity(1000);
+        rounded.addAppender(new GatedAppender());
+        rounded.start();
+        try {
+            assertThat(rounded.bufferCapacity()).isEqualTo(1024);
+        } finally {
+            rounded.stop();
+        }
+    }
+
+    @Test
+    void shedsDebugAboveThresholdButKeepsInfo() throws Exception {
+        holdWorker();
+        fill(DISCARD_FROM - 1);
+
+        long shedBefore = dropped(DroppedEvents.Reason.SHED, Level.DEBUG);
+        logger.debug("below threshold");
+        assertThat(appender.size()).isEqualTo(DISCARD_FROM);
+
+        logger.debug("above threshold");
+        logger.trace("above threshold");
+        logger.info("info above threshold");
+
+        assertThat(dropped(DroppedEvents.Reason.SHED, Level.DEBUG) - shedBefore).isEqualTo(1);
+        assertThat(appender.size()).isEqualTo(DISCARD_FROM + 1);
+
+        target.release.countDown();
+        appender.stop();
+        assertThat(target.messages())
+                .contains("below threshold", "info above threshold")
+                .doesNotContain("above threshold");
+    }
+
+    @Test
+    void dropsInfoWhenFull() throws Exception {
+        holdWorker();
+        fill(CAPACITY);
+
+        long fullBefore = dropped(DroppedEvents.Reason.QUEUE_FULL, Level.INFO);
+        long started = System.nanoTime();
+        logger.info("overflow");
+
+        // INFO не ждёт места в буфере
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(50);
+        assertThat(dropped(DroppedEvents.Reason.QUEUE_FULL, Level.INFO) - fullBefore).isEqualTo(1);
+
+        target.release.countDown();
+        appender.stop();
+        assertThat(target.messages()).hasSize(1 + CAPACITY).doesNotContain("overflow");
+    }
+
+    @Test
+    void dropsWarnOnlyAfterMaxBlockTime() throws Exception {
+        holdWorker();
+        fill(CAPACITY);
+
+        long fullBefore = dropped(DroppedEvents.Reason.QUEUE_FULL, Level.WARN);
+        long started = System.nanoTime();
+        logger.warn("overflow");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isGreaterThanOrEqualTo(50);
+        assertThat(dropped(DroppedEvents.Reason.QUEUE_FULL, Level.WARN) - fullBefore).isEqualTo(1);
+    }
+
+    @Test
+    void keepsErrorWhenWriterFreesSpaceInTime() throws Exception {
+        appender.setMaxBlockTime(Duration.buildBySeconds(5));
+        holdWorker();
+        fill(CAPACITY);
+
+        long fullBefore = dropped(DroppedEvents.Reason.QUEUE_FULL, Level.ERROR);
+        Thread.ofPlatform().start(() -> {
+            sleep(100);
+            target.release.countDown();
+        });
+        logger.error("waited");
+
+        assertThat(dropped(DroppedEvents.Reason.QUEUE_FULL, Level.ERROR) - fullBefore).isZero();
+        appender.stop();
+        assertThat(target.messages()).hasSize(2 + CAPACITY).endsWith("waited");
+    }
+
+    @Test
+    void drainsBufferedEventsOnStop() throws Exception {
+        holdWorker();
+        fill(CAPACITY);
+
+        target.release.countDown();
+        appender.stop();
+
+        assertThat(target.messages()).hasSize(1 + CAPACITY);
+        assertThat(target.messages().subList(1, 1 + CAPACITY))
+                .isEqualTo(IntStream.range(0, CAPACITY).mapToObj(i -> "event " + i).toList());
+        assertThat(target.isStarted()).as("attached appenders are stopped after flush").isFalse();
+    }
+
+    /**
+     * Первое событие занимает поток-писатель до {@link GatedAppender#release}, буфер после него пуст.
+     */
+    private void holdWorker() throws InterruptedException {
+        logger.info("hold");
+        assertThat(target.holding.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(appender.size()).isZero();
+    }
+
+    private void fill(int events) {
+        for (int i = 0; i < events; i++) {
+            logger.info("event " + i);
+        }
+        assertThat(appender.size()).isEqualTo(events);
+    }
+
+    private static long dropped(DroppedEvents.Reason reason, Level level) {
+        return DroppedEvents.counter(reason, level).sum();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class GatedAppender extends AppenderBase<ILoggingEvent> {
+
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch holding = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            messages.add(event.getFormattedMessage());
+            if (holding.getCount() > 0) {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<String> messages() {
+            return messages;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package oleborn.notificationservice.channel;
+
+import oleborn.notificationservice.template.NotificationTemplateEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Заглушка канала электронной почты.
+ */
+@Component
+@ConditionalOnProperty(name = "app.notification.channels.email.enabled", havingValue = "true", matchIfMissing = true)
+public class EmailChannel extends StubNotificationChannel {
+
+    public EmailChannel(
+            NotificationTemplateEngine templateEngine,
+            @Value("${app.notification.channels.email.stub.latency-per-batch:50ms}") Duration latencyPerBatch,
+            @Value("${app.notification.channels.email.stub.latency-per-message:2ms}") Duration latencyPerMessage
+    ) {
+        super("email", templateEngine, latencyPerBatch, latencyPerMessage);
+    }
+}
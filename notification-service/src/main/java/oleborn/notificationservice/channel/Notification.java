@@ -0,0 +1,41 @@
+package oleborn.notificationservice.channel;
+
+import oleborn.notificationservice.dictionary.NotificationStatus;
+
+import java.util.List;
+
+/**
+ * Уведомление к отправке: только данные заказа. Текст каждый канал рендерит
+ * по своему шаблону ({@code NotificationTemplateEngine}).
+ *
+ * @param locale    локаль получателя; {@code null} — локаль по умолчанию
+ * @param recipient получатель; {@code null} — лимит частоты не применяется
+ * @param digest    уведомления, свёрнутые в сводку; только у {@link NotificationStatus#DIGEST}
+ */
+public record Notification(
+        Long orderId,
+        NotificationStatus status,
+        String orderStatus,
+        String transactionId,
+        String reason,
+        String locale,
+        String recipient,
+        List<Notification> digest
+) {
+
+    /**
+     * Сводка по уведомлениям одного получателя; локаль и заказ — последнего уведомления.
+     */
+    public static Notification digest(String recipient, List<Notification> notifications) {
+        Notification last = notifications.getLast();
+        return new Notification(last.orderId(), NotificationStatus.DIGEST, null, null, null,
+                last.locale(), recipient, List.copyOf(notifications));
+    }
+
+    /**
+     * @return отпечаток исхода заказа: повтор с тем же отпечатком — дубль
+     */
+    public String fingerprint() {
+        return status + ":" + transactionId;
+    }
+}
@@ -0,0 +1,24 @@
+package oleborn.notificationservice.channel;
+
+import java.util.List;
+
+/**
+ * Канал доставки уведомлений (email, SMS, push).
+ * <p>
+ * Отправка пакетная: у провайдеров каналов есть batch-API, и один запрос на пакет
+ * дешевле запроса на сообщение. Пакеты собирает и вызывает {@code ChannelWorkerPool} —
+ * реализация канала об очередях и потоках не знает.
+ */
+public interface NotificationChannel {
+
+    /**
+     * @return имя канала — ключ его настроек {@code app.notification.channels.<name>.*}
+     */
+    String name();
+
+    /**
+     * Доставляет пакет целиком; исключение — весь пакет не доставлен и будет повторён.
+     * Вызывается конкурентно из нескольких воркеров канала.
+     */
+    void sendBatch(List<Notification> batch) throws Exception;
+}
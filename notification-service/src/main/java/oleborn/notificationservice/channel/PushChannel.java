@@ -0,0 +1,24 @@
+package oleborn.notificationservice.channel;
+
+import oleborn.notificationservice.template.NotificationTemplateEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Заглушка канала push-уведомлений.
+ */
+@Component
+@ConditionalOnProperty(name = "app.notification.channels.push.enabled", havingValue = "true", matchIfMissing = true)
+public class PushChannel extends StubNotificationChannel {
+
+    public PushChannel(
+            NotificationTemplateEngine templateEngine,
+            @Value("${app.notification.channels.push.stub.latency-per-batch:20ms}") Duration latencyPerBatch,
+            @Value("${app.notification.channels.push.stub.latency-per-message:1ms}") Duration latencyPerMessage
+    ) {
+        super("push", templateEngine, latencyPerBatch, latencyPerMessage);
+    }
+}
@@ -0,0 +1,24 @@
+package oleborn.notificationservice.channel;
+
+import oleborn.notificationservice.template.NotificationTemplateEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Заглушка канала SMS.
+ */
+@Component
+@ConditionalOnProperty(name = "app.notification.channels.sms.enabled", havingValue = "true", matchIfMissing = true)
+public class SmsChannel extends StubNotificationChannel {
+
+    public SmsChannel(
+            NotificationTemplateEngine templateEngine,
+            @Value("${app.notification.channels.sms.stub.latency-per-batch:100ms}") Duration latencyPerBatch,
+            @Value("${app.notification.channels.sms.stub.latency-per-message:5ms}") Duration latencyPerMessage
+    ) {
+        super("sms", templateEngine, latencyPerBatch, latencyPerMessage);
+    }
+}
@@ -0,0 +1,49 @@
+package oleborn.notificationservice.channel;
+
+import lombok.extern.slf4j.Slf4j;
+import oleborn.notificationservice.template.ChannelTemplates;
+import oleborn.notificationservice.template.NotificationTemplateEngine;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Локальная заглушка канала: вместо вызова провайдера пишет пакет в лог и ждёт,
+ * как ждал бы ответа провайдера — фиксированная задержка на запрос плюс на каждое сообщение.
+ * Задержки настраиваются, чтобы воспроизводить медленный канал и проверять backpressure.
+ */
+@Slf4j
+public abstract class StubNotificationChannel implements NotificationChannel {
+
+    private final String name;
+    private final ChannelTemplates templates;
+    private final Duration latencyPerBatch;
+    private final Duration latencyPerMessage;
+
+    protected StubNotificationChannel(
+            String name,
+            NotificationTemplateEngine templateEngine,
+            Duration latencyPerBatch,
+            Duration latencyPerMessage
+    ) {
+        this.name = name;
+        this.templates = templateEngine.forChannel(name);
+        this.latencyPerBatch = latencyPerBatch;
+        this.latencyPerMessage = latencyPerMessage;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void sendBatch(List<Notification> batch) throws InterruptedException {
+        for (Notification notification : batch) {
+            String text = templates.render(notification);
+            log.debug("[{}] Заказ {}: {}", name, notification.orderId(), text);
+        }
+        Thread.sleep(latencyPerBatch.plus(latencyPerMessage.multipliedBy(batch.size())));
+        log.info("[{}] Отправлен пакет из {} уведомлений", name, batch.size());
+    }
+}
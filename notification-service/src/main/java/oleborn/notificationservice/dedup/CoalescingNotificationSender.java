@@ -0,0 +1,224 @@
+package oleborn.notificationservice.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.notificationservice.channel.Notification;
+import oleborn.notificationservice.dispatch.ConfirmationPublisher;
+import oleborn.notificationservice.dispatch.NotificationDispatcher;
+import oleborn.notificationservice.event.NotificationSentEvent;
+import oleborn.notificationservice.ratelimit.NotificationDigest;
+import oleborn.notificationservice.ratelimit.RecipientRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Окно дедупликации и слияния уведомлений по заказу перед рассылкой по каналам.
+ * <ul>
+ *   <li><b>Дедупликация.</b> Исход заказа, уже отправленный в пределах {@code ttl}
+ *       ({@link SentNotificationStore}), повторно не отправляется — ни клиенту, ни в analytics.
+ *       Так гасятся повторные доставки через {@code @RetryableTopic}.</li>
+ *   <li><b>Слияние.</b> Первое уведомление заказа ждёт {@code coalesce-window}; всё, что пришло
+ *       по заказу за это время (дубли, быстрая смена PAID/CANCELLED), заменяет его, и отправляется
+ *       одно — последнее. Future всех слитых записей завершается вместе с этой отправкой.</li>
+ * </ul>
+ * Заказов в окне одновременно не больше {@code max-pending}: при исчерпании поток consumer'а
+ * ждёт в {@link #send} — backpressure сохраняется и с окном.
+ * <p>
+ * Отпечаток ставится атомарно перед отправкой и снимается, если отправка не удалась,
+ * поэтому повтор после сбоя не будет ошибочно подавлен. Доставка в каждый канал помечается
+ * отдельно: повтор после сбоя одного канала (например, медленного SMS-провайдера) уходит
+ * только в недоставившие каналы, без дублей email и push.
+ * <p>
+ * Получателю сверх {@link RecipientRateLimiter} уведомление не отправляется сразу,
+ * а уходит в ближайшую сводку ({@link NotificationDigest}).
+ */
+@Component
+@Slf4j
+public class CoalescingNotificationSender {
+
+    private final NotificationDispatcher notificationDispatcher;
+    private final ConfirmationPublisher confirmationPublisher;
+    private final SentNotificationStore sentStore;
+    private final RecipientRateLimiter rateLimiter;
+    private final NotificationDigest digest;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final Semaphore pending;
+
+    private final ConcurrentMap<Long, Window> windows = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "notification-window"));
+    // Отправка может ждать места в очереди канала — не в потоке таймера
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter suppressed;
+    private final Counter coalesced;
+
+    public CoalescingNotificationSender(
+            NotificationDispatcher notificationDispatcher,
+            ConfirmationPublisher confirmationPublisher,
+            SentNotificationStore sentStore,
+            RecipientRateLimiter rateLimiter,
+            NotificationDigest digest,
+            MeterRegistry meterRegistry,
+            @Value("${app.notification.dedup.enabled:true}") boolean enabled,
+            @Value("${app.notification.dedup.coalesce-window:500ms}") Duration coalesceWindow,
+            @Value("${app.notification.dedup.max-pending:10000}") int maxPending
+    ) {
+        this.notificationDispatcher = notificationDispatcher;
+        this.confirmationPublisher = confirmationPublisher;
+        this.sentStore = sentStore;
+        this.rateLimiter = rateLimiter;
+        this.digest = digest;
+        this.enabled = enabled;
+        this.windowMillis = coalesceWindow.toMillis();
+        this.pending = new Semaphore(maxPending);
+
+        this.suppressed = Counter.builder("notification.dedup.suppressed")
+                .description("Уведомления, уже отправленные в пределах окна дедупликации")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("notification.dedup.coalesced")
+                .description("Уведомления, слитые с ожидающим уведомлением того же заказа")
+                .register(meterRegistry);
+        Gauge.builder("notification.dedup.windows", windows, ConcurrentMap::size)
+                .description("Заказы с открытым окном слияния")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return future, завершающийся после отправки (своей или слитой) либо сразу — для дубля
+     */
+    public CompletableFuture<Void> send(Notification notification) throws InterruptedException {
+        if (!enabled) {
+            return deliver(notification);
+        }
+        if (sentStore.isSent(notification.orderId(), notification.fingerprint())) {
+            suppressed.increment();
+            log.info("Уведомление по заказу {} уже отправлено ({}), повтор пропущен",
+                    notification.orderId(), notification.fingerprint());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        pending.acquire();
+        Window opened = new Window(notification);
+        Window window = windows.merge(notification.orderId(), opened, (current, ignored) -> {
+            current.latest = notification;
+            return current;
+        });
+
+        if (window != opened) {
+            pending.release();
+            coalesced.increment();
+            return window.done;
+        }
+        timer.schedule(() -> close(notification.orderId(), window), windowMillis, TimeUnit.MILLISECONDS);
+        return window.done;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        senders.shutdown();
+    }
+
+    private void close(Long orderId, Window window) {
+        // После remove окно больше не меняется: новое уведомление заказа откроет новое окно
+        windows.remove(orderId, window);
+        Notification notification = window.latest;
+
+        senders.execute(() -> {
+            try {
+                sendOnce(notification).whenComplete((result, ex) -> {
+                    pending.release();
+                    if (ex == null) {
+                        window.done.complete(null);
+                    } else {
+                        window.done.completeExceptionally(ex);
+                    }
+                });
+            } catch (Exception e) {
+                pending.release();
+                window.done.completeExceptionally(e);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> sendOnce(Notification notification) throws InterruptedException {
+        Long orderId = notification.orderId();
+        String fingerprint = notification.fingerprint();
+
+        String previous = sentStore.markSent(orderId, fingerprint);
+        if (fingerprint.equals(previous)) {
+            suppressed.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> delivered;
+        try {
+            delivered = deliver(notification);
+        } catch (InterruptedException | RuntimeException e) {
+            sentStore.unmark(orderId, fingerprint, previous);
+            throw e;
+        }
+        return delivered.whenComplete((result, ex) -> {
+            if (ex != null) {
+                sentStore.unmark(orderId, fingerprint, previous);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> deliver(Notification notification) throws InterruptedException {
+        if (!rateLimiter.tryAcquire(notification)) {
+            return digest.add(notification);
+        }
+        CompletableFuture<Void> dispatched = enabled
+                ? dispatchUndelivered(notification)
+                : notificationDispatcher.dispatch(notification);
+        return dispatched
+                .thenCompose(delivered -> confirmationPublisher.confirm(
+                        new NotificationSentEvent(notification.orderId(), notification.status(), Instant.now())));
+    }
+
+    private CompletableFuture<Void> dispatchUndelivered(Notification notification) throws InterruptedException {
+        Long orderId = notification.orderId();
+        String fingerprint = notification.fingerprint();
+
+        Set<String> delivered = sentStore.deliveredChannels(orderId, fingerprint);
+        if (!delivered.isEmpty()) {
+            log.info("Уведомление по заказу {} уже доставлено в {}, повтор только в остальные каналы",
+                    orderId, delivered);
+        }
+        return notificationDispatcher.dispatch(notification, delivered, channel -> {
+            try {
+                sentStore.markDelivered(orderId, channel, fingerprint);
+            } catch (RuntimeException e) {
+                // Канал уже доставил: без пометки повтор в худшем случае продублирует его
+                log.warn("Не удалось пометить доставку по заказу {} в канал {}", orderId, channel, e);
+            }
+        });
+    }
+
+    private static final class Window {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        volatile Notification latest;
+
+        Window(Notification first) {
+            this.latest = first;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package oleborn.notificationservice.dedup;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Окно дедупликации в памяти узла: ограничено по числу заказов (TinyLFU) и по времени.
+ * Достаточно при одном узле или когда заказ всегда приходит на один узел (ключ записи — orderId).
+ */
+@Component
+@ConditionalOnProperty(name = "app.notification.dedup.store", havingValue = "memory", matchIfMissing = true)
+public class InMemorySentNotificationStore implements SentNotificationStore {
+
+    private final Cache<Long, String> sent;
+    // orderId → канал → отпечаток, доставленный в канал
+    private final Cache<Long, Map<String, String>> delivered;
+
+    public InMemorySentNotificationStore(
+            @Value("${app.notification.dedup.ttl:10m}") Duration ttl,
+            @Value("${app.notification.dedup.max-orders:100000}") long maxOrders
+    ) {
+        this.sent = Caffeine.newBuilder()
+                .maximumSize(maxOrders)
+                .expireAfterWrite(ttl)
+                .build();
+        this.delivered = Caffeine.newBuilder()
+                .maximumSize(maxOrders)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public boolean isSent(Long orderId, String fingerprint) {
+        return fingerprint.equals(sent.getIfPresent(orderId));
+    }
+
+    @Override
+    public String markSent(Long orderId, String fingerprint) {
+        return sent.asMap().put(orderId, fingerprint);
+    }
+
+    @Override
+    public void unmark(Long orderId, String fingerprint, String previous) {
+        if (previous == null) {
+            sent.asMap().remove(orderId, fingerprint);
+        } else {
+            sent.asMap().replace(orderId, fingerprint, previous);
+        }
+    }
+
+    @Override
+    public Set<String> deliveredChannels(Long orderId, String fingerprint) {
+        Map<String, String> channels = delivered.getIfPresent(orderId);
+        if (channels == null) {
+            return Set.of();
+        }
+        return channels.entrySet().stream()
+                .filter(entry -> fingerprint.equals(entry.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public void markDelivered(Long orderId, String channel, String fingerprint) {
+        delivered.asMap().computeIfAbsent(orderId, id -> new ConcurrentHashMap<>()).put(channel, fingerprint);
+    }
+}
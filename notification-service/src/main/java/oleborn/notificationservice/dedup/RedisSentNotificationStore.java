@@ -0,0 +1,91 @@
+package oleborn.notificationservice.dedup;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Общее окно дедупликации для нескольких узлов: ключ {@code notification:sent:{orderId}} с TTL.
+ * <p>
+ * Пометка — один {@code SET ... GET}: из двух узлов, одновременно отправляющих один исход,
+ * второй увидит отпечаток первого и отправку пропустит. Откат — Lua-скриптом, чтобы
+ * не затереть пометку, сделанную между отправкой и откатом.
+ * <p>
+ * Доставки по каналам — хеш {@code notification:delivered:{orderId}} (канал → отпечаток)
+ * с тем же TTL: все каналы заказа читаются одним {@code HGETALL}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.notification.dedup.store", havingValue = "redis")
+public class RedisSentNotificationStore implements SentNotificationStore {
+
+    private static final String KEY_PREFIX = "notification:sent:";
+    private static final String DELIVERED_KEY_PREFIX = "notification:delivered:";
+
+    private static final RedisScript<Long> UNMARK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+                return 0
+            end
+            if ARGV[2] == '' then
+                return redis.call('DEL', KEYS[1])
+            end
+            redis.call('SET', KEYS[1], ARGV[2], 'KEEPTTL')
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> MARK_DELIVERED_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            return redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public RedisSentNotificationStore(
+            StringRedisTemplate redisTemplate,
+            @Value("${app.notification.dedup.ttl:10m}") Duration ttl
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public boolean isSent(Long orderId, String fingerprint) {
+        return fingerprint.equals(redisTemplate.opsForValue().get(KEY_PREFIX + orderId));
+    }
+
+    @Override
+    public String markSent(Long orderId, String fingerprint) {
+        return redisTemplate.opsForValue().setGet(KEY_PREFIX + orderId, fingerprint, ttl);
+    }
+
+    @Override
+    public void unmark(Long orderId, String fingerprint, String previous) {
+        redisTemplate.execute(UNMARK_SCRIPT, List.of(KEY_PREFIX + orderId),
+                fingerprint, previous == null ? "" : previous);
+    }
+
+    @Override
+    public Set<String> deliveredChannels(Long orderId, String fingerprint) {
+        HashOperations<String, String, String> hash = redisTemplate.opsForHash();
+        return hash.entries(DELIVERED_KEY_PREFIX + orderId).entrySet().stream()
+                .filter(entry -> fingerprint.equals(entry.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public void markDelivered(Long orderId, String channel, String fingerprint) {
+        redisTemplate.execute(MARK_DELIVERED_SCRIPT, List.of(DELIVERED_KEY_PREFIX + orderId),
+                channel, fingerprint, String.valueOf(ttl.toMillis()));
+    }
+}
@@ -0,0 +1,40 @@
+package oleborn.notificationservice.dedup;
+
+import java.util.Set;
+
+/**
+ * Какое уведомление по заказу уже отправлено — в пределах окна дедупликации.
+ * <p>
+ * Хранится только отпечаток последнего отправленного исхода ({@code Notification.fingerprint()})
+ * и, отдельно, отпечаток последней доставки в каждый канал — чтобы повтор записи после сбоя
+ * одного канала не слал уведомление заново в каналы, которые его уже доставили.
+ */
+public interface SentNotificationStore {
+
+    /**
+     * @return true — уведомление с этим отпечатком по заказу уже отправлено
+     */
+    boolean isSent(Long orderId, String fingerprint);
+
+    /**
+     * Атомарно помечает уведомление отправленным перед отправкой.
+     *
+     * @return предыдущий отпечаток или null; равный {@code fingerprint} — его уже отправил другой поток или узел
+     */
+    String markSent(Long orderId, String fingerprint);
+
+    /**
+     * Откатывает пометку после неудачной отправки, если её никто не перезаписал.
+     */
+    void unmark(Long orderId, String fingerprint, String previous);
+
+    /**
+     * @return каналы, в которые уведомление с этим отпечатком по заказу уже доставлено
+     */
+    Set<String> deliveredChannels(Long orderId, String fingerprint);
+
+    /**
+     * Помечает доставку уведомления в канал. Пометка не откатывается: канал уже доставил.
+     */
+    void markDelivered(Long orderId, String channel, String fingerprint);
+}
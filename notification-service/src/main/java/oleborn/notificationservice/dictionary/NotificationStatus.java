@@ -3,5 +3,7 @@ package oleborn.notificationservice.dictionary;
 public enum NotificationStatus {
 
     PAID,
-    CANCELLED
+    CANCELLED,
+    // Сводка по нескольким заказам получателя, превысившего лимит частоты
+    DIGEST
 }
@@ -0,0 +1,142 @@
+package oleborn.notificationservice.dispatch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.notificationservice.channel.Notification;
+import oleborn.notificationservice.channel.NotificationChannel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь и воркеры одного канала.
+ * <ul>
+ *   <li>Очередь ограничена {@code queue-capacity}: когда канал не успевает, {@link #submit}
+ *       блокирует поток consumer'а — чтение из Kafka замедляется вместе с каналом,
+ *       а остальные каналы продолжают разбирать свои очереди.</li>
+ *   <li>{@code workers} воркеров на виртуальных потоках: ожидание провайдера не занимает
+ *       платформенный поток, а число одновременных запросов к провайдеру ограничено.</li>
+ *   <li>Воркер забирает до {@code batch-size} уведомлений; если очередь почти пуста,
+ *       ждёт добора не дольше {@code linger} — под нагрузкой пакеты полные, без неё задержка мала.</li>
+ * </ul>
+ */
+@Slf4j
+class ChannelWorkerPool {
+
+    private final NotificationChannel channel;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long enqueueTimeoutNanos;
+    private final Timer batchTimer;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    ChannelWorkerPool(NotificationChannel channel, int workerCount, int batchSize, int queueCapacity,
+                      Duration linger, Duration enqueueTimeout, MeterRegistry meterRegistry) {
+        this.channel = channel;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerNanos = linger.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+
+        Gauge.builder("notification.channel.queue", queue, BlockingQueue::size)
+                .description("Уведомления, ожидающие отправки в канал")
+                .tag("channel", channel.name())
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("notification.channel.batch")
+                .description("Отправка одного пакета в канал")
+                .tag("channel", channel.name())
+                .register(meterRegistry);
+
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("notification-" + channel.name() + "-" + i).start(this::work));
+        }
+    }
+
+    /**
+     * Ставит уведомление в очередь канала; блокирует, пока в очереди нет места.
+     *
+     * @return future доставки уведомления в канал
+     * @throws RejectedExecutionException место не освободилось за {@code enqueue-timeout}
+     */
+    CompletableFuture<Void> submit(Notification notification) throws InterruptedException {
+        Pending pending = new Pending(notification, new CompletableFuture<>());
+        if (!queue.offer(pending, enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            throw new RejectedExecutionException("Channel " + channel.name() + " queue is full");
+        }
+        return pending.delivered();
+    }
+
+    void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(pending -> pending.delivered().completeExceptionally(
+                new RejectedExecutionException("Channel " + channel.name() + " is shut down")));
+    }
+
+    private void work() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                batch.forEach(pending -> pending.delivered().completeExceptionally(e));
+                return;
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<Pending> batch) throws InterruptedException {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        List<Notification> notifications = batch.stream().map(Pending::notification).toList();
+        long start = System.nanoTime();
+        try {
+            channel.sendBatch(notifications);
+            batch.forEach(pending -> pending.delivered().complete(null));
+        } catch (Exception e) {
+            log.error("Канал {} не принял пакет из {} уведомлений", channel.name(), batch.size(), e);
+            batch.forEach(pending -> pending.delivered().completeExceptionally(e));
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private record Pending(Notification notification, CompletableFuture<Void> delivered) {}
+}
@@ -0,0 +1,107 @@
+package oleborn.notificationservice.dispatch;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.notificationservice.event.NotificationSentEvent;
+import oleborn.notificationservice.messaging.producer.NotificationProducer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетная публикация подтверждений {@link NotificationSentEvent}.
+ * <p>
+ * Подтверждения от всех каналов копятся в очереди; один поток забирает всё накопленное
+ * (до {@code batch-size}) и отдаёт продюсеру подряд — записи уходят к брокеру общими
+ * produce-запросами, а лог пишется на пакет, а не на событие. Future подтверждения
+ * завершается по ack брокера: offset исходной записи коммитится только после него.
+ * <p>
+ * Очередь не ограничена: в неё попадают только уже доставленные уведомления, а их число
+ * ограничено очередями каналов.
+ */
+@Component
+@Slf4j
+public class ConfirmationPublisher {
+
+    private final NotificationProducer notificationProducer;
+    private final int batchSize;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread publisher;
+    private volatile boolean running = true;
+
+    public ConfirmationPublisher(
+            NotificationProducer notificationProducer,
+            MeterRegistry meterRegistry,
+            @Value("${app.notification.confirmation.batch-size:500}") int batchSize
+    ) {
+        this.notificationProducer = notificationProducer;
+        this.batchSize = batchSize;
+        this.batchSizes = DistributionSummary.builder("notification.confirmation.batch")
+                .description("Подтверждений в одном пакете публикации")
+                .register(meterRegistry);
+        this.publisher = Thread.ofPlatform().name("notification-confirmations").daemon().start(this::publish);
+    }
+
+    public CompletableFuture<Void> confirm(NotificationSentEvent event) {
+        Pending pending = new Pending(event, new CompletableFuture<>());
+        queue.add(pending);
+        return pending.published();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        publisher.interrupt();
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(pending -> pending.published().completeExceptionally(
+                new RejectedExecutionException("Confirmation publisher is shut down")));
+    }
+
+    private void publish() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                for (Pending pending : batch) {
+                    notificationProducer.publish(pending.event()).whenComplete((result, ex) -> {
+                        if (ex == null) {
+                            pending.published().complete(null);
+                        } else {
+                            pending.published().completeExceptionally(ex);
+                        }
+                    });
+                }
+                batchSizes.record(batch.size());
+                log.info("Отправлен пакет из {} подтверждений уведомлений", batch.size());
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Ошибка публикации пакета подтверждений", e);
+                batch.forEach(pending -> pending.published().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private record Pending(NotificationSentEvent event, CompletableFuture<Void> published) {}
+}
@@ -0,0 +1,99 @@
+package oleborn.notificationservice.dispatch;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.notificationservice.channel.Notification;
+import oleborn.notificationservice.channel.NotificationChannel;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Рассылка уведомления во все включённые каналы, у каждого — свой {@link ChannelWorkerPool}.
+ * <p>
+ * Настройки канала: {@code app.notification.channels.<name>.{workers, batch-size, queue-capacity, linger}},
+ * по умолчанию — из {@code app.notification.dispatch.*}.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final String CHANNEL_PREFIX = "app.notification.channels.";
+    private static final String DEFAULT_PREFIX = "app.notification.dispatch.";
+
+    private final Map<String, ChannelWorkerPool> pools = new LinkedHashMap<>();
+
+    public NotificationDispatcher(List<NotificationChannel> channels, Environment environment, MeterRegistry meterRegistry) {
+        Duration enqueueTimeout = environment.getProperty(DEFAULT_PREFIX + "enqueue-timeout", Duration.class, Duration.ofSeconds(30));
+
+        for (NotificationChannel channel : channels) {
+            int workers = setting(environment, channel, "workers", Integer.class, 4);
+            int batchSize = setting(environment, channel, "batch-size", Integer.class, 100);
+            int queueCapacity = setting(environment, channel, "queue-capacity", Integer.class, 1000);
+            Duration linger = setting(environment, channel, "linger", Duration.class, Duration.ofMillis(20));
+
+            pools.put(channel.name(), new ChannelWorkerPool(
+                    channel, workers, batchSize, queueCapacity, linger, enqueueTimeout, meterRegistry));
+            log.info("Канал {}: {} воркеров, пакет до {}, очередь {}, linger {}",
+                    channel.name(), workers, batchSize, queueCapacity, linger);
+        }
+    }
+
+    /**
+     * Ставит уведомление в очереди всех каналов. Блокирует, пока в очереди медленного
+     * канала нет места, — это backpressure для consumer'а.
+     *
+     * @return future, завершающийся после доставки во все каналы
+     */
+    public CompletableFuture<Void> dispatch(Notification notification) throws InterruptedException {
+        return dispatch(notification, Set.of(), channel -> {});
+    }
+
+    /**
+     * Рассылка с учётом доставки по каналам: сбой одного канала не мешает остальным, а повторная
+     * доставка записи отправляет только в каналы, где уведомления ещё нет.
+     * <p>
+     * Канал, очередь которого не освободилась за {@code enqueue-timeout}, не прерывает рассылку
+     * в следующие. Итоговый future завершается, когда закончились все каналы, — ошибкой,
+     * если не доставил хотя бы один.
+     *
+     * @param skip        каналы, куда уведомление уже доставлено
+     * @param onDelivered вызывается с именем канала после доставки в него
+     */
+    public CompletableFuture<Void> dispatch(Notification notification, Set<String> skip,
+                                            Consumer<String> onDelivered) throws InterruptedException {
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(pools.size());
+        for (Map.Entry<String, ChannelWorkerPool> entry : pools.entrySet()) {
+            String channel = entry.getKey();
+            if (skip.contains(channel)) {
+                continue;
+            }
+            try {
+                deliveries.add(entry.getValue().submit(notification).thenRun(() -> onDelivered.accept(channel)));
+            } catch (RejectedExecutionException e) {
+                deliveries.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        return CompletableFuture.allOf(deliveries.toArray(CompletableFuture<?>[]::new));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(ChannelWorkerPool::shutdown);
+    }
+
+    private static <T> T setting(Environment environment, NotificationChannel channel, String key, Class<T> type, T fallback) {
+        T defaultValue = environment.getProperty(DEFAULT_PREFIX + key, type, fallback);
+        return environment.getProperty(CHANNEL_PREFIX + channel.name() + "." + key, type, defaultValue);
+    }
+}
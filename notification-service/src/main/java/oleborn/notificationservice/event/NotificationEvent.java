@@ -7,6 +7,10 @@ public record NotificationEvent(
         Long orderId,
         String transactionId,
         String status,
-        String reason
+        String reason,
+        // Локаль получателя; нет — шаблон локали по умолчанию
+        String locale,
+        // Получатель (клиент): по нему лимитируется частота уведомлений; нет — без лимита
+        String recipient
 ) {
 }
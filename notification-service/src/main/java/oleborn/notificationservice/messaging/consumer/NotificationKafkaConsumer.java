@@ -10,10 +10,11 @@ import org.springframework.kafka.annotation.RetryableTopic;
 import org.springframework.kafka.retrytopic.DltStrategy;
 import org.springframework.kafka.retrytopic.SameIntervalTopicReuseStrategy;
 import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
-import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
@@ -44,24 +45,23 @@ public class NotificationKafkaConsumer {
 
     private final NotificationService notificationService;
 
+    /**
+     * Возвращает future вместо ручного acknowledge: spring-kafka подтверждает offset,
+     * когда уведомление доставлено во все каналы и подтверждение принято брокером,
+     * а до этого читает следующие записи (out-of-order commits).
+     * Ошибка в future обрабатывается так же, как брошенное исключение — через retry-топики.
+     * Поток consumer'а ждёт, только если очередь какого-то канала полна.
+     */
     @KafkaHandler
-    public void consumeResultProcessOrder(
-            NotificationEvent event,
-            Acknowledgment acknowledgment
-    ) {
-
-        try {
-
-            notificationService.sendNotification(event);
+    public CompletableFuture<Void> consumeResultProcessOrder(NotificationEvent event) throws InterruptedException {
 
-            //Ручной коммит offset
-            acknowledgment.acknowledge();
-            log.info("Событие для заказа: {} обработано и оффсет для него сдвинут(acknowledged) ", event.orderId());
+        log.info("Событие для заказа: {} принято в рассылку", event.orderId());
 
-        } catch (Exception e) {
-            log.error("Error processing order", e);
-            // Не вызываем acknowledgment – сообщение попадёт в DLT после всех retry
-            throw new RuntimeException("Processing failed", e);
-        }
+        return notificationService.sendNotification(event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Error processing order {}", event.orderId(), ex);
+                    }
+                });
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,12 @@ import org.springframework.stereotype.Service;
 
 import java.util.concurrent.CompletableFuture;
 
+/**
+ * Отправка подтверждений уведомлений в Kafka.
+ * <p>
+ * Сервис напрямую не публикует: подтверждения копит и отдаёт сюда пакетами
+ * {@code ConfirmationPublisher}.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -20,26 +26,12 @@ public class NotificationProducer {
 
     private final KafkaTemplate<String, Object> reliableKafkaTemplate;
 
-    public void sendPaymentCompletedEvent(NotificationSentEvent event) {
-        send(notificationEventsTopic, String.valueOf(event.orderId()), event);
-    }
-
-    private void send(String topic, String key, Object event) {
-
-        //Возвращает CompletableFuture, который завершится, когда брокер подтвердит получение (или будет ошибка)
-        CompletableFuture<SendResult<String, Object>> future = reliableKafkaTemplate.send(topic, key, event);
-
-        //Асинхронное ожидание результата. Позволяет выполнить код после того, как брокер ответит (или ошибка), не блокируя основной поток
-        future.whenComplete((result, ex) -> {
-            if (ex == null) {
-                log.info("Событие отправлено в topic: {}, partition: {}, offset: {}",
-                        notificationEventsTopic,
-                        result.getRecordMetadata().partition(),
-                        result.getRecordMetadata().offset()
-                );
-            } else {
-                log.error("Ошибка отправки события по orderId: {}", key, ex);
-            }
-        });
+    /**
+     * Ставит подтверждение в буфер продюсера, не дожидаясь брокера.
+     *
+     * @return future подтверждения брокера; ошибки обрабатывает вызывающий
+     */
+    public CompletableFuture<SendResult<String, Object>> publish(NotificationSentEvent event) {
+        return reliableKafkaTemplate.send(notificationEventsTopic, String.valueOf(event.orderId()), event);
     }
 }
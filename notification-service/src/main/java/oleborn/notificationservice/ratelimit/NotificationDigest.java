@@ -0,0 +1,152 @@
+package oleborn.notificationservice.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.notificationservice.channel.Notification;
+import oleborn.notificationservice.dispatch.ConfirmationPublisher;
+import oleborn.notificationservice.dispatch.NotificationDispatcher;
+import oleborn.notificationservice.event.NotificationSentEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сводки для получателей, превысивших {@link RecipientRateLimiter}: уведомления копятся
+ * по получателю и раз в {@code digest-interval} уходят одним сообщением на канал.
+ * <p>
+ * Future уведомления завершается только после отправки сводки и подтверждений
+ * по каждому её заказу, поэтому offset записи не коммитится раньше — при остановке сервиса
+ * несобранные сводки будут отправлены заново после повторной доставки из Kafka.
+ */
+@Component
+@Slf4j
+public class NotificationDigest {
+
+    private final NotificationDispatcher notificationDispatcher;
+    private final ConfirmationPublisher confirmationPublisher;
+
+    private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "notification-digest"));
+    // Отправка может ждать места в очереди канала — не в потоке таймера
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter digested;
+    private final Counter digests;
+
+    public NotificationDigest(
+            NotificationDispatcher notificationDispatcher,
+            ConfirmationPublisher confirmationPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${app.notification.rate-limit.digest-interval:1m}") Duration digestInterval
+    ) {
+        this.notificationDispatcher = notificationDispatcher;
+        this.confirmationPublisher = confirmationPublisher;
+
+        this.digested = Counter.builder("notification.ratelimit.digested")
+                .description("Уведомления, доставленные в составе сводки")
+                .register(meterRegistry);
+        this.digests = Counter.builder("notification.ratelimit.digests")
+                .description("Отправленные сводки")
+                .register(meterRegistry);
+        Gauge.builder("notification.ratelimit.digest.pending", pendingCount, AtomicInteger::get)
+                .description("Уведомления, ожидающие ближайшей сводки")
+                .register(meterRegistry);
+
+        long intervalMillis = digestInterval.toMillis();
+        timer.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return future, завершающийся после отправки сводки, в которую попало уведомление
+     */
+    public CompletableFuture<Void> add(Notification notification) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        pending.compute(notification.recipient(), (recipient, current) -> {
+            Pending digest = current == null ? new Pending() : current;
+            digest.notifications.add(notification);
+            digest.futures.add(done);
+            return digest;
+        });
+        pendingCount.incrementAndGet();
+        return done;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        senders.shutdown();
+    }
+
+    private void flush() {
+        for (String recipient : pending.keySet()) {
+            // После remove сводка не меняется: новые уведомления откроют следующую
+            Pending digest = pending.remove(recipient);
+            if (digest != null) {
+                pendingCount.addAndGet(-digest.notifications.size());
+                senders.execute(() -> send(recipient, digest));
+            }
+        }
+    }
+
+    private void send(String recipient, Pending digest) {
+        List<Notification> notifications = digest.notifications;
+        // Одно уведомление сводкой не оформляем
+        Notification message = notifications.size() == 1
+                ? notifications.getFirst()
+                : Notification.digest(recipient, notifications);
+
+        CompletableFuture<Void> delivered;
+        try {
+            delivered = notificationDispatcher.dispatch(message)
+                    .thenCompose(ignored -> confirmAll(notifications));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            delivered = CompletableFuture.failedFuture(e);
+        } catch (RuntimeException e) {
+            delivered = CompletableFuture.failedFuture(e);
+        }
+
+        delivered.whenComplete((result, ex) -> {
+            if (ex == null) {
+                digests.increment();
+                digested.increment(notifications.size());
+                log.info("Получателю {} отправлена сводка по {} уведомлениям", recipient, notifications.size());
+                digest.futures.forEach(future -> future.complete(null));
+            } else {
+                log.error("Не удалось отправить сводку получателю {}", recipient, ex);
+                digest.futures.forEach(future -> future.completeExceptionally(ex));
+            }
+        });
+    }
+
+    private CompletableFuture<Void> confirmAll(List<Notification> notifications) {
+        Instant now = Instant.now();
+        return CompletableFuture.allOf(notifications.stream()
+                .map(notification -> confirmationPublisher.confirm(
+                        new NotificationSentEvent(notification.orderId(), notification.status(), now)))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    // Меняется только внутри compute, читается после remove
+    private static final class Pending {
+        final List<Notification> notifications = new ArrayList<>();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+    }
+}
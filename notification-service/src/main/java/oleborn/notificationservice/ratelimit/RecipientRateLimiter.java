@@ -0,0 +1,119 @@
+package oleborn.notificationservice.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import oleborn.notificationservice.channel.Notification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Лимит частоты уведомлений на получателя: token bucket ёмкостью {@code capacity},
+ * один токен восстанавливается за {@code refill-interval}.
+ * <p>
+ * Корзины разложены по {@code stripes} полосам с отдельной блокировкой — получатели
+ * разных полос не конкурируют. В каждой полосе корзины хранятся в LRU-порядке и вытесняются
+ * сверх {@code max-recipients / stripes}: вытесненная корзина давно не трогалась и за это время
+ * практически наверняка заполнилась, так что лимит при вытеснении не теряется.
+ */
+@Component
+public class RecipientRateLimiter {
+
+    private final boolean enabled;
+    private final double capacity;
+    private final long refillNanos;
+    private final Stripe[] stripes;
+    private final Counter suppressed;
+
+    public RecipientRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${app.notification.rate-limit.enabled:true}") boolean enabled,
+            @Value("${app.notification.rate-limit.capacity:5}") int capacity,
+            @Value("${app.notification.rate-limit.refill-interval:30s}") Duration refillInterval,
+            @Value("${app.notification.rate-limit.stripes:64}") int stripes,
+            @Value("${app.notification.rate-limit.max-recipients:100000}") int maxRecipients
+    ) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.refillNanos = refillInterval.toNanos();
+
+        // Степень двойки — номер полосы берётся маской
+        int stripeCount = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        int perStripe = Math.max(1, maxRecipients / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(perStripe);
+        }
+
+        this.suppressed = Counter.builder("notification.ratelimit.suppressed")
+                .description("Уведомления сверх лимита получателя, не отправленные по отдельности")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return {@code true} — уведомление можно отправить сразу; {@code false} — лимит исчерпан,
+     * уведомление уходит в сводку
+     */
+    public boolean tryAcquire(Notification notification) {
+        String recipient = notification.recipient();
+        if (!enabled || recipient == null) {
+            return true;
+        }
+
+        int hash = recipient.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        long now = System.nanoTime();
+
+        boolean acquired;
+        synchronized (stripe) {
+            TokenBucket bucket = stripe.get(recipient);
+            if (bucket == null) {
+                bucket = new TokenBucket(capacity, now);
+                stripe.put(recipient, bucket);
+            }
+            acquired = bucket.tryConsume(now);
+        }
+
+        if (!acquired) {
+            suppressed.increment();
+        }
+        return acquired;
+    }
+
+    private final class TokenBucket {
+        double tokens;
+        long refilledAt;
+
+        TokenBucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        boolean tryConsume(long now) {
+            tokens = Math.min(capacity, tokens + (double) (now - refilledAt) / refillNanos);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, TokenBucket> {
+        private final int maxSize;
+
+        Stripe(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -2,8 +2,15 @@ package oleborn.notificationservice.service;
 
 import oleborn.notificationservice.event.NotificationEvent;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface NotificationService {
 
-    void sendNotification(NotificationEvent event);
+    /**
+     * Ставит уведомление в очереди каналов. Блокирует, только если очередь какого-то канала полна.
+     *
+     * @return future, завершающийся после доставки во все каналы и публикации подтверждения
+     */
+    CompletableFuture<Void> sendNotification(NotificationEvent event) throws InterruptedException;
 
 }
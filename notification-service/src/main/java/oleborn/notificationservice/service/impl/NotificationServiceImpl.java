@@ -2,70 +2,51 @@ package oleborn.notificationservice.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import oleborn.notificationservice.channel.Notification;
 import oleborn.notificationservice.dictionary.NotificationStatus;
+import oleborn.notificationservice.dedup.CoalescingNotificationSender;
 import oleborn.notificationservice.event.NotificationEvent;
-import oleborn.notificationservice.event.NotificationSentEvent;
-import oleborn.notificationservice.messaging.producer.NotificationProducer;
 import oleborn.notificationservice.service.NotificationService;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Собирает данные уведомления и передаёт его в окно дедупликации ({@link CoalescingNotificationSender}),
+ * которое рассылает его по каналам и после доставки публикует подтверждение.
+ * Текст здесь не формируется — каждый канал рендерит его по своему шаблону.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationServiceImpl implements NotificationService {
 
-    private final NotificationProducer notificationProducer;
+    private final CoalescingNotificationSender coalescingNotificationSender;
 
     @Override
-    @Transactional
-    public void sendNotification(NotificationEvent event) {
+    public CompletableFuture<Void> sendNotification(NotificationEvent event) throws InterruptedException {
 
         // Бизнес-валидация
         if (event.orderId() == null) {
             throw new IllegalArgumentException("orderId must not be null");
         }
 
-        NotificationStatus status;
-
-        if (event.transactionId() != null) {
-            log.info(
-                    """
-                     Отправлено уведомление:
-                     Заказ: {}, успешно обработан.
-                     Статус заказа: {}
-                     Id транзакции: {}
-                     """,
-                    event.orderId(),
-                    event.status(),
-                    event.transactionId()
-            );
-
-            status = NotificationStatus.PAID;
-        } else {
-            log.info(
-                    """
-                     Отправлено уведомление:
-                     Заказ: {}, не обработан.
-                     Статус заказа: {}
-                     Причина: {}
-                     """,
-                    event.orderId(),
-                    event.status(),
-                    event.reason()
-            );
-
-            status = NotificationStatus.CANCELLED;
-        }
-
-        notificationProducer.sendPaymentCompletedEvent(
-                new NotificationSentEvent(
-                        event.orderId(),
-                        status,
-                        Instant.now()
-                )
+        // Успешная оплата приходит с transactionId, отмена — с причиной
+        NotificationStatus status = event.transactionId() != null
+                ? NotificationStatus.PAID
+                : NotificationStatus.CANCELLED;
+
+        Notification notification = new Notification(
+                event.orderId(),
+                status,
+                event.status(),
+                event.transactionId(),
+                event.reason(),
+                event.locale(),
+                event.recipient(),
+                null
         );
+
+        return coalescingNotificationSender.send(notification);
     }
 }
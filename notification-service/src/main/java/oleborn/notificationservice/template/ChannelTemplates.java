@@ -0,0 +1,51 @@
+package oleborn.notificationservice.template;
+
+import oleborn.notificationservice.channel.Notification;
+
+import java.util.Map;
+
+/**
+ * Шаблоны одного канала, разрешённые при старте: массив по {@code NotificationStatus.ordinal()}
+ * для локали по умолчанию и такие же массивы для остальных локалей.
+ * <p>
+ * Рендер пишет в буфер потока и копирует результат в строку один раз. Воркеры каналов —
+ * долгоживущие потоки, поэтому буфер переиспользуется от уведомления к уведомлению.
+ */
+public final class ChannelTemplates {
+
+    // Буфер, разросшийся на длинном тексте, не держим — возвращаемся к обычному размеру
+    private static final int MAX_RETAINED_BUFFER = 4096;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private final CompiledTemplate[] defaults;
+    private final Map<String, CompiledTemplate[]> byLocale;
+
+    ChannelTemplates(CompiledTemplate[] defaults, Map<String, CompiledTemplate[]> byLocale) {
+        this.defaults = defaults;
+        this.byLocale = byLocale;
+    }
+
+    public String render(Notification notification) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        try {
+            template(notification).renderTo(notification, buffer);
+            return buffer.toString();
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    private CompiledTemplate template(Notification notification) {
+        int status = notification.status().ordinal();
+        if (notification.locale() != null) {
+            CompiledTemplate[] localized = byLocale.get(notification.locale());
+            if (localized != null && localized[status] != null) {
+                return localized[status];
+            }
+        }
+        return defaults[status];
+    }
+}
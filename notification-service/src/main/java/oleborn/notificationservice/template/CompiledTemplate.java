@@ -0,0 +1,70 @@
+package oleborn.notificationservice.template;
+
+import oleborn.notificationservice.channel.Notification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шаблон, разобранный один раз при старте в план рендера: чередование готовых литералов
+ * и переменных. Рендер — проход по массиву с дописыванием в переданный буфер.
+ * <p>
+ * Синтаксис: {@code {{имя}}} — переменная из {@link TemplateVariable}, остальное — текст как есть.
+ */
+public final class CompiledTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    // Запас на значения переменных при оценке размера буфера
+    private static final int VARIABLE_ESTIMATE = 24;
+
+    // literals[i] идёт перед variables[i]; последний литерал — после всех переменных
+    private final String[] literals;
+    private final TemplateVariable[] variables;
+    private final int estimatedLength;
+
+    private CompiledTemplate(String[] literals, TemplateVariable[] variables) {
+        this.literals = literals;
+        this.variables = variables;
+        int length = variables.length * VARIABLE_ESTIMATE;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.estimatedLength = length;
+    }
+
+    /**
+     * @throws IllegalArgumentException незакрытая или неизвестная переменная
+     */
+    public static CompiledTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<TemplateVariable> variables = new ArrayList<>();
+
+        int position = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, position);
+            if (open < 0) {
+                literals.add(source.substring(position));
+                break;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed template variable at " + open);
+            }
+            literals.add(source.substring(position, open));
+            variables.add(TemplateVariable.byPlaceholder(source.substring(open + OPEN.length(), close).strip()));
+            position = close + CLOSE.length();
+        }
+
+        return new CompiledTemplate(literals.toArray(String[]::new), variables.toArray(TemplateVariable[]::new));
+    }
+
+    public void renderTo(Notification notification, StringBuilder out) {
+        out.ensureCapacity(out.length() + estimatedLength);
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]);
+            variables[i].appendTo(notification, out);
+        }
+        out.append(literals[variables.length]);
+    }
+}
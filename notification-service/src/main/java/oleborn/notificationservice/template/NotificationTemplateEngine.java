@@ -0,0 +1,98 @@
+package oleborn.notificationservice.template;
+
+import lombok.extern.slf4j.Slf4j;
+import oleborn.notificationservice.dictionary.NotificationStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Шаблоны уведомлений: загружаются и компилируются один раз при старте.
+ * <p>
+ * Файлы — {@code classpath:templates/notification/<канал>/<STATUS>.<локаль>.txt},
+ * например {@code email/PAID.ru.txt}. Для каждого канала обязателен шаблон каждого
+ * статуса в локали по умолчанию — иначе канал не создастся и сервис не стартует.
+ */
+@Component
+@Slf4j
+public class NotificationTemplateEngine {
+
+    private static final String LOCATION = "classpath*:templates/notification/*/*.txt";
+
+    private final String defaultLocale;
+    // канал → локаль → статус → шаблон
+    private final Map<String, Map<String, Map<NotificationStatus, CompiledTemplate>>> templates = new HashMap<>();
+
+    public NotificationTemplateEngine(
+            @Value("${app.notification.templates.default-locale:ru}") String defaultLocale
+    ) throws IOException {
+        this.defaultLocale = defaultLocale;
+
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(LOCATION);
+        for (Resource resource : resources) {
+            load(resource);
+        }
+        log.info("Загружено {} шаблонов уведомлений", resources.length);
+    }
+
+    /**
+     * @throws IllegalStateException у канала нет шаблона какого-то статуса в локали по умолчанию
+     */
+    public ChannelTemplates forChannel(String channel) {
+        Map<String, Map<NotificationStatus, CompiledTemplate>> locales = templates.getOrDefault(channel, Map.of());
+
+        CompiledTemplate[] defaults = byStatus(locales.getOrDefault(defaultLocale, Map.of()));
+        for (NotificationStatus status : NotificationStatus.values()) {
+            if (defaults[status.ordinal()] == null) {
+                throw new IllegalStateException("No %s template for channel %s in default locale %s"
+                        .formatted(status, channel, defaultLocale));
+            }
+        }
+
+        Map<String, CompiledTemplate[]> byLocale = new HashMap<>();
+        locales.forEach((locale, statuses) -> byLocale.put(locale, byStatus(statuses)));
+        return new ChannelTemplates(defaults, byLocale);
+    }
+
+    private void load(Resource resource) {
+        String path;
+        try {
+            path = resource.getURL().getPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // .../templates/notification/<канал>/<STATUS>.<локаль>.txt
+        String[] parts = path.split("/");
+        String channel = parts[parts.length - 2];
+        String[] name = parts[parts.length - 1].split("\\.");
+        if (name.length != 3) {
+            throw new IllegalStateException("Template file name must be <STATUS>.<locale>.txt: " + path);
+        }
+
+        CompiledTemplate template;
+        try {
+            template = CompiledTemplate.compile(resource.getContentAsString(StandardCharsets.UTF_8).strip());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid template " + path + ": " + e.getMessage(), e);
+        }
+
+        templates.computeIfAbsent(channel, key -> new HashMap<>())
+                .computeIfAbsent(name[1], key -> new HashMap<>())
+                .put(NotificationStatus.valueOf(name[0]), template);
+    }
+
+    private static CompiledTemplate[] byStatus(Map<NotificationStatus, CompiledTemplate> statuses) {
+        CompiledTemplate[] byStatus = new CompiledTemplate[NotificationStatus.values().length];
+        statuses.forEach((status, template) -> byStatus[status.ordinal()] = template);
+        return byStatus;
+    }
+}
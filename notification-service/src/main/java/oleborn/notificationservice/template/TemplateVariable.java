@@ -0,0 +1,88 @@
+package oleborn.notificationservice.template;
+
+import oleborn.notificationservice.channel.Notification;
+
+import java.util.List;
+
+/**
+ * Переменные шаблонов уведомлений: {@code {{orderId}}}, {@code {{status}}} и т.д.
+ * <p>
+ * Каждая переменная знает, как дописать своё значение в буфер, — при рендере нет ни
+ * поиска по имени, ни рефлексии, а {@code orderId} пишется без промежуточной строки.
+ */
+public enum TemplateVariable {
+
+    ORDER_ID("orderId") {
+        @Override
+        void appendTo(Notification notification, StringBuilder out) {
+            out.append(notification.orderId().longValue());
+        }
+    },
+    STATUS("status") {
+        @Override
+        void appendTo(Notification notification, StringBuilder out) {
+            out.append(notification.status().name());
+        }
+    },
+    ORDER_STATUS("orderStatus") {
+        @Override
+        void appendTo(Notification notification, StringBuilder out) {
+            appendNullable(notification.orderStatus(), out);
+        }
+    },
+    TRANSACTION_ID("transactionId") {
+        @Override
+        void appendTo(Notification notification, StringBuilder out) {
+            appendNullable(notification.transactionId(), out);
+        }
+    },
+    REASON("reason") {
+        @Override
+        void appendTo(Notification notification, StringBuilder out) {
+            appendNullable(notification.reason(), out);
+        }
+    },
+    DIGEST_COUNT("digestCount") {
+        @Override
+        void appendTo(Notification notification, StringBuilder out) {
+            out.append(notification.digest() == null ? 0 : notification.digest().size());
+        }
+    },
+    DIGEST_ORDERS("digestOrders") {
+        @Override
+        void appendTo(Notification notification, StringBuilder out) {
+            List<Notification> digest = notification.digest();
+            if (digest == null || digest.isEmpty()) {
+                out.append('—');
+                return;
+            }
+            for (int i = 0; i < digest.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                out.append(digest.get(i).orderId().longValue());
+            }
+        }
+    };
+
+    private final String placeholder;
+
+    TemplateVariable(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
+    abstract void appendTo(Notification notification, StringBuilder out);
+
+    static TemplateVariable byPlaceholder(String placeholder) {
+        for (TemplateVariable variable : values()) {
+            if (variable.placeholder.equals(placeholder)) {
+                return variable;
+            }
+        }
+        throw new IllegalArgumentException("Unknown template variable: {{" + placeholder + "}}");
+    }
+
+    private static void appendNullable(String value, StringBuilder out) {
+        out.append(value == null ? "—" : value);
+    }
+}
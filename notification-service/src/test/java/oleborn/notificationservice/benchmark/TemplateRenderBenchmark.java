@@ -0,0 +1,78 @@
+package oleborn.notificationservice.benchmark;
+
+import oleborn.notificationservice.channel.Notification;
+import oleborn.notificationservice.dictionary.NotificationStatus;
+import oleborn.notificationservice.template.ChannelTemplates;
+import oleborn.notificationservice.template.NotificationTemplateEngine;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+
+/**
+ * Рендеров в секунду у скомпилированных шаблонов против прежнего {@code String.formatted},
+ * который разбирал формат на каждом уведомлении.
+ * <p>
+ * Запуск только явный:
+ * <pre>
+ * mvn -pl notification-service test -Dtest=TemplateRenderBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dtemplate.benchmark.threads=4
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class TemplateRenderBenchmark {
+
+    private static final int THREADS = Integer.getInteger("template.benchmark.threads", 1);
+
+    private ChannelTemplates email;
+    private Notification paid;
+    private Notification cancelled;
+
+    @Setup
+    public void setUp() throws IOException {
+        email = new NotificationTemplateEngine("ru").forChannel("email");
+        paid = new Notification(42L, NotificationStatus.PAID, "PAID", "3f2b9c1e-5d7a-4e8b-9a61-0c4d2e7f8b13", null, null, null, null);
+        cancelled = new Notification(43L, NotificationStatus.CANCELLED, "CANCELLED", null, "Недостаточно средств", null, null, null);
+    }
+
+    @Benchmark
+    public String compiledPaid() {
+        return email.render(paid);
+    }
+
+    @Benchmark
+    public String compiledCancelled() {
+        return email.render(cancelled);
+    }
+
+    @Benchmark
+    public String formattedPaid() {
+        return "Заказ: %d, успешно обработан. Статус заказа: %s. Id транзакции: %s"
+                .formatted(paid.orderId(), paid.orderStatus(), paid.transactionId());
+    }
+
+    @Test
+    void run() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TemplateRenderBenchmark.class.getName() + "\\.")
+                .forks(1)
+                .threads(THREADS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .build();
+        new Runner(options).run();
+    }
+}
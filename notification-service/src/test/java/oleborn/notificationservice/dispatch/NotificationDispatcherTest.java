@@ -0,0 +1,132 @@
+package oleborn.notificationservice.dispatch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import oleborn.notificationservice.channel.Notification;
+import oleborn.notificationservice.channel.NotificationChannel;
+import oleborn.notificationservice.dedup.InMemorySentNotificationStore;
+import oleborn.notificationservice.dictionary.NotificationStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Сбой одного канала {@link NotificationDispatcher} не мешает остальным, а повтор записи
+ * по пометкам {@code SentNotificationStore} уходит только в каналы, которые не доставили.
+ */
+class NotificationDispatcherTest {
+
+    private final RecordingChannel email = new RecordingChannel("email");
+    private final RecordingChannel sms = new RecordingChannel("sms");
+    private final InMemorySentNotificationStore store = new InMemorySentNotificationStore(Duration.ofMinutes(10), 1000);
+
+    private NotificationDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        sms.gate.countDown();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void redeliveryAfterFailedChannelSkipsDeliveredChannels() throws Exception {
+        start(new MockEnvironment());
+        sms.failures = 1;
+        Notification notification = notification(1L);
+
+        CompletableFuture<Void> first = dispatchTracked(notification);
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("sms provider is down");
+        assertThat(store.deliveredChannels(1L, notification.fingerprint())).containsExactly("email");
+
+        dispatchTracked(notification).get(5, TimeUnit.SECONDS);
+
+        assertThat(email.sent).containsExactly(1L);
+        assertThat(sms.sent).containsExactly(1L);
+        assertThat(store.deliveredChannels(1L, notification.fingerprint())).containsExactlyInAnyOrder("email", "sms");
+    }
+
+    @Test
+    void fullQueueOfSlowChannelDoesNotStopOtherChannels() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.notification.dispatch.enqueue-timeout", "50ms")
+                .withProperty("app.notification.channels.sms.workers", "1")
+                .withProperty("app.notification.channels.sms.batch-size", "1")
+                .withProperty("app.notification.channels.sms.queue-capacity", "1")
+                .withProperty("app.notification.channels.sms.linger", "0ms");
+        start(environment);
+        sms.gate = new CountDownLatch(1);
+
+        // Первое уведомление держит единственного воркера SMS, второе занимает очередь
+        CompletableFuture<Void> held = dispatchTracked(notification(1L));
+        assertThat(sms.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> queued = dispatchTracked(notification(2L));
+
+        CompletableFuture<Void> rejected = dispatchTracked(notification(3L));
+        assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(store.deliveredChannels(3L, notification(3L).fingerprint())).containsExactly("email");
+
+        sms.gate.countDown();
+        CompletableFuture.allOf(held, queued).get(5, TimeUnit.SECONDS);
+        assertThat(email.sent).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(sms.sent).containsExactly(1L, 2L);
+    }
+
+    private void start(MockEnvironment environment) {
+        // Длительности вида "50ms" в приложении разбирает конвертер Spring Boot
+        environment.setConversionService(new ApplicationConversionService());
+        dispatcher = new NotificationDispatcher(List.of(email, sms), environment, new SimpleMeterRegistry());
+    }
+
+    private CompletableFuture<Void> dispatchTracked(Notification notification) throws InterruptedException {
+        Set<String> delivered = store.deliveredChannels(notification.orderId(), notification.fingerprint());
+        return dispatcher.dispatch(notification, delivered,
+                channel -> store.markDelivered(notification.orderId(), channel, notification.fingerprint()));
+    }
+
+    private static Notification notification(Long orderId) {
+        return new Notification(orderId, NotificationStatus.PAID, "PAID", "tx-" + orderId, null, null, null, null);
+    }
+
+    private static final class RecordingChannel implements NotificationChannel {
+
+        private final String name;
+        private final List<Long> sent = new CopyOnWriteArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile int failures;
+
+        private RecordingChannel(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public void sendBatch(List<Notification> batch) throws Exception {
+            entered.countDown();
+            gate.await();
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException(name + " provider is down");
+            }
+            batch.forEach(notification -> sent.add(notification.orderId()));
+        }
+    }
+}
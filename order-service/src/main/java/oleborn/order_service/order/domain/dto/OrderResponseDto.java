@@ -4,9 +4,12 @@ import lombok.Builder;
 import oleborn.order_service.order.dictionary.OrderStatus;
 import oleborn.order_service.order.domain.entity.Order;
 import oleborn.order_service.order.domain.entity.OrderItem;
+import oleborn.order_service.order.domain.money.Money;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Builder
@@ -20,22 +23,28 @@ public record OrderResponseDto(
 
 ) {
 
+    /**
+     * Один проход по позициям без стримов: стоимость каждой позиции считается один раз
+     * и сразу идёт в итог. Арифметика та же, что у {@link Order#getTotalPrice()}, поэтому
+     * итог совпадает с суммой в MDC и событии до копейки.
+     */
     public static OrderResponseDto from(Order order) {
 
-        BigDecimal total = order.getItems().stream()
-                .map(orderItem -> orderItem.getPrice().multiply(BigDecimal.valueOf(orderItem.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        List<OrderItemResponse> items = order.getItems().stream()
-                .map(OrderItemResponse::from)
-                .toList();
+        List<OrderItem> source = order.getItems();
+        List<OrderItemResponse> items = new ArrayList<>(source.size());
+        long total = 0;
+        for (OrderItem item : source) {
+            long lineTotal = item.getLineTotalMinor();
+            total = Math.addExact(total, lineTotal);
+            items.add(OrderItemResponse.from(item, lineTotal));
+        }
 
         return new OrderResponseDto(
                 order.getId(),
                 order.getStatus(),
                 order.getCreateAt(),
-                items,
-                total
+                Collections.unmodifiableList(items),
+                Money.toAmount(total)
         );
 
     }
@@ -48,13 +57,13 @@ public record OrderResponseDto(
             BigDecimal itemTotal
     ){
 
-        static OrderItemResponse from(OrderItem item) {
+        static OrderItemResponse from(OrderItem item, long lineTotalMinor) {
             return new OrderItemResponse(
                     item.getProductId(),
                     item.getProductName(),
                     item.getQuantity(),
                     item.getPrice(),
-                    item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))
+                    Money.toAmount(lineTotalMinor)
             );
         }
 
@@ -1,10 +1,12 @@
 package oleborn.order_service.order.domain.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import oleborn.order_service.order.dictionary.OrderStatus;
+import oleborn.order_service.order.domain.money.Money;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -35,6 +37,13 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> items = new ArrayList<>();
 
+    // Сумма заказа считается один раз на экземпляр: ответ, MDC и событие берут одно и то же значение.
+    // Состав заказа после создания не меняется, поэтому сбрасывается кэш только при замене списка позиций
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private BigDecimal totalPrice;
+
     public Order(List<OrderItem> items) {
         this.status = OrderStatus.CREATED;
         this.createAt = Instant.now();
@@ -45,11 +54,32 @@ public class Order {
         items.forEach(item -> item.setOrder(this));
     }
 
-    //метод расчета суммы заказа
+    public void setItems(List<OrderItem> items) {
+        this.items = items;
+        this.totalPrice = null;
+    }
+
+    //метод расчета суммы заказа: сумма price * quantity по всем позициям
     public BigDecimal getTotalPrice() {
+        BigDecimal total = totalPrice;
+        if (total == null) {
+            total = totalOf(items);
+            totalPrice = total;
+        }
+        return total;
+    }
+
+    /**
+     * Сумма позиций за один проход, в копейках — без промежуточных {@link BigDecimal} на сложение (см. {@link Money}).
+     */
+    public static BigDecimal totalOf(List<OrderItem> items) {
         if (items == null || items.isEmpty()) {
-            return BigDecimal.ZERO;
+            return Money.toAmount(0);
+        }
+        long total = 0;
+        for (OrderItem item : items) {
+            total = Math.addExact(total, item.getLineTotalMinor());
         }
-        return items.stream().map(OrderItem::getPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return Money.toAmount(total);
     }
 }
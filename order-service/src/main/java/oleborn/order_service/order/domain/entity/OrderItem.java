@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import oleborn.order_service.order.domain.money.Money;
 
 import java.math.BigDecimal;
 
@@ -30,6 +31,11 @@ public class OrderItem {
         this.price = price;
     }
 
+    //стоимость позиции (price * quantity) в копейках
+    public long getLineTotalMinor() {
+        return Money.lineTotal(price, quantity);
+    }
+
     //добавляем обратную связь для взаимодействия
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
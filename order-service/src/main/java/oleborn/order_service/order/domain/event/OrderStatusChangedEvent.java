@@ -0,0 +1,13 @@
+package oleborn.order_service.order.domain.event;
+
+import oleborn.order_service.order.dictionary.OrderStatus;
+
+/**
+ * Выигранный переход статуса заказа — публикуется {@code OrderStateMachine} внутри транзакции.
+ */
+public record OrderStatusChangedEvent(
+        Long orderId,
+        OrderStatus from,
+        OrderStatus to
+) {
+}
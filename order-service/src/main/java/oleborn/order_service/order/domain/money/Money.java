@@ -0,0 +1,37 @@
+package oleborn.order_service.order.domain.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежная арифметика заказа в копейках ({@code long}, масштаб 2 — как у {@code order_items.price}).
+ * <p>
+ * Умножение и сложение идут в {@code long} — без промежуточных {@link BigDecimal} на каждую операцию;
+ * {@link BigDecimal} суммы собирается один раз на выходе. Перевод цены в копейки стоит одного
+ * {@link java.math.BigInteger} на позицию (цена уже в масштабе 2, как из {@code DECIMAL(10, 2)}),
+ * и ещё одного {@link BigDecimal}, если масштаб другой и его нужно привести. Переполнение не
+ * проглатывается: {@link Math#multiplyExact}/{@link Math#addExact} бросают {@link ArithmeticException}.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    /**
+     * Цена в копейках. Лишние знаки округляются так же, как их округлит {@code DECIMAL(10, 2)} при сохранении.
+     */
+    public static long toMinor(BigDecimal amount) {
+        BigDecimal scaled = amount.scale() == SCALE ? amount : amount.setScale(SCALE, RoundingMode.HALF_UP);
+        return scaled.unscaledValue().longValueExact();
+    }
+
+    public static long lineTotal(BigDecimal price, int quantity) {
+        return Math.multiplyExact(toMinor(price), quantity);
+    }
+
+    public static BigDecimal toAmount(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+}
@@ -0,0 +1,34 @@
+package oleborn.order_service.order.listener;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.order_service.order.cache.CaffeineOrderCacheService;
+import oleborn.order_service.order.cache.OrderCacheService;
+import oleborn.order_service.order.domain.event.OrderStatusChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Инвалидация кэшей заказа после выигранного перехода статуса.
+ * <p>
+ * Строго после коммита: если удалить запись раньше, конкурентный {@code getOrder} успеет
+ * загрузить из БД ещё старый статус и положить его обратно в кэш до конца TTL.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderCacheInvalidationListener {
+
+    private final OrderCacheService orderCacheService;
+    private final CaffeineOrderCacheService caffeineOrderCacheService;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleStatusChanged(OrderStatusChangedEvent event) {
+
+        log.debug("Инвалидация кэшей заказа {} после перехода {} -> {}", event.orderId(), event.from(), event.to());
+
+        orderCacheService.evict(event.orderId());
+        caffeineOrderCacheService.evict(event.orderId());
+    }
+}
@@ -5,6 +5,9 @@ import oleborn.order_service.order.domain.entity.Order;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -27,6 +30,29 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @EntityGraph(attributePaths = {"items"})
     Optional<Order> findWithItemsById(Long id);
 
+    /**
+     * Переход статуса одним условным UPDATE: обновится строка, только если статус всё ещё {@code expected}.
+     * Из двух конкурентных команд по одному заказу выигрывает ровно одна — без SELECT, версии и блокировки.
+     *
+     * @return 1 — переход выполнен, 0 — заказа нет или он уже в другом статусе
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE orders
+            SET status = :target
+            WHERE id = :id
+            AND status = :expected
+            """, nativeQuery = true)
+    int compareAndSetStatus(
+            @Param("id") Long id,
+            @Param("expected") String expected,
+            @Param("target") String target
+    );
+
+    // Только для диагностики проигранного перехода — позиции и сам заказ не загружаются
+    @Query(value = "SELECT status FROM orders WHERE id = :id", nativeQuery = true)
+    Optional<String> findStatusById(@Param("id") Long id);
+
     List<Order> findByStatus(OrderStatus status, Pageable pageable);
 
     long countByStatus(OrderStatus status);
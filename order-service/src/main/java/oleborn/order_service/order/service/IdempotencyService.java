@@ -34,7 +34,7 @@ public class IdempotencyService {
 
         String value = redisTemplate.opsForValue().get(key);
 
-        log.info("get response from redis: {}", value);
+        log.debug("get response from redis: {}", value);
 
         if (value == null) return Optional.empty();
 
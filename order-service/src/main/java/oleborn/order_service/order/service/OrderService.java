@@ -26,6 +26,7 @@ import oleborn.order_service.order.metrics.annotation.BusinessMetric;
 import oleborn.order_service.order.repository.OrderRepository;
 import oleborn.order_service.order.repository.OutboxEventRepository;
 import oleborn.order_service.order.repository.ProcessedCommandRepository;
+import oleborn.order_service.order.state.OrderStateMachine;
 import oleborn.order_service.outbox.DebeziumMetrics;
 import org.slf4j.MDC;
 import org.springframework.context.ApplicationEventPublisher;
@@ -53,6 +54,7 @@ public class OrderService {
     private final ObjectMapper objectMapper;
     private final RedisTemplate<String, Object> redisTemplate;
     private final OrderCacheService orderCacheService;
+    private final OrderStateMachine orderStateMachine;
 
     private final AtomicBoolean failureMode = new AtomicBoolean(false);
     private final Random random = new Random();
@@ -92,6 +94,11 @@ public class OrderService {
 
             log.info("Заказ {} сохранен с статусом AWAITING_PAYMENT", savedOrder.getId());
 
+            // До сборки события: контекст события — копия MDC, сумма в нём та же, что в логах и ответе
+            MDC.put("order_id", savedOrder.getId().toString());
+            MDC.put("total_amount", savedOrder.getTotalPrice().toString());
+            MDC.put("order_status", savedOrder.getStatus().toString());
+
             // Сохраняем в outbox
             String traceId = Span.current().getSpanContext().getTraceId();
             String spanId = Span.current().getSpanContext().getSpanId();
@@ -118,10 +125,6 @@ public class OrderService {
 
             log.debug("Отправлено инфо о заказе, id: {}", savedOrder.getId());
 
-            MDC.put("order_id", savedOrder.getId().toString());
-            MDC.put("total_amount", savedOrder.getTotalPrice().toString());
-            MDC.put("order_status", savedOrder.getStatus().toString());
-
             // Теги добавятся в order.creation span
             Span.current().setAttribute("order.id", savedOrder.getId());
 
@@ -194,25 +197,16 @@ public class OrderService {
 
         Long orderId = command.orderId();
 
-        Order order = orderRepository.findById(orderId).orElseThrow(
-                () -> new OrderCreationException("Order not found: " + orderId)
-        );
-
-        // Проверяем, что заказ в ожидании оплаты
-        if (order.getStatus() != OrderStatus.AWAITING_PAYMENT) {
-            log.warn("Order {} is not in AWAITING_PAYMENT state (current: {}), skipping", orderId, order.getStatus());
+        // Проверка статуса и переход — один условный UPDATE, проигравшая команда ничего не публикует
+        if (!orderStateMachine.transition(orderId, OrderStatus.AWAITING_PAYMENT, OrderStatus.PAID)) {
             return;
         }
 
-        order.setStatus(OrderStatus.PAID);
-
-        Order savedOrder = orderRepository.save(order);
-
         applicationEventPublisher.publishEvent(
                 NotificationEvent.builder()
-                        .orderId(savedOrder.getId())
+                        .orderId(orderId)
                         .transactionId(command.transactionId())
-                        .status(savedOrder.getStatus().name())
+                        .status(OrderStatus.PAID.name())
                         .build()
         );
 
@@ -236,24 +230,15 @@ public class OrderService {
         Long orderId = command.orderId();
         String reason = command.reason();
 
-        Order order = orderRepository.findById(orderId).orElseThrow(
-                () -> new OrderCreationException("Order not found: " + orderId)
-        );
-
-        if (order.getStatus() != OrderStatus.AWAITING_PAYMENT) {
-            log.warn("Order {} is not in AWAITING_PAYMENT state (current: {}), skipping", orderId, order.getStatus());
+        if (!orderStateMachine.transition(orderId, OrderStatus.AWAITING_PAYMENT, OrderStatus.CANCELLED)) {
             return;
         }
 
-        order.setStatus(OrderStatus.CANCELLED);
-
-        Order savedOrder = orderRepository.save(order);
-
         applicationEventPublisher.publishEvent(
                 NotificationEvent.builder()
-                        .orderId(savedOrder.getId())
-                        .reason(command.reason())
-                        .status(savedOrder.getStatus().name())
+                        .orderId(orderId)
+                        .reason(reason)
+                        .status(OrderStatus.CANCELLED.name())
                         .build()
         );
 
@@ -0,0 +1,95 @@
+package oleborn.order_service.order.state;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.order_service.order.dictionary.OrderStatus;
+import oleborn.order_service.order.domain.event.OrderStatusChangedEvent;
+import oleborn.order_service.order.exception.NotFoundOrderException;
+import oleborn.order_service.order.repository.OrderRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Машина состояний заказа: допустимые переходы статуса и их применение.
+ * <p>
+ * Переход — один условный {@code UPDATE orders SET status = ? WHERE id = ? AND status = ?}
+ * ({@link OrderRepository#compareAndSetStatus}) вместо чтения заказа с позициями, проверки и {@code save}.
+ * Из конкурентных команд по одному заказу выигрывает одна, остальные видят 0 обновлённых строк —
+ * потерянных обновлений нет без колонки версии и блокировок.
+ * <p>
+ * Выигранный переход публикует {@link OrderStatusChangedEvent}: по нему после коммита
+ * инвалидируются кэши заказа. Уведомления вызывающий код отправляет тоже только по выигрышу.
+ */
+@Component
+@Slf4j
+public class OrderStateMachine {
+
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(OrderStatus.CREATED, EnumSet.of(OrderStatus.AWAITING_PAYMENT));
+        TRANSITIONS.put(OrderStatus.AWAITING_PAYMENT, EnumSet.of(OrderStatus.PAID, OrderStatus.CANCELLED));
+    }
+
+    private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final Map<OrderStatus, Counter> lostTransitions = new EnumMap<>(OrderStatus.class);
+
+    public OrderStateMachine(
+            OrderRepository orderRepository,
+            ApplicationEventPublisher applicationEventPublisher,
+            MeterRegistry meterRegistry
+    ) {
+        this.orderRepository = orderRepository;
+        this.applicationEventPublisher = applicationEventPublisher;
+
+        for (OrderStatus status : OrderStatus.values()) {
+            lostTransitions.put(status, Counter.builder("orders.transition.lost")
+                    .description("Status transitions skipped because the order was already in another status")
+                    .tag("to", status.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    private static boolean isAllowed(OrderStatus from, OrderStatus to) {
+        return TRANSITIONS.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    /**
+     * Переводит заказ из {@code from} в {@code to}, если он всё ещё в {@code from}.
+     * Вызывается внутри транзакции команды — переход коммитится вместе с её остальными записями.
+     *
+     * @return {@code true} — переход выполнен этим вызовом; {@code false} — заказ уже в другом статусе
+     * @throws IllegalArgumentException переход не предусмотрен машиной состояний
+     * @throws NotFoundOrderException   заказа нет
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean transition(Long orderId, OrderStatus from, OrderStatus to) {
+
+        if (!isAllowed(from, to)) {
+            throw new IllegalArgumentException("Transition " + from + " -> " + to + " is not allowed");
+        }
+
+        if (orderRepository.compareAndSetStatus(orderId, from.name(), to.name()) == 1) {
+            applicationEventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, from, to));
+            log.debug("Заказ {} переведён {} -> {}", orderId, from, to);
+            return true;
+        }
+
+        // Проигрыш — редкий путь, лишний запрос здесь нужен только чтобы отличить «нет заказа» от «уже не тот статус»
+        String current = orderRepository.findStatusById(orderId)
+                .orElseThrow(() -> new NotFoundOrderException("Order not found: " + orderId));
+
+        lostTransitions.get(to).increment();
+        log.warn("Order {} is not in {} state (current: {}), transition to {} skipped", orderId, from, current, to);
+        return false;
+    }
+}
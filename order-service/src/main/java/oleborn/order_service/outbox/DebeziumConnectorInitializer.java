@@ -3,10 +3,12 @@ package oleborn.order_service.outbox;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "debezium.connect.enabled", havingValue = "true", matchIfMissing = true)
 public class DebeziumConnectorInitializer implements ApplicationRunner {
     private final KafkaConnectService kafkaConnectService;
 
@@ -0,0 +1,51 @@
+package oleborn.order_service.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.tracing.SpanProcessors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Включает {@link TailSamplingSpanProcessor} перед экспортом спанов.
+ * <p>
+ * Заменяет автоконфигурированный {@link SpanProcessors}: экспортирующий {@link BatchSpanProcessor}
+ * (OTLP в Jaeger) оборачивается хвостовым сэмплером, остальные процессоры остаются как есть.
+ * Head-сэмплер ({@code management.tracing.sampling.probability}) должен оставаться 1.0 — иначе
+ * трейс отбросится раньше, чем станет известно, был ли он медленным или с ошибкой.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.tracing.tail-sampling.enabled", havingValue = "true", matchIfMissing = true)
+public class TailSamplingConfig {
+
+    @Value("${app.tracing.tail-sampling.latency-threshold:500ms}")
+    private Duration latencyThreshold;
+
+    @Value("${app.tracing.tail-sampling.normal-ratio:0.05}")
+    private double normalRatio;
+
+    @Value("${app.tracing.tail-sampling.max-traces:10000}")
+    private int maxTraces;
+
+    @Value("${app.tracing.tail-sampling.max-spans-per-trace:256}")
+    private int maxSpansPerTrace;
+
+    @Value("${app.tracing.tail-sampling.trace-timeout:30s}")
+    private Duration traceTimeout;
+
+    @Bean
+    public SpanProcessors spanProcessors(ObjectProvider<SpanProcessor> spanProcessors, MeterRegistry meterRegistry) {
+        return SpanProcessors.of(spanProcessors.orderedStream()
+                .map(processor -> processor instanceof BatchSpanProcessor
+                        ? new TailSamplingSpanProcessor(processor, latencyThreshold, normalRatio,
+                        maxTraces, maxSpansPerTrace, traceTimeout, meterRegistry)
+                        : processor)
+                .toList());
+    }
+}
@@ -0,0 +1,258 @@
+package oleborn.order_service.tracing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.internal.OtelEncodingUtils;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хвостовое (tail-based) сэмплирование: решение об экспорте принимается по завершённому трейсу, а не в его начале.
+ * <p>
+ * Закончившиеся спаны копятся в буфере своего трейса. Когда заканчивается локальный корень трейса
+ * (спан без родителя или с удалённым родителем — HTTP-запрос, обработка записи Kafka), решается судьба всего буфера:
+ * <ul>
+ *   <li>в трейсе есть спан со статусом ERROR — трейс уходит в экспорт;</li>
+ *   <li>корень длился не меньше {@code latencyThreshold} — уходит;</li>
+ *   <li>остальные — только доля {@code normalRatio}, по traceId: решение детерминировано
+ *       и совпадёт с любым другим участником, сэмплирующим по той же доле.</li>
+ * </ul>
+ * Экспортируемые спаны передаются в обёрнутый {@code BatchSpanProcessor} без изменений, отброшенные до него
+ * не доходят — ни сериализации, ни сети.
+ * <p>
+ * Память ограничена: не больше {@code maxTraces} незавершённых трейсов и {@code maxSpansPerTrace} спанов в каждом.
+ * Трейс, вытесненный по размеру или не закончившийся за {@code traceTimeout}, решается по накопленному
+ * (таймаут не меньше порога задержки — значит, трейс медленный и сохраняется). Решение запоминается,
+ * чтобы поздние спаны того же трейса (асинхронные колбэки отправки в Kafka) шли туда же.
+ */
+@Slf4j
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+    private final SpanProcessor delegate;
+    private final long latencyThresholdNanos;
+    private final long traceTimeoutNanos;
+    private final long normalIdUpperBound;
+    private final int maxSpansPerTrace;
+
+    private final Cache<String, TraceBuffer> pending;
+    private final Cache<String, Boolean> decided;
+
+    private final Counter keptError;
+    private final Counter keptSlow;
+    private final Counter keptSampled;
+    private final Counter dropped;
+    private final Counter overflowSpans;
+
+    public TailSamplingSpanProcessor(
+            SpanProcessor delegate,
+            Duration latencyThreshold,
+            double normalRatio,
+            int maxTraces,
+            int maxSpansPerTrace,
+            Duration traceTimeout,
+            MeterRegistry meterRegistry
+    ) {
+        this.delegate = delegate;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.traceTimeoutNanos = traceTimeout.toNanos();
+        // Та же граница, что у TraceIdRatioBasedSampler: младшие 8 байт traceId меньше ratio * Long.MAX_VALUE
+        this.normalIdUpperBound = normalRatio <= 0 ? Long.MIN_VALUE
+                : normalRatio >= 1 ? Long.MAX_VALUE
+                : (long) (normalRatio * Long.MAX_VALUE);
+        this.maxSpansPerTrace = maxSpansPerTrace;
+
+        this.pending = Caffeine.newBuilder()
+                .maximumSize(maxTraces)
+                .expireAfterWrite(traceTimeout)
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener(this::onEvicted)
+                .build();
+        // Решение живёт дольше буфера: поздние спаны приходят уже после корня
+        this.decided = Caffeine.newBuilder()
+                .maximumSize(maxTraces)
+                .expireAfterWrite(traceTimeout)
+                .build();
+
+        this.keptError = decisionCounter(meterRegistry, "kept_error");
+        this.keptSlow = decisionCounter(meterRegistry, "kept_slow");
+        this.keptSampled = decisionCounter(meterRegistry, "kept_sampled");
+        this.dropped = decisionCounter(meterRegistry, "dropped");
+        this.overflowSpans = Counter.builder("tracing.tail.spans.overflow")
+                .description("Spans dropped because their trace buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("tracing.tail.traces.pending", pending, Cache::estimatedSize)
+                .description("Traces buffered until their local root span ends")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        if (delegate.isStartRequired()) {
+            delegate.onStart(parentContext, span);
+        }
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return delegate.isStartRequired();
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        String traceId = span.getSpanContext().getTraceId();
+
+        Boolean decision = decided.getIfPresent(traceId);
+        if (decision != null) {
+            forwardLate(span, decision);
+            return;
+        }
+
+        TraceBuffer buffer = pending.get(traceId, id -> new TraceBuffer());
+        List<ReadableSpan> export;
+        synchronized (buffer) {
+            if (buffer.decision == null) {
+                // Буфер мог быть создан заново сразу после решения по корню
+                buffer.decision = decided.getIfPresent(traceId);
+            }
+            if (buffer.decision != null) {
+                forwardLate(span, buffer.decision);
+                return;
+            }
+
+            buffer.add(span);
+            if (!isLocalRoot(span)) {
+                return;
+            }
+
+            buffer.decision = decide(traceId, buffer, span.getLatencyNanos());
+            export = buffer.decision ? buffer.spans : null;
+            buffer.spans = null;
+        }
+
+        decided.put(traceId, buffer.decision);
+        pending.invalidate(traceId);
+        export(export);
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return delegate.forceFlush();
+    }
+
+    /**
+     * Незавершённые трейсы решаются по накопленному и уходят в делегат до его остановки.
+     */
+    @Override
+    public CompletableResultCode shutdown() {
+        pending.asMap().forEach((traceId, buffer) -> decideEvicted(traceId, buffer, false));
+        pending.invalidateAll();
+        return delegate.shutdown();
+    }
+
+    private void onEvicted(String traceId, TraceBuffer buffer, RemovalCause cause) {
+        if (traceId != null && buffer != null && cause.wasEvicted()) {
+            decideEvicted(traceId, buffer, cause == RemovalCause.EXPIRED);
+        }
+    }
+
+    private void decideEvicted(String traceId, TraceBuffer buffer, boolean timedOut) {
+        List<ReadableSpan> export;
+        boolean decision;
+        synchronized (buffer) {
+            if (buffer.decision != null) {
+                return;
+            }
+            long age = System.nanoTime() - buffer.createdAt;
+            long latency = timedOut ? Math.max(age, traceTimeoutNanos) : age;
+            decision = decide(traceId, buffer, latency);
+            buffer.decision = decision;
+            export = decision ? buffer.spans : null;
+            buffer.spans = null;
+        }
+
+        log.debug("Трейс {} не дождался корня, решение по накопленному: {}", traceId, decision);
+        decided.put(traceId, decision);
+        export(export);
+    }
+
+    private boolean decide(String traceId, TraceBuffer buffer, long latencyNanos) {
+        if (buffer.error) {
+            keptError.increment();
+            return true;
+        }
+        if (latencyNanos >= latencyThresholdNanos) {
+            keptSlow.increment();
+            return true;
+        }
+        if (Math.abs(OtelEncodingUtils.longFromBase16String(traceId, 16)) < normalIdUpperBound) {
+            keptSampled.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void forwardLate(ReadableSpan span, boolean decision) {
+        if (decision) {
+            delegate.onEnd(span);
+        }
+    }
+
+    private void export(List<ReadableSpan> spans) {
+        if (spans != null) {
+            for (ReadableSpan span : spans) {
+                delegate.onEnd(span);
+            }
+        }
+    }
+
+    private static boolean isLocalRoot(ReadableSpan span) {
+        SpanContext parent = span.getParentSpanContext();
+        return !parent.isValid() || parent.isRemote();
+    }
+
+    private static Counter decisionCounter(MeterRegistry meterRegistry, String decision) {
+        return Counter.builder("tracing.tail.traces")
+                .description("Tail sampling decisions per local trace")
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+
+    private final class TraceBuffer {
+
+        private final long createdAt = System.nanoTime();
+        private List<ReadableSpan> spans = new ArrayList<>();
+        private boolean error;
+        private Boolean decision;
+
+        // Ошибка учитывается и у спана, не поместившегося в буфер: трейс всё равно сохранится
+        void add(ReadableSpan span) {
+            error |= span.toSpanData().getStatus().getStatusCode() == StatusCode.ERROR;
+            if (spans.size() < maxSpansPerTrace) {
+                spans.add(span);
+            } else {
+                overflowSpans.increment();
+            }
+        }
+    }
+}
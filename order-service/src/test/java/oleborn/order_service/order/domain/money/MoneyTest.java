@@ -0,0 +1,96 @@
+package oleborn.order_service.order.domain.money;
+
+import oleborn.order_service.order.domain.entity.Order;
+import oleborn.order_service.order.domain.entity.OrderItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link Money} и {@link Order#totalOf}: сумма в копейках совпадает с суммой, посчитанной
+ * в {@link BigDecimal} по ценам, округлённым как при сохранении в {@code DECIMAL(10, 2)}.
+ */
+class MoneyTest {
+
+    @Test
+    void convertsPriceInStorageScaleWithoutRounding() {
+        assertThat(Money.toMinor(new BigDecimal("199.99"))).isEqualTo(19_999);
+        assertThat(Money.toMinor(new BigDecimal("0.01"))).isEqualTo(1);
+        assertThat(Money.toMinor(new BigDecimal("-5.50"))).isEqualTo(-550);
+    }
+
+    @Test
+    void widensPriceWithFewerDecimals() {
+        assertThat(Money.toMinor(new BigDecimal("100"))).isEqualTo(10_000);
+        assertThat(Money.toMinor(new BigDecimal("9.5"))).isEqualTo(950);
+        assertThat(Money.toMinor(new BigDecimal("1E+2"))).isEqualTo(10_000);
+    }
+
+    @Test
+    void roundsThreeDecimalPriceHalfUp() {
+        assertThat(Money.toMinor(new BigDecimal("10.005"))).isEqualTo(1_001);
+        assertThat(Money.toMinor(new BigDecimal("10.004"))).isEqualTo(1_000);
+        assertThat(Money.toMinor(new BigDecimal("0.125"))).isEqualTo(13);
+        assertThat(Money.toMinor(new BigDecimal("-0.125"))).isEqualTo(-13);
+    }
+
+    @Test
+    void multipliesRoundedPriceByQuantity() {
+        // Сначала округляется цена, потом умножается — как у сохранённой позиции
+        assertThat(Money.lineTotal(new BigDecimal("10.005"), 3)).isEqualTo(3_003);
+        assertThat(Money.lineTotal(new BigDecimal("19.99"), 7)).isEqualTo(13_993);
+        assertThat(Money.lineTotal(new BigDecimal("19.99"), 0)).isZero();
+    }
+
+    @Test
+    void totalMatchesBigDecimalArithmeticOfStoredPrices() {
+        List<OrderItem> items = List.of(
+                item("19.99", 3),
+                item("0.105", 10),
+                item("1250", 2),
+                item("7.5", 1));
+
+        BigDecimal expected = items.stream()
+                .map(item -> item.getPrice().setScale(Money.SCALE, RoundingMode.HALF_UP)
+                        .multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        BigDecimal total = Order.totalOf(items);
+        assertThat(total).isEqualTo(new BigDecimal("2568.57"));
+        assertThat(total).isEqualByComparingTo(expected);
+        assertThat(total.scale()).isEqualTo(Money.SCALE);
+    }
+
+    @Test
+    void emptyOrderTotalsZeroInStorageScale() {
+        assertThat(Order.totalOf(List.of())).isEqualTo(new BigDecimal("0.00"));
+        assertThat(Order.totalOf(null)).isEqualTo(new BigDecimal("0.00"));
+    }
+
+    @Test
+    void sameTotalForResponseAndEvent() {
+        Order order = new Order(List.of(item("19.99", 3), item("0.105", 10)));
+
+        assertThat(order.getTotalPrice()).isSameAs(order.getTotalPrice());
+        assertThat(order.getTotalPrice()).isEqualTo(new BigDecimal("61.07"));
+    }
+
+    @Test
+    void throwsOnOverflow() {
+        BigDecimal maxPrice = Money.toAmount(Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> Money.toMinor(new BigDecimal("1E+17"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.lineTotal(maxPrice, 2)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Order.totalOf(List.of(item(maxPrice.toPlainString(), 1), item("0.01", 1))))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    private static OrderItem item(String price, int quantity) {
+        return new OrderItem(1L, "product", quantity, new BigDecimal(price));
+    }
+}
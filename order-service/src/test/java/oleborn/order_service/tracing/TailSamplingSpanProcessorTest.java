@@ -0,0 +1,221 @@
+package oleborn.order_service.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Решения {@link TailSamplingSpanProcessor}: ошибка, медленный корень, доля по traceId,
+ * поздние спаны после решения и трейсы, вытесненные без корня.
+ */
+class TailSamplingSpanProcessorTest {
+
+    private static final Duration THRESHOLD = Duration.ofMillis(100);
+
+    private final List<SpanData> exported = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private SdkTracerProvider provider;
+    private Tracer tracer;
+
+    @AfterEach
+    void tearDown() {
+        if (provider != null) {
+            provider.shutdown().join(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void keepsTraceWithErrorSpan() {
+        start(0.0, 100, Duration.ofSeconds(10));
+
+        Span root = tracer.spanBuilder("root").startSpan();
+        Span child = childOf(root, "child");
+        child.setStatus(StatusCode.ERROR);
+        child.end();
+        root.end();
+
+        assertThat(exportedNames()).containsExactlyInAnyOrder("child", "root");
+        assertThat(decisions("kept_error")).isEqualTo(1);
+    }
+
+    @Test
+    void keepsSlowRoot() {
+        start(0.0, 100, Duration.ofSeconds(10));
+
+        long startNanos = System.nanoTime();
+        Span root = tracer.spanBuilder("root").setStartTimestamp(startNanos, TimeUnit.NANOSECONDS).startSpan();
+        root.end(startNanos + THRESHOLD.toNanos(), TimeUnit.NANOSECONDS);
+
+        assertThat(exportedNames()).containsExactly("root");
+        assertThat(decisions("kept_slow")).isEqualTo(1);
+    }
+
+    @Test
+    void dropsNormalTraceOutsideRatio() {
+        start(0.0, 100, Duration.ofSeconds(10));
+
+        Span root = tracer.spanBuilder("root").startSpan();
+        childOf(root, "child").end();
+        root.end();
+
+        assertThat(exported).isEmpty();
+        assertThat(decisions("dropped")).isEqualTo(1);
+    }
+
+    @Test
+    void keepsNormalTraceInsideRatio() {
+        start(1.0, 100, Duration.ofSeconds(10));
+
+        Span root = tracer.spanBuilder("root").startSpan();
+        childOf(root, "child").end();
+        root.end();
+
+        assertThat(exportedNames()).containsExactlyInAnyOrder("child", "root");
+        assertThat(decisions("kept_sampled")).isEqualTo(1);
+    }
+
+    @Test
+    void lateSpanFollowsDecisionOfItsTrace() {
+        start(0.0, 100, Duration.ofSeconds(10));
+
+        Span keptRoot = tracer.spanBuilder("kept-root").startSpan();
+        Span keptLate = childOf(keptRoot, "kept-late");
+        keptRoot.setStatus(StatusCode.ERROR);
+        keptRoot.end();
+
+        Span droppedRoot = tracer.spanBuilder("dropped-root").startSpan();
+        Span droppedLate = childOf(droppedRoot, "dropped-late");
+        droppedRoot.end();
+
+        // Колбэки отправки в Kafka заканчиваются уже после корня
+        keptLate.end();
+        droppedLate.end();
+
+        assertThat(exportedNames()).containsExactlyInAnyOrder("kept-root", "kept-late");
+    }
+
+    @Test
+    void decidesTraceWithoutRootOnTimeout() {
+        start(0.0, 100, THRESHOLD.multipliedBy(2));
+
+        Span root = tracer.spanBuilder("root").startSpan();
+        childOf(root, "orphan").end();
+
+        // Таймаут не меньше порога задержки: не дождавшийся корня трейс считается медленным
+        awaitUntil(() -> !exported.isEmpty());
+        assertThat(exportedNames()).containsExactly("orphan");
+        assertThat(decisions("kept_slow")).isEqualTo(1);
+
+        // Корень, закончившийся после решения по таймауту, идёт следом за трейсом
+        root.end();
+        assertThat(exportedNames()).containsExactlyInAnyOrder("orphan", "root");
+    }
+
+    @Test
+    void decidesTracesEvictedBySize() {
+        int maxTraces = 10;
+        int traces = 50;
+        start(1.0, maxTraces, Duration.ofSeconds(10));
+
+        for (int i = 0; i < traces; i++) {
+            Span root = tracer.spanBuilder("root").startSpan();
+            childOf(root, "child").end();
+        }
+
+        // Вытесненные буферы не теряются, а решаются по накопленному
+        awaitUntil(() -> exported.size() >= traces - maxTraces);
+        assertThat(exported).allMatch(span -> span.getName().equals("child"));
+        assertThat(decisions("kept_sampled")).isGreaterThanOrEqualTo(traces - maxTraces);
+    }
+
+    @Test
+    void dropsSpansOverPerTraceLimitButKeepsTheirError() {
+        start(0.0, 100, Duration.ofSeconds(10), 1);
+
+        Span root = tracer.spanBuilder("root").startSpan();
+        childOf(root, "first").end();
+        Span overflow = childOf(root, "overflow");
+        overflow.setStatus(StatusCode.ERROR);
+        overflow.end();
+        root.end();
+
+        assertThat(exportedNames()).containsExactly("first");
+        assertThat(decisions("kept_error")).isEqualTo(1);
+        assertThat(meterRegistry.counter("tracing.tail.spans.overflow").count()).isEqualTo(2);
+    }
+
+    private void start(double normalRatio, int maxTraces, Duration traceTimeout) {
+        start(normalRatio, maxTraces, traceTimeout, 256);
+    }
+
+    private void start(double normalRatio, int maxTraces, Duration traceTimeout, int maxSpansPerTrace) {
+        TailSamplingSpanProcessor processor = new TailSamplingSpanProcessor(
+                SimpleSpanProcessor.create(new CollectingExporter()),
+                THRESHOLD, normalRatio, maxTraces, maxSpansPerTrace, traceTimeout, meterRegistry);
+        provider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+        tracer = provider.get("tail-sampling-test");
+    }
+
+    private Span childOf(Span parent, String name) {
+        return tracer.spanBuilder(name).setParent(Context.root().with(parent)).startSpan();
+    }
+
+    private List<String> exportedNames() {
+        return exported.stream().map(SpanData::getName).toList();
+    }
+
+    private double decisions(String decision) {
+        return meterRegistry.counter("tracing.tail.traces", "decision", decision).count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in 10s").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final class CollectingExporter implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exported.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package oleborn.paymentservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import oleborn.paymentservice.config.CaffeineConfig;
+import oleborn.paymentservice.dictionary.PaymentStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Локальный кэш заказов, оплату которых этот узел уже довёл до конца.
+ * <p>
+ * Проверяется первым в {@code PaymentService}: повторная доставка команды, уже
+ * обработанной здесь же секунды назад, отсекается без round-trip'а в Redis и SELECT'а в БД.
+ * Redis-блокировка и уникальный индекс по {@code order_id} остаются источником истины
+ * для гонок между узлами — кэш только сокращает путь для «своих» повторов.
+ * <p>
+ * В кэш попадают только итоги, подтверждённые БД (платёж вставлен или уже существовал),
+ * и только после коммита транзакции: откатившийся платёж не должен отсекать повтор.
+ * Неуспешные попытки не кэшируются — их повтор должен дойти до обработки.
+ * <p>
+ * Метрики: {@code cache.payment.dedup.*} (hitCount, missCount, evictionCount, size...).
+ *
+ * @see CaffeineConfig – размер и TTL кэша
+ */
+@Component
+public class ProcessedPaymentCache {
+
+    private final Cache<Long, PaymentStatus> cache;
+
+    public ProcessedPaymentCache(Cache<Long, PaymentStatus> processedPaymentCache, MeterRegistry meterRegistry) {
+        this.cache = processedPaymentCache;
+
+        CaffeineCacheMetrics.monitor(
+                meterRegistry,
+                processedPaymentCache,
+                "payment.dedup",
+                "cache_type", "caffeine"
+        );
+    }
+
+    /**
+     * @return итог оплаты, если заказ уже обработан этим узлом
+     */
+    public Optional<PaymentStatus> outcome(Long orderId) {
+        return Optional.ofNullable(cache.getIfPresent(orderId));
+    }
+
+    /**
+     * Запоминает итог после коммита текущей транзакции (или сразу, если транзакции нет).
+     */
+    public void rememberAfterCommit(Long orderId, PaymentStatus status) {
+        afterCommit(() -> cache.put(orderId, status));
+    }
+
+    public void rememberAllAfterCommit(Collection<Long> orderIds, PaymentStatus status) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> orderIds.forEach(orderId -> cache.put(orderId, status)));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package oleborn.paymentservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import oleborn.paymentservice.dictionary.PaymentStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Конфигурация локального кэша Caffeine для дедупликации платежей.
+ * <p>
+ * Все настройки вынесены в properties (caffeine.payment.*).
+ */
+@Configuration
+public class CaffeineConfig {
+
+    @Value("${caffeine.payment.maximumSize:100000}")
+    private long maximumSize;              // максимальное количество заказов в кэше
+
+    @Value("${caffeine.payment.expireAfterWriteMinutes:60}")
+    private long expireAfterWriteMinutes;  // окно, в котором повторы обрабатываются без Redis и БД
+
+    /**
+     * Кэш «orderId → итог оплаты» для заказов, обработанных этим узлом.
+     * <p>
+     * Ограничен по размеру (вытеснение TinyLFU) и по времени: повторные доставки
+     * из {@code @RetryableTopic} приходят в пределах минут, дальше запись не нужна.
+     */
+    @Bean
+    public Cache<Long, PaymentStatus> processedPaymentCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .recordStats()
+                .build();
+    }
+}
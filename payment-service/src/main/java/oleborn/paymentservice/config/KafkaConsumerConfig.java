@@ -11,12 +11,15 @@ import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.converter.MappingJacksonParameterizedConverter;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.messaging.converter.SmartMessageConverter;
+import org.springframework.util.backoff.FixedBackOff;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -88,6 +91,41 @@ public class KafkaConsumerConfig {
         return factory;
     }
 
+    /**
+     * Фабрика пакетных (batch) контейнеров для PaymentBatchConsumer.
+     * <p>
+     * Слушатель получает весь результат poll (до {@code max.poll.records} команд) и
+     * обрабатывает его одним проходом: одна конвейерная (pipelined) команда Redis,
+     * один IN-запрос и по одному JDBC batch на платежи и на outbox.
+     * <p>
+     * Команды с неизвестным исходом авторизации слушатель не подтверждает
+     * ({@code BatchListenerFailedException}): обработчик ошибок повторяет доставку с них
+     * с паузой {@code retry-interval}; после {@code retry-attempts} попыток запись
+     * пропускается — зависшую сагу завершит её таймаут оплаты.
+     *
+     * @param maxPollRecords максимальный размер пакета за один poll
+     * @return фабрика для @KafkaListener с {@code batch = "true"}
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            @Value("${app.payment.batch.max-poll-records:500}") int maxPollRecords,
+            @Value("${app.payment.batch.retry-interval:5s}") Duration retryInterval,
+            @Value("${app.payment.batch.retry-attempts:3}") long retryAttempts
+    ) {
+        Map<String, Object> props = new HashMap<>(consumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(retryInterval.toMillis(), retryAttempts)));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setObservationEnabled(true);
+
+        return factory;
+    }
+
     @Bean
     public SmartMessageConverter smartMessageConverter(ObjectMapper objectMapper) {
         MappingJacksonParameterizedConverter converter = new MappingJacksonParameterizedConverter();
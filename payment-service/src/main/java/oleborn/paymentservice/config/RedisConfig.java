@@ -1,5 +1,10 @@
 package oleborn.paymentservice.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import oleborn.paymentservice.service.PaymentQueryService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -74,15 +79,31 @@ public class RedisConfig {
      * StringRedisTemplate уже настроен со строковыми сериализаторами для ключей и значений.
      */
 
-    //Настройка TTL по умолчанию (если используете Redis как кэш через @Cacheable)
+    /**
+     * Кэш чтения для API платежей ({@code PaymentQueryService}).
+     * <p>
+     * Значения — JSON с {@code @class}, как и в RedisTemplate, но с JavaTimeModule:
+     * в DTO есть {@code Instant}. Кэш {@code payments} живёт {@code app.payment.query.cache-ttl}.
+     */
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisCacheManager cacheManager(
+            RedisConnectionFactory connectionFactory,
+            @Value("${app.payment.query.cache-ttl:10m}") Duration paymentsTtl
+    ) {
+        GenericJackson2JsonRedisSerializer jsonSerializer = GenericJackson2JsonRedisSerializer.builder()
+                .objectMapper(new ObjectMapper()
+                        .registerModule(new JavaTimeModule())
+                        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS))
+                .defaultTyping(true)
+                .build();
+
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofHours(24))
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jsonSerializer));
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                .withCacheConfiguration(PaymentQueryService.CACHE_NAME, config.entryTtl(paymentsTtl))
                 .build();
     }
-}
\ No newline at end of file
+}
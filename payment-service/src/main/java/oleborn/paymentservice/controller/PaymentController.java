@@ -0,0 +1,42 @@
+package oleborn.paymentservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.paymentservice.domain.dto.PaymentResponseDto;
+import oleborn.paymentservice.service.PaymentQueryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/payments")
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentController {
+
+    private final PaymentQueryService paymentQueryService;
+
+    @Value("${app.payment.query.max-bulk-size:500}")
+    private int maxBulkSize;
+
+    @GetMapping("/by-order/{orderId}")
+    public ResponseEntity<PaymentResponseDto> getByOrderId(@PathVariable Long orderId) {
+        log.debug("Request payment for order {}", orderId);
+        return ResponseEntity.of(paymentQueryService.findByOrderId(orderId));
+    }
+
+    /**
+     * Пакетный вариант: {@code GET /payments/by-order?orderIds=1,2,3}.
+     * Заказы без платежа в ответ не попадают.
+     */
+    @GetMapping("/by-order")
+    public ResponseEntity<List<PaymentResponseDto>> getByOrderIds(@RequestParam List<Long> orderIds) {
+        log.debug("Request payments for {} orders", orderIds.size());
+        if (orderIds.size() > maxBulkSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(paymentQueryService.findByOrderIds(orderIds));
+    }
+}
@@ -0,0 +1,22 @@
+package oleborn.paymentservice.domain.dto;
+
+import oleborn.paymentservice.dictionary.PaymentStatus;
+import oleborn.paymentservice.domain.entity.Payment;
+
+import java.time.Instant;
+
+public record PaymentResponseDto(
+        Long orderId,
+        String transactionId,
+        PaymentStatus status,
+        Instant createdAt
+) {
+    public static PaymentResponseDto from(Payment payment) {
+        return new PaymentResponseDto(
+                payment.getOrderId(),
+                payment.getTransactionId(),
+                payment.getStatus(),
+                payment.getCreatedAt() == null ? null : payment.getCreatedAt().toInstant()
+        );
+    }
+}
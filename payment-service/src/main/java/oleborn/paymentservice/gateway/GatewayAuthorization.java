@@ -0,0 +1,23 @@
+package oleborn.paymentservice.gateway;
+
+/**
+ * Ответ шлюза на авторизацию.
+ *
+ * @param transactionId идентификатор операции в шлюзе — есть и у отказов
+ * @param approved      true — деньги списаны, false — отказ (недостаточно средств, фрод и т.п.)
+ * @param declineReason причина отказа, null для успешной авторизации
+ */
+public record GatewayAuthorization(
+        String transactionId,
+        boolean approved,
+        String declineReason
+) {
+
+    public static GatewayAuthorization approved(String transactionId) {
+        return new GatewayAuthorization(transactionId, true, null);
+    }
+
+    public static GatewayAuthorization declined(String transactionId, String reason) {
+        return new GatewayAuthorization(transactionId, false, reason);
+    }
+}
@@ -0,0 +1,17 @@
+package oleborn.paymentservice.gateway;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Внешний платёжный шлюз (эквайринг).
+ * <p>
+ * Вызов не блокирует поток: future завершается, когда шлюз ответил.
+ * Отказ по карте — это обычный ответ ({@link GatewayAuthorization#approved()} = false),
+ * а недоступность шлюза или таймаут — исключительное завершение с {@link PaymentGatewayException}.
+ * Боевая реализация должна быть идемпотентна по orderId: повтор после таймаута не списывает деньги дважды.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<GatewayAuthorization> authorize(Long orderId, BigDecimal amount);
+}
@@ -0,0 +1,16 @@
+package oleborn.paymentservice.gateway;
+
+/**
+ * Шлюз не дал ответа: недоступен, вернул ошибку или не уложился в таймаут.
+ * Исход авторизации неизвестен — платёж можно повторить (шлюз идемпотентен по orderId).
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,94 @@
+package oleborn.paymentservice.gateway;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Локальная имитация платёжного шлюза — для стендов и замеров без реального эквайринга.
+ * <p>
+ * Задержка ответа распределена логнормально (типичная форма латентности сетевого сервиса:
+ * плотное ядро и длинный хвост) и задаётся медианой и 99-м перцентилем. Ответ «приходит»
+ * по таймеру одного планировщика, поэтому тысячи авторизаций в полёте не занимают потоков.
+ * <p>
+ * Исходы: {@code decline-rate} — отказ по карте, {@code error-rate} — техническая ошибка шлюза
+ * ({@link PaymentGatewayException}); остальное — успешная авторизация.
+ * Идентификатор операции детерминирован по orderId, как у идемпотентного шлюза.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.payment.gateway.type", havingValue = "simulated", matchIfMissing = true)
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    // z-оценка 99-го перцентиля стандартного нормального распределения
+    private static final double Z_99 = 2.326;
+
+    private final double latencyMu;
+    private final double latencySigma;
+    private final double declineRate;
+    private final double errorRate;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public SimulatedPaymentGateway(
+            @Value("${app.payment.gateway.simulated.latency-median:120ms}") Duration latencyMedian,
+            @Value("${app.payment.gateway.simulated.latency-p99:800ms}") Duration latencyP99,
+            @Value("${app.payment.gateway.simulated.decline-rate:0.02}") double declineRate,
+            @Value("${app.payment.gateway.simulated.error-rate:0.005}") double errorRate
+    ) {
+        if (latencyP99.compareTo(latencyMedian) < 0) {
+            throw new IllegalArgumentException("latency-p99 must not be less than latency-median");
+        }
+        long medianMicros = Math.max(1, latencyMedian.toNanos() / 1000);
+        this.latencyMu = Math.log(medianMicros);
+        this.latencySigma = Math.log((double) Math.max(medianMicros, latencyP99.toNanos() / 1000) / medianMicros) / Z_99;
+        this.declineRate = declineRate;
+        this.errorRate = errorRate;
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "payment-gateway-sim");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+
+        log.info("Имитация платёжного шлюза: медиана {}, p99 {}, отказы {}, ошибки {}",
+                latencyMedian, latencyP99, declineRate, errorRate);
+    }
+
+    @Override
+    public CompletableFuture<GatewayAuthorization> authorize(Long orderId, BigDecimal amount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latencyMicros = Math.round(Math.exp(latencyMu + latencySigma * random.nextGaussian()));
+        double outcome = random.nextDouble();
+        String transactionId = "txn_sim_" + orderId;
+
+        CompletableFuture<GatewayAuthorization> result = new CompletableFuture<>();
+
+        scheduler.schedule(() -> {
+            if (outcome < errorRate) {
+                result.completeExceptionally(
+                        new PaymentGatewayException("Шлюз вернул ошибку для заказа " + orderId));
+            } else if (outcome < errorRate + declineRate) {
+                result.complete(GatewayAuthorization.declined(transactionId, "insufficient_funds"));
+            } else {
+                result.complete(GatewayAuthorization.approved(transactionId));
+            }
+        }, latencyMicros, TimeUnit.MICROSECONDS);
+
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
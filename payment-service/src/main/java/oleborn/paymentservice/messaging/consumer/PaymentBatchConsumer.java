@@ -0,0 +1,104 @@
+package oleborn.paymentservice.messaging.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.paymentservice.domain.command.ProcessPaymentCommand;
+import oleborn.paymentservice.gateway.PaymentGatewayException;
+import oleborn.paymentservice.service.PaymentService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пакетная обработка ProcessPaymentCommand — оплата самый медленный этап саги.
+ * <p>
+ * Весь poll обрабатывается одним вызовом {@link PaymentService#processPayments}.
+ * Если пакет упал (Redis/БД недоступны, ошибка сериализации события), команды
+ * обрабатываются поштучно через {@link PaymentService#processPayment}: он сам
+ * публикует PaymentFailedEvent по каждой упавшей команде.
+ * <p>
+ * Команды, по которым шлюз не дал ответа (исход авторизации неизвестен), не подтверждаются:
+ * {@link BatchListenerFailedException} указывает на первую из них, записи до неё
+ * коммитятся, а с неё пакет доставляется повторно ({@code DefaultErrorHandler}
+ * фабрики {@code batchKafkaListenerContainerFactory}). Уже обработанные команды
+ * повторной доставки отсекаются дедупликацией.
+ * <p>
+ * {@code @RetryableTopic} с пакетными слушателями не работает, поэтому повторы
+ * здесь — это поштучный проход и повторная доставка, а не retry-топики, как у {@link PaymentConsumer}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.payment.batch.enabled", havingValue = "true")
+public class PaymentBatchConsumer {
+
+    private final PaymentService paymentService;
+
+    @KafkaListener(
+            topics = "${app.topic.payment-commands}",
+            groupId = "payment-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            batch = "true"
+    )
+    public void handleProcessPaymentBatch(List<ConsumerRecord<String, Object>> records, Acknowledgment acknowledgment) {
+
+        List<ProcessPaymentCommand> commands = new ArrayList<>(records.size());
+        // orderId → позиция первой записи заказа в пакете
+        Map<Long, Integer> positions = new HashMap<>();
+
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, Object> record = records.get(i);
+            if (!(record.value() instanceof ProcessPaymentCommand command) || command.orderId() == null) {
+                // Поштучный режим отправил бы такую запись в DLT без повторов
+                log.error("Пропускаем некорректную команду {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), record.value());
+                continue;
+            }
+            commands.add(command);
+            positions.putIfAbsent(command.orderId(), i);
+        }
+
+        Set<Long> unknownOutcome = commands.isEmpty() ? Set.of() : process(commands);
+
+        if (!unknownOutcome.isEmpty()) {
+            int retryFrom = unknownOutcome.stream().mapToInt(positions::get).min().orElseThrow();
+            throw new BatchListenerFailedException(
+                    "Исход авторизации неизвестен для " + unknownOutcome.size() + " заказов, повтор с позиции " + retryFrom,
+                    retryFrom);
+        }
+
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * @return заказы с неизвестным исходом авторизации
+     */
+    private Set<Long> process(List<ProcessPaymentCommand> commands) {
+        try {
+            return paymentService.processPayments(commands);
+
+        } catch (Exception e) {
+            log.warn("Пакетная обработка {} команд оплаты упала, переходим к поштучной", commands.size(), e);
+        }
+
+        Set<Long> unknownOutcome = new HashSet<>();
+        for (ProcessPaymentCommand command : commands) {
+            try {
+                paymentService.processPayment(command);
+            } catch (PaymentGatewayException e) {
+                unknownOutcome.add(command.orderId());
+            }
+        }
+        return unknownOutcome;
+    }
+}
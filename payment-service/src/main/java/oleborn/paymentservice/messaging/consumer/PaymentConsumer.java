@@ -3,7 +3,8 @@ package oleborn.paymentservice.messaging.consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import oleborn.paymentservice.domain.command.ProcessPaymentCommand;
-import oleborn.paymentservice.service.PaymentService;
+import oleborn.paymentservice.service.PaymentAuthorizationPipeline;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaHandler;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -15,9 +16,19 @@ import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Поштучная обработка ProcessPaymentCommand через {@link PaymentAuthorizationPipeline}:
+ * одна партиция держит в полёте до {@code app.payment.gateway.max-in-flight} оплат.
+ * <p>
+ * Активен по умолчанию; при {@code app.payment.batch.enabled=true} его заменяет
+ * {@link PaymentBatchConsumer}.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.payment.batch.enabled", havingValue = "false", matchIfMissing = true)
 @RetryableTopic(
         attempts = "3",
         backoff = @Backoff(delay = 1000, maxDelay = 10000, multiplier = 2.0, random = true),
@@ -44,13 +55,15 @@ import org.springframework.stereotype.Component;
 )
 public class PaymentConsumer {
 
-    private final PaymentService paymentService;
+    private final PaymentAuthorizationPipeline paymentAuthorizationPipeline;
 
+    /**
+     * Возвращает future вместо ручного acknowledge: spring-kafka подтверждает offset,
+     * когда future завершился, а до этого читает следующие записи (out-of-order commits).
+     * Ошибка в future обрабатывается так же, как брошенное исключение — через retry-топики.
+     */
     @KafkaHandler
-    public void handleOrderCreated(
-            ProcessPaymentCommand command,
-            Acknowledgment acknowledgment
-    ) {
+    public CompletableFuture<Void> handleOrderCreated(ProcessPaymentCommand command) throws InterruptedException {
         log.info("Принято сообщение из топика payment-events");
 
         Long orderId = command.orderId();
@@ -62,13 +75,8 @@ public class PaymentConsumer {
 
         log.info("Обработка оплаты для заказа {}", orderId);
 
-        // 3. Выполняем оплату (имитация бизнес-логики)
-        paymentService.processPayment(command);
-
-//        throw new RuntimeException("Неожиданное прерывание приложения!");
-
-        // 4. Подтверждаем offset
-        acknowledgment.acknowledge();
+        // 3. Ставим оплату в конвейер: ответа шлюза ждёт future, а не поток consumer'а
+        return paymentAuthorizationPipeline.submit(command);
     }
 
     @KafkaHandler(isDefault = true)
@@ -2,9 +2,6 @@ package oleborn.paymentservice.messaging.producer;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import oleborn.paymentservice.domain.event.PaymentCompletedEvent;
-import oleborn.paymentservice.domain.event.PaymentFailedEvent;
-import oleborn.paymentservice.domain.event.PaymentStartedEvent;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
@@ -12,6 +9,12 @@ import org.springframework.stereotype.Service;
 
 import java.util.concurrent.CompletableFuture;
 
+/**
+ * Отправка payment-событий в Kafka.
+ * <p>
+ * Сервис напрямую не публикует: события пишутся в outbox ({@code PaymentOutbox}),
+ * а сюда их передаёт {@code OutboxRelay} — пакетами, с одним flush на пакет.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -23,37 +26,21 @@ public class PaymentProducer {
     // Используем надёжный продюсер (primary)
     private final KafkaTemplate<String, Object> reliableKafkaTemplate;
 
-    public void sendPaymentCompletedEvent(PaymentCompletedEvent event) {
-        //Все события для одного orderId будут попадать в одну партицию → сохраняется порядок событий по заказу
-        send(paymentEventsTopic, String.valueOf(event.orderId()), event);
+    /**
+     * Ставит событие в буфер продюсера, не дожидаясь брокера.
+     *
+     * @param key orderId — все события для одного заказа попадают в одну партицию,
+     *            что сохраняет порядок событий по заказу
+     * @return future подтверждения брокера; ошибки обрабатывает вызывающий
+     */
+    public CompletableFuture<SendResult<String, Object>> publish(String key, Object event) {
+        return reliableKafkaTemplate.send(paymentEventsTopic, key, event);
     }
 
-    public void sendPaymentFailedEvent(PaymentFailedEvent event) {
-        send(paymentEventsTopic, String.valueOf(event.orderId()), event);
+    /**
+     * Дожидается отправки всего накопленного в буфере продюсера.
+     */
+    public void flush() {
+        reliableKafkaTemplate.flush();
     }
-
-    public void sendPaymentStartedEvent(PaymentStartedEvent event) {
-        send(paymentEventsTopic, String.valueOf(event.orderId()), event);
-    }
-
-    private void send(String topic, String key, Object event) {
-
-        //Возвращает CompletableFuture, который завершится, когда брокер подтвердит получение (или будет ошибка)
-        CompletableFuture<SendResult<String, Object>> future = reliableKafkaTemplate.send(topic, key, event);
-
-        //Асинхронное ожидание результата. Позволяет выполнить код после того, как брокер ответит (или ошибка), не блокируя основной поток
-        future.whenComplete((result, ex) -> {
-            if (ex == null) {
-                log.info("Событие отправлено в topic: {}, partition: {}, offset: {}",
-                        paymentEventsTopic,
-                        result.getRecordMetadata().partition(),
-                        result.getRecordMetadata().offset()
-                );
-            } else {
-                log.error("Ошибка отправки события по orderId: {}", key, ex);
-                // Здесь можно сохранить в outbox
-            }
-        });
-    }
-
 }
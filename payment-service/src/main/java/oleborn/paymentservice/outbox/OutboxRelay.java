@@ -0,0 +1,213 @@
+package oleborn.paymentservice.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.paymentservice.messaging.producer.PaymentProducer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Внутрипроцессный релей outbox → Kafka.
+ * <p>
+ * За один проход забирает до {@code app.outbox.batch-size} событий, ставит их все в буфер
+ * продюсера, делает один flush, дожидается подтверждений брокера и одним UPDATE помечает
+ * пакет как PUBLISHED — всё в одной транзакции.
+ * Пока пакеты приходят полными, проход повторяется без паузы.
+ * <p>
+ * Несколько экземпляров сервиса делят очередь по агрегатам, а не по строкам: события заказа
+ * забирает тот, кто взял транзакционный advisory-lock на его {@code aggregateid}. При
+ * построчном {@code SKIP LOCKED} второй экземпляр мог бы опубликовать более позднее событие
+ * заказа раньше, чем первый — предыдущее. Заказы, занятые другим экземпляром, пропускаются
+ * до следующего прохода.
+ * <p>
+ * Гарантия — at-least-once: если брокер подтвердил часть пакета, а транзакция откатилась,
+ * эти события уйдут повторно. Потребители payment-событий идемпотентны по orderId.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    // Заказы из головы очереди; повторы aggregateid убираются на стороне приложения
+    private static final String HEAD_SQL = """
+            SELECT aggregateid
+            FROM payment_outbox_event
+            WHERE status = 'NEW'
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    // Блокировка снимается коммитом или откатом транзакции прохода
+    private static final String LOCK_SQL = """
+            SELECT aggregateid
+            FROM unnest(?::text[]) AS candidate(aggregateid)
+            WHERE pg_try_advisory_xact_lock(hashtext('payment_outbox'), hashtext(aggregateid))
+            """;
+
+    // Отдельный запрос после блокировки: его снимок уже видит коммит предыдущего владельца заказа
+    private static final String CLAIM_SQL = """
+            SELECT id, aggregateid, eventtype, payload::text AS payload
+            FROM payment_outbox_event
+            WHERE status = 'NEW' AND aggregateid = ANY(?::text[])
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final PaymentProducer paymentProducer;
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.outbox.send-timeout:30s}")
+    private Duration sendTimeout;
+
+    @Value("${app.outbox.retention:24h}")
+    private Duration retention;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:100}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = transactionTemplate.execute(status -> publishBatch());
+            } while (published == batchSize);
+
+        } catch (Exception e) {
+            log.error("Ошибка публикации outbox, повтор на следующем проходе", e);
+        }
+    }
+
+    /**
+     * Опубликованные события больше не нужны — удаляем их по истечении срока хранения.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval:3600000}")
+    public void cleanup() {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM payment_outbox_event WHERE status = 'PUBLISHED' AND processed_at < now() - make_interval(secs => ?)",
+                retention.toSeconds());
+        if (deleted > 0) {
+            log.info("Удалено {} опубликованных событий outbox старше {}", deleted, retention);
+        }
+    }
+
+    private int publishBatch() {
+        Set<String> head = new LinkedHashSet<>(
+                jdbcTemplate.queryForList(HEAD_SQL, String.class, batchSize));
+        if (head.isEmpty()) {
+            return 0;
+        }
+
+        List<String> owned = jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(LOCK_SQL);
+                    statement.setArray(1, connection.createArrayOf("text", head.toArray()));
+                    return statement;
+                },
+                (rs, rowNum) -> rs.getString("aggregateid"));
+        if (owned.isEmpty()) {
+            // Вся голова очереди занята другими экземплярами
+            return 0;
+        }
+
+        List<OutboxRecord> records = jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(CLAIM_SQL);
+                    statement.setArray(1, connection.createArrayOf("text", owned.toArray()));
+                    statement.setInt(2, batchSize);
+                    return statement;
+                },
+                (rs, rowNum) -> new OutboxRecord(
+                        rs.getLong("id"),
+                        rs.getString("aggregateid"),
+                        rs.getString("eventtype"),
+                        rs.getString("payload")));
+
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(records.size());
+        List<Long> poison = new ArrayList<>();
+
+        for (OutboxRecord record : records) {
+            Object event = toEvent(record);
+            if (event == null) {
+                poison.add(record.id());
+                continue;
+            }
+            futures.add(paymentProducer.publish(record.aggregateId(), event));
+        }
+
+        // Один flush на весь пакет, затем ждём подтверждения брокера до коммита статусов
+        paymentProducer.flush();
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("Брокер не подтвердил пакет outbox из " + records.size() + " событий", e);
+        }
+
+        List<Long> published = records.stream()
+                .map(OutboxRecord::id)
+                .filter(id -> !poison.contains(id))
+                .toList();
+        markStatus(published, "PUBLISHED");
+        // Повтор их не исправит, а без отметки они навсегда заблокировали бы начало очереди
+        markStatus(poison, "FAILED");
+
+        log.info("Опубликовано {} событий outbox одним пакетом", published.size());
+        return records.size();
+    }
+
+    private void markStatus(List<Long> ids, String status) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(connection -> {
+            Array idArray = connection.createArrayOf("bigint", ids.toArray());
+            PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE payment_outbox_event SET status = ?, processed_at = now() WHERE id = ANY(?)");
+            statement.setString(1, status);
+            statement.setArray(2, idArray);
+            return statement;
+        });
+    }
+
+    /**
+     * @return событие или {@code null}, если запись невозможно опубликовать
+     */
+    private Object toEvent(OutboxRecord record) {
+        Class<?> type = PaymentOutbox.EVENT_TYPES.get(record.eventType());
+        if (type == null) {
+            log.error("Неизвестный тип события outbox {}: {}", record.id(), record.eventType());
+            return null;
+        }
+        try {
+            return objectMapper.readValue(record.payload(), type);
+        } catch (Exception e) {
+            log.error("Не удалось прочитать событие outbox {}", record.id(), e);
+            return null;
+        }
+    }
+
+    private record OutboxRecord(long id, String aggregateId, String eventType, String payload) {
+    }
+}
@@ -0,0 +1,95 @@
+package oleborn.paymentservice.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import oleborn.paymentservice.domain.event.PaymentCompletedEvent;
+import oleborn.paymentservice.domain.event.PaymentFailedEvent;
+import oleborn.paymentservice.domain.event.PaymentStartedEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Запись событий payment-service в таблицу {@code payment_outbox_event}.
+ * <p>
+ * Событие пишется в той же транзакции, что и платёж, поэтому в Kafka уйдёт ровно то,
+ * что закоммичено в {@code payments}: ни «отправили, но откатили», ни «сохранили, но не отправили».
+ * Публикацией занимается {@link OutboxRelay}.
+ * <p>
+ * Таблица своя, а не общая {@code outbox_event} order-service: сервисы живут в одной схеме,
+ * а Debezium-коннектор ({@code table.include.list: public.outbox_event}) не должен
+ * подхватывать платёжные события.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentOutbox {
+
+    /**
+     * Типы событий по значению {@code eventtype} — релей восстанавливает по нему класс,
+     * чтобы JsonSerializer проставил тот же {@code __TypeId__}, что и при прямой отправке.
+     */
+    static final Map<String, Class<?>> EVENT_TYPES = Stream.of(
+                    PaymentStartedEvent.class,
+                    PaymentCompletedEvent.class,
+                    PaymentFailedEvent.class)
+            .collect(Collectors.toUnmodifiableMap(Class::getSimpleName, Function.identity()));
+
+    private static final String INSERT_SQL =
+            "INSERT INTO payment_outbox_event(aggregateid, eventtype, payload) VALUES (?, ?, ?::json)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Кладёт событие в outbox текущей транзакции.
+     *
+     * @param orderId ключ сообщения — все события заказа попадают в одну партицию
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(Long orderId, Object event) {
+        jdbcTemplate.update(INSERT_SQL, row(orderId, event));
+    }
+
+    /**
+     * Пакетная запись событий одним JDBC batch (для PaymentService.processPayments).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<OutboxEntry> entries) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries.stream()
+                .map(entry -> row(entry.orderId(), entry.event()))
+                .toList());
+    }
+
+    /**
+     * Событие об ошибке пишется в отдельной транзакции: основная к этому моменту
+     * может быть помечена rollback-only (например, после ошибки JPA), и вместе
+     * с ней пропал бы и PaymentFailedEvent.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void appendInNewTransaction(Long orderId, Object event) {
+        jdbcTemplate.update(INSERT_SQL, row(orderId, event));
+    }
+
+    private Object[] row(Long orderId, Object event) {
+        String eventType = event.getClass().getSimpleName();
+        if (!EVENT_TYPES.containsKey(eventType)) {
+            throw new IllegalArgumentException("Неизвестный тип события для outbox: " + eventType);
+        }
+        try {
+            return new Object[]{String.valueOf(orderId), eventType, objectMapper.writeValueAsString(event)};
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Не удалось сериализовать событие " + eventType, e);
+        }
+    }
+
+    public record OutboxEntry(Long orderId, Object event) {
+    }
+}
@@ -0,0 +1,51 @@
+package oleborn.paymentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import oleborn.paymentservice.domain.entity.Payment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетная вставка платежей через JDBC.
+ * <p>
+ * Hibernate не умеет батчить INSERT для {@code GenerationType.IDENTITY} — каждый
+ * {@code save} это отдельный round-trip ради сгенерированного id. Здесь все строки
+ * уходят одним {@code batchUpdate}, а гонку за {@code order_id} решает
+ * {@code ON CONFLICT DO NOTHING} вместо DataIntegrityViolationException.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentBatchRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO payments(order_id, transaction_id, status, created_at)
+            VALUES (?, ?, ?, now())
+            ON CONFLICT (order_id) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return платежи, которые действительно вставлены; остальные уже создал кто-то параллельно
+     */
+    public List<Payment> insertAll(List<Payment> payments) {
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_SQL, payments.stream()
+                .map(payment -> new Object[]{
+                        payment.getOrderId(),
+                        payment.getTransactionId(),
+                        payment.getStatus().name()
+                })
+                .toList());
+
+        List<Payment> inserted = new ArrayList<>(payments.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                inserted.add(payments.get(i));
+            }
+        }
+        return inserted;
+    }
+}
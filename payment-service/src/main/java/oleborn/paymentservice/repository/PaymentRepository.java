@@ -1,11 +1,41 @@
 package oleborn.paymentservice.repository;
 
+import oleborn.paymentservice.dictionary.PaymentStatus;
 import oleborn.paymentservice.domain.entity.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     Optional<Payment> findByOrderId(Long orderId);
+
+    /**
+     * Итоги уже существующих платежей (COMPLETED или FAILED) — одним IN-запросом
+     * вместо findByOrderId на каждый заказ.
+     *
+     * @return orderId → статус; заказов без платежа в результате нет
+     */
+    default Map<Long, PaymentStatus> findStatusesByOrderIds(Collection<Long> orderIds) {
+        return findOutcomes(orderIds).stream()
+                .collect(Collectors.toMap(PaymentOutcome::getOrderId, PaymentOutcome::getStatus));
+    }
+
+    @Query("select p.orderId as orderId, p.status as status from Payment p where p.orderId in :orderIds")
+    List<PaymentOutcome> findOutcomes(@Param("orderIds") Collection<Long> orderIds);
+
+    interface PaymentOutcome {
+
+        Long getOrderId();
+
+        PaymentStatus getStatus();
+    }
+
+    List<Payment> findAllByOrderIdIn(Collection<Long> orderIds);
 }
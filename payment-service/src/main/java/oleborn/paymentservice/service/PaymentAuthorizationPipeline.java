@@ -0,0 +1,118 @@
+package oleborn.paymentservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import oleborn.paymentservice.domain.command.ProcessPaymentCommand;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Конвейер оплат: много авторизаций в шлюзе одновременно без занятых потоков.
+ * <p>
+ * Поток consumer'а только ставит команду в конвейер и сразу берёт следующую запись.
+ * Шаги {@link PaymentService#startPayment} и {@link PaymentService#completePayment} (Redis и БД)
+ * выполняются на небольшом пуле {@code worker-threads}, а ожидание шлюза не занимает ни одного потока.
+ * <ul>
+ *   <li>Число оплат в полёте ограничено семафором {@code max-in-flight}: когда он исчерпан,
+ *       consumer ждёт в {@link #submit} — это и есть backpressure на чтение из Kafka.</li>
+ *   <li>Команды одного заказа выполняются строго друг за другом: каждая следующая
+ *       цепляется за future предыдущей. Разные заказы друг друга не ждут.</li>
+ * </ul>
+ * Ошибка любого шага обрабатывается {@link PaymentService#abortPayment}, поэтому
+ * возвращаемый future завершается успешно — как и поштучный {@link PaymentService#processPayment}.
+ * Исключение — неизвестный исход авторизации: future завершается с
+ * {@link oleborn.paymentservice.gateway.PaymentGatewayException}, и запись уходит в retry-топики.
+ */
+@Component
+@Slf4j
+public class PaymentAuthorizationPipeline {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final PaymentService paymentService;
+    private final Semaphore inFlight;
+    private final ExecutorService workers;
+
+    // orderId → хвост цепочки команд этого заказа; удаляется, когда цепочка опустела
+    private final ConcurrentMap<Long, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public PaymentAuthorizationPipeline(
+            PaymentService paymentService,
+            MeterRegistry meterRegistry,
+            @Value("${app.payment.gateway.max-in-flight:256}") int maxInFlight,
+            @Value("${app.payment.gateway.worker-threads:8}") int workerThreads
+    ) {
+        this.paymentService = paymentService;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads,
+                runnable -> new Thread(runnable, "payment-pipeline-" + threadNumber.incrementAndGet()));
+
+        Gauge.builder("payment.pipeline.in_flight", inFlight, semaphore -> maxInFlight - semaphore.availablePermits())
+                .description("Оплаты, принятые в конвейер и ещё не завершённые")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит оплату в конвейер.
+     * Блокирует вызывающий поток, только если в полёте уже {@code max-in-flight} оплат.
+     *
+     * @return future, завершающийся после записи итога в БД и outbox или ошибкой,
+     *         если шлюз не дал ответа и команду нужно повторить
+     */
+    public CompletableFuture<Void> submit(ProcessPaymentCommand command) throws InterruptedException {
+        inFlight.acquire();
+
+        Long orderId = command.orderId();
+
+        CompletableFuture<Void> result;
+        try {
+            // Сбой предыдущей команды заказа не отменяет следующую — ждём только её завершения
+            result = tails.compute(orderId, (id, tail) -> (tail == null ? DONE : tail.exceptionally(ex -> null))
+                    .thenComposeAsync(ignored -> process(command), workers));
+        } catch (RuntimeException ex) {
+            inFlight.release();
+            throw ex;
+        }
+
+        result.whenComplete((ignored, ex) -> {
+            tails.remove(orderId, result);
+            inFlight.release();
+        });
+
+        return result;
+    }
+
+    private CompletableFuture<Void> process(ProcessPaymentCommand command) {
+        CompletableFuture<Void> steps;
+        try {
+            steps = paymentService.startPayment(command)
+                    ? paymentService.authorize(command)
+                            .thenAcceptAsync(authorization -> paymentService.completePayment(command, authorization), workers)
+                    : DONE;
+        } catch (RuntimeException ex) {
+            steps = CompletableFuture.failedFuture(ex);
+        }
+        // abortPayment пробрасывает неизвестный исход шлюза — тогда future завершится ошибкой
+        return steps.exceptionallyAsync(ex -> {
+            paymentService.abortPayment(command.orderId(), ex);
+            return null;
+        }, workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,150 @@
+package oleborn.paymentservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import oleborn.paymentservice.domain.dto.PaymentResponseDto;
+import oleborn.paymentservice.repository.PaymentRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Чтение платежей для API поддержки через кэш {@value #CACHE_NAME} в Redis.
+ * <p>
+ * Во время инцидентов одни и те же заказы запрашивают многократно — повтор отдаётся
+ * из Redis и не доходит до primary Postgres. Отсутствующие платежи не кэшируются:
+ * оплата может появиться через секунду.
+ * <p>
+ * Пакетный запрос читает все ключи одним MGET и добирает из БД только промахи одним IN-запросом.
+ * Ключи и формат значений — те же, что у {@code @Cacheable}, поэтому оба пути делят один кэш.
+ * <p>
+ * Инвалидация: {@link PaymentService} после коммита любой записи платежа вызывает
+ * {@link #evictAfterCommit}; TTL ({@code app.payment.query.cache-ttl}) — страховка на случай
+ * пропущенной инвалидации.
+ */
+@Service
+@Slf4j
+public class PaymentQueryService {
+
+    public static final String CACHE_NAME = "payments";
+
+    private final PaymentRepository paymentRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCache cache;
+
+    public PaymentQueryService(
+            PaymentRepository paymentRepository,
+            RedisTemplate<String, Object> redisTemplate,
+            RedisCacheManager cacheManager
+    ) {
+        this.paymentRepository = paymentRepository;
+        this.redisTemplate = redisTemplate;
+        this.cache = (RedisCache) cacheManager.getCache(CACHE_NAME);
+    }
+
+    @Cacheable(cacheNames = CACHE_NAME, key = "#orderId", unless = "#result == null")
+    @Transactional(readOnly = true)
+    public Optional<PaymentResponseDto> findByOrderId(Long orderId) {
+        return paymentRepository.findByOrderId(orderId).map(PaymentResponseDto::from);
+    }
+
+    /**
+     * @return найденные платежи в порядке запрошенных orderId; отсутствующие пропускаются
+     */
+    @Transactional(readOnly = true)
+    public List<PaymentResponseDto> findByOrderIds(Collection<Long> orderIds) {
+
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        byte[][] keys = cacheKeys(ids);
+        List<byte[]> cached = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(keys));
+
+        RedisCacheConfiguration config = cache.getCacheConfiguration();
+        Map<Long, PaymentResponseDto> found = new HashMap<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] value = cached == null ? null : cached.get(i);
+            if (value == null) {
+                missing.add(ids.get(i));
+            } else {
+                found.put(ids.get(i), (PaymentResponseDto) config.getValueSerializationPair().read(ByteBuffer.wrap(value)));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            paymentRepository.findAllByOrderIdIn(missing).forEach(payment -> {
+                PaymentResponseDto dto = PaymentResponseDto.from(payment);
+                found.put(dto.orderId(), dto);
+                cache.put(dto.orderId(), dto);
+            });
+        }
+
+        log.debug("Пакетный запрос {} платежей: из кэша {}, из БД {}",
+                ids.size(), ids.size() - missing.size(), found.size() - (ids.size() - missing.size()));
+
+        List<PaymentResponseDto> result = new ArrayList<>(found.size());
+        for (Long orderId : ids) {
+            PaymentResponseDto dto = found.get(orderId);
+            if (dto != null) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Сбрасывает закэшированные платежи после коммита текущей транзакции (или сразу, если её нет):
+     * до коммита параллельное чтение может положить в кэш ещё старое состояние.
+     */
+    public void evictAfterCommit(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(orderIds);
+        Runnable evict = () -> redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.keyCommands().del(cacheKeys(ids)));
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict.run();
+            }
+        });
+    }
+
+    // Тот же ключ, что строит RedisCache для @Cacheable: "payments::" + orderId
+    private byte[][] cacheKeys(List<Long> orderIds) {
+        RedisCacheConfiguration config = cache.getCacheConfiguration();
+        String prefix = config.getKeyPrefixFor(CACHE_NAME);
+        byte[][] keys = new byte[orderIds.size()][];
+        for (int i = 0; i < orderIds.size(); i++) {
+            keys[i] = ByteUtils.getBytes(config.getKeySerializationPair().write(prefix + orderIds.get(i)));
+        }
+        return keys;
+    }
+}
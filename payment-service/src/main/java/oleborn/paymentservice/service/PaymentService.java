@@ -2,108 +2,431 @@ package oleborn.paymentservice.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import oleborn.paymentservice.cache.ProcessedPaymentCache;
 import oleborn.paymentservice.dictionary.PaymentStatus;
 import oleborn.paymentservice.domain.command.ProcessPaymentCommand;
 import oleborn.paymentservice.domain.entity.Payment;
 import oleborn.paymentservice.domain.event.PaymentCompletedEvent;
 import oleborn.paymentservice.domain.event.PaymentFailedEvent;
 import oleborn.paymentservice.domain.event.PaymentStartedEvent;
-import oleborn.paymentservice.messaging.producer.PaymentProducer;
+import oleborn.paymentservice.gateway.GatewayAuthorization;
+import oleborn.paymentservice.gateway.PaymentGateway;
+import oleborn.paymentservice.gateway.PaymentGatewayException;
+import oleborn.paymentservice.outbox.PaymentOutbox;
+import oleborn.paymentservice.outbox.PaymentOutbox.OutboxEntry;
+import oleborn.paymentservice.repository.PaymentBatchRepository;
 import oleborn.paymentservice.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
 
-    private final PaymentProducer paymentProducer;
+    private static final Duration LOCK_TTL = Duration.ofHours(24);
+    private static final String LOCK_VALUE = "processing";
+
+    private final PaymentOutbox paymentOutbox;
     private final PaymentRepository paymentRepository;
+    private final PaymentBatchRepository paymentBatchRepository;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final ProcessedPaymentCache processedPaymentCache;
+    private final PaymentGateway paymentGateway;
+    private final PaymentQueryService paymentQueryService;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    @Value("${app.payment.gateway.timeout:5s}")
+    private Duration gatewayTimeout;
+
+    /**
+     * Поштучная оплата с ожиданием ответа шлюза в текущем потоке.
+     * <p>
+     * Используется как запасной путь пакетного режима; основной поштучный путь —
+     * неблокирующий {@link PaymentAuthorizationPipeline} из тех же шагов:
+     * {@link #startPayment} → {@link #authorize} → {@link #completePayment}.
+     * Шаги до и после шлюза — отдельные транзакции, ответ шлюза ждём без открытой транзакции
+     * и занятого соединения с БД.
+     *
+     * @throws PaymentGatewayException если исход авторизации неизвестен и команду нужно повторить
+     */
     public void processPayment(ProcessPaymentCommand command) {
+        try {
+            // Вызовы внутри бина идут мимо прокси, поэтому транзакции — через TransactionTemplate
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> startPayment(command)))) {
+                GatewayAuthorization authorization = authorize(command).join();
+                transactionTemplate.executeWithoutResult(status -> completePayment(command, authorization));
+            }
+        } catch (Exception ex) {
+            abortPayment(command.orderId(), ex);
+        }
+    }
+
+    /**
+     * Шаг до обращения в шлюз: дедупликация, Redis-блокировка, PaymentStartedEvent и проверка в БД.
+     *
+     * @return true, если заказ захвачен этим вызовом и его нужно авторизовать в шлюзе
+     */
+    @Transactional
+    public boolean startPayment(ProcessPaymentCommand command) {
+
+        // Повтор, который этот узел уже довёл до конца, — без Redis и БД
+        Optional<PaymentStatus> cached = processedPaymentCache.outcome(command.orderId());
+        if (cached.isPresent()) {
+            log.info("Заказ {} уже обработан этим узлом ({}), пропускаем повтор", command.orderId(), cached.get());
+            return false;
+        }
+
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(
+                        lockKey(command.orderId()),
+                        LOCK_VALUE,
+                        LOCK_TTL
+                );
+
+        log.info("Redis обработал блокировку, результат: {}", locked);
+
+        //публикуем старт процесса оплаты (через outbox — в той же транзакции, что и проверка)
+        paymentOutbox.append(
+                command.orderId(),
+                new PaymentStartedEvent(
+                        command.orderId(),
+                        Instant.now()
+                )
+        );
+
+        if (Boolean.FALSE.equals(locked)) {
+            log.info("Заказ {} уже обрабатывается или обработан (Redis), пропускаем", command.orderId());
+            return false;
+        }
+
+        Optional<Payment> existing = paymentRepository.findByOrderId(command.orderId());
+
+        //Проверка в БД (защита от дублей, если Redis потерял ключ)
+        if (existing.isPresent()) {
+            log.info("Платёж для заказа {} уже обработан (БД), пропускаем повтор", command.orderId());
+            processedPaymentCache.rememberAfterCommit(command.orderId(), existing.get().getStatus());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Авторизация в шлюзе с таймаутом {@code app.payment.gateway.timeout}.
+     * Поток не занимается: future завершается на потоке шлюза.
+     * <p>
+     * Любой сбой обращения (таймаут, ошибка шлюза) завершает future с {@link PaymentGatewayException}:
+     * исход авторизации неизвестен, и это не то же самое, что отказ по карте.
+     */
+    public CompletableFuture<GatewayAuthorization> authorize(ProcessPaymentCommand command) {
+        return paymentGateway.authorize(command.orderId(), command.amount())
+                .orTimeout(gatewayTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof PaymentGatewayException gatewayException) {
+                        throw gatewayException;
+                    }
+                    if (cause instanceof TimeoutException) {
+                        throw new PaymentGatewayException(
+                                "Шлюз не ответил за " + gatewayTimeout + " для заказа " + command.orderId());
+                    }
+                    throw new PaymentGatewayException("Ошибка обращения к шлюзу для заказа " + command.orderId(), cause);
+                });
+    }
+
+    /**
+     * Шаг после ответа шлюза: платёж (COMPLETED или FAILED при отказе) и итоговое событие в outbox.
+     */
+    @Transactional
+    public void completePayment(ProcessPaymentCommand command, GatewayAuthorization authorization) {
+
+        PaymentStatus status = authorization.approved() ? PaymentStatus.COMPLETED : PaymentStatus.FAILED;
+
+        Payment record = Payment.builder()
+                .orderId(command.orderId())
+                .transactionId(authorization.transactionId())
+                .status(status)
+                .build();
+
+        paymentRepository.saveAndFlush(record);
+        processedPaymentCache.rememberAfterCommit(command.orderId(), status);
+        paymentQueryService.evictAfterCommit(List.of(command.orderId()));
 
-        String lockKey = "payment:order:" + command.orderId();
+        paymentOutbox.append(command.orderId(), resultEvent(record, Instant.now(), authorization.declineReason()));
+    }
+
+    /**
+     * Обработка ошибки любого шага: блокировка снимается, чтобы оплату можно было повторить.
+     * <p>
+     * Гонка за {@code order_id} — не ошибка: платёж уже создан параллельно, событие не публикуется.
+     * Неизвестный исход авторизации ({@link PaymentGatewayException}) — тоже не отказ: деньги могли
+     * быть списаны, поэтому PaymentFailedEvent не публикуется, а исключение пробрасывается
+     * вызывающему — команда уходит на повтор (retry-топики, затем DLT), а шлюз идемпотентен по orderId.
+     * В остальных случаях публикуется PaymentFailedEvent — отдельной транзакцией,
+     * потому что текущая может быть уже rollback-only.
+     *
+     * @throws PaymentGatewayException если исход авторизации неизвестен
+     */
+    public void abortPayment(Long orderId, Throwable error) {
+
+        Throwable ex = unwrap(error);
+
+        redisTemplate.delete(lockKey(orderId)); // удаляем ключ, чтобы не блокировать
+
+        if (ex instanceof DataIntegrityViolationException) {
+            // Гонка на уровне БД – кто-то другой успел сохранить
+            log.warn("Платёж для заказа {} уже создан параллельно, пропускаем", orderId);
+            return;
+        }
+
+        if (ex instanceof PaymentGatewayException gatewayException) {
+            log.warn("Исход авторизации заказа {} неизвестен, команда будет повторена: {}", orderId, ex.getMessage());
+            throw gatewayException;
+        }
+
+        log.error("Ошибка обработки платежа для заказа {}", orderId, ex);
+
+        paymentOutbox.appendInNewTransaction(
+                orderId,
+                new PaymentFailedEvent(
+                        orderId,
+                        ex.getMessage(),
+                        Instant.now()
+                )
+        );
+    }
+
+    /**
+     * Пакетная обработка команд одного poll — та же семантика, что у {@link #processPayment},
+     * но с фиксированным числом обращений к внешним системам на весь пакет:
+     * <ol>
+     *   <li>заказы из локального кэша {@link ProcessedPaymentCache} отсекаются сразу;</li>
+     *   <li>блокировки всех заказов — одна конвейерная (pipelined) серия SET NX EX в Redis;</li>
+     *   <li>PaymentStartedEvent — на каждую команду, как и в поштучном режиме;</li>
+     *   <li>проверка уже существующих платежей — один IN-запрос;</li>
+     *   <li>авторизации в шлюзе уходят все сразу и ожидаются вместе — пакет ждёт самый
+     *       медленный ответ, а не сумму задержек;</li>
+     *   <li>новые платежи — один JDBC batch ({@link PaymentBatchRepository});</li>
+     *   <li>все события — один JDBC batch в outbox; в Kafka их пакетами отправит OutboxRelay.</li>
+     * </ol>
+     * Ответы шлюза ждём без открытой транзакции: платежи и события пишутся одной
+     * транзакцией ({@link #savePayments}) только после того, как исходы известны.
+     * Заказы, по которым шлюз не дал ответа, не получают ни платежа, ни PaymentFailedEvent:
+     * их блокировки снимаются, а orderId возвращаются вызывающему для повтора.
+     * <p>
+     * При ошибке захваченные блокировки снимаются, а исключение пробрасывается —
+     * вызывающий переходит к поштучной обработке.
+     *
+     * @return заказы с неизвестным исходом авторизации — их команды нужно повторить
+     */
+    public Set<Long> processPayments(List<ProcessPaymentCommand> commands) {
+
+        // Повтор команды внутри одного poll обрабатываем один раз,
+        // а уже обработанные этим узлом заказы отсекаем до Redis
+        Map<Long, ProcessPaymentCommand> byOrderId = new LinkedHashMap<>();
+        for (ProcessPaymentCommand command : commands) {
+            if (processedPaymentCache.outcome(command.orderId()).isEmpty()) {
+                byOrderId.putIfAbsent(command.orderId(), command);
+            }
+        }
+
+        if (byOrderId.isEmpty()) {
+            log.info("Все {} команд пакета уже обработаны этим узлом, пропускаем", commands.size());
+            return Set.of();
+        }
+
+        List<Long> claimed = claimLocks(byOrderId.keySet());
 
         try {
+            Instant now = Instant.now();
+            List<OutboxEntry> events = new ArrayList<>(byOrderId.size() + claimed.size());
+            byOrderId.keySet().forEach(orderId ->
+                    events.add(new OutboxEntry(orderId, new PaymentStartedEvent(orderId, now))));
 
-            Boolean locked = redisTemplate.opsForValue()
-                    .setIfAbsent(
-                            lockKey,
-                            "processing",
-                            Duration.ofHours(24)
-                    );
-
-            log.info("Redis обработал блокировку, результат: {}", locked);
-
-            //публикуем старт процесса оплаты
-            paymentProducer.sendPaymentStartedEvent(
-                    new PaymentStartedEvent(
-                            command.orderId(),
-                            Instant.now()
-                    )
-            );
+            if (claimed.size() < byOrderId.size()) {
+                log.info("{} из {} заказов уже обрабатываются или обработаны (Redis), пропускаем",
+                        byOrderId.size() - claimed.size(), byOrderId.size());
+            }
+
+            Map<Long, CompletableFuture<GatewayAuthorization>> authorizations = new LinkedHashMap<>();
 
-            if (Boolean.FALSE.equals(locked)) {
-                log.info("Заказ {} уже обрабатывается или обработан (Redis), пропускаем", command.orderId());
-                return;
+            if (!claimed.isEmpty()) {
+                //Проверка в БД (защита от дублей, если Redis потерял ключ)
+                Map<Long, PaymentStatus> existing = paymentRepository.findStatusesByOrderIds(claimed);
+                existing.entrySet().stream()
+                        .collect(Collectors.groupingBy(Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                        .forEach((status, orderIds) -> processedPaymentCache.rememberAllAfterCommit(orderIds, status));
+
+                for (Long orderId : claimed) {
+                    if (existing.containsKey(orderId)) {
+                        log.info("Платёж для заказа {} уже обработан (БД), пропускаем повтор", orderId);
+                        continue;
+                    }
+                    authorizations.put(orderId, authorize(byOrderId.get(orderId)));
+                }
             }
 
-            Optional<Payment> existing = paymentRepository.findByOrderId(command.orderId());
+            List<Payment> toInsert = new ArrayList<>(authorizations.size());
+            Map<Long, String> declineReasons = new HashMap<>();
+            Set<Long> unknownOutcome = new LinkedHashSet<>();
 
-            //Проверка в БД (защита от дублей, если Redis потерял ключ)
-            if (existing.isPresent()) {
-                log.info("Платёж для заказа {} уже обработан (БД), пропускаем повтор", command.orderId());
-                return;
+            for (Map.Entry<Long, CompletableFuture<GatewayAuthorization>> entry : authorizations.entrySet()) {
+                Long orderId = entry.getKey();
+                try {
+                    GatewayAuthorization authorization = entry.getValue().join();
+                    if (!authorization.approved()) {
+                        declineReasons.put(orderId, authorization.declineReason());
+                    }
+                    toInsert.add(Payment.builder()
+                            .orderId(orderId)
+                            .transactionId(authorization.transactionId())
+                            .status(authorization.approved() ? PaymentStatus.COMPLETED : PaymentStatus.FAILED)
+                            .build());
+                } catch (CompletionException ex) {
+                    log.warn("Исход авторизации заказа {} неизвестен, команда будет повторена: {}",
+                            orderId, unwrap(ex).getMessage());
+                    unknownOutcome.add(orderId);
+                }
             }
 
-            String transactionId = "txn_" + System.currentTimeMillis();
+            if (!unknownOutcome.isEmpty()) {
+                // Исход неизвестен — разрешаем повтор
+                redisTemplate.delete(unknownOutcome.stream().map(PaymentService::lockKey).toList());
+            }
 
-            Payment record = Payment.builder()
-                    .orderId(command.orderId())
-                    .transactionId(transactionId)
-                    .status(PaymentStatus.COMPLETED)
-                    .build();
+            List<Payment> inserted = transactionTemplate.execute(status -> savePayments(toInsert, declineReasons, events, now));
 
-            paymentRepository.saveAndFlush(record);
+            log.info("Пакет из {} команд: создано платежей {}, на повтор {}, пропущено {}",
+                    commands.size(), inserted.size(), unknownOutcome.size(),
+                    commands.size() - inserted.size() - unknownOutcome.size());
+            return unknownOutcome;
 
-            paymentProducer.sendPaymentCompletedEvent(
-                    new PaymentCompletedEvent(
-                            command.orderId(),
-                            transactionId,
-                            PaymentStatus.COMPLETED.name(),
-                            Instant.now()
-                    )
-            );
+        } catch (Exception ex) {
+            // Любая ошибка – снимаем захваченные блокировки, чтобы поштучный повтор их получил
+            redisTemplate.delete(claimed.stream().map(PaymentService::lockKey).toList());
+            throw ex;
+        }
+    }
 
-        } catch (DataIntegrityViolationException e) {
+    /**
+     * Запись итогов пакета: платежи одним JDBC batch и все события одним batch в outbox.
+     * Вызывается внутри транзакции, когда ответы шлюза уже получены.
+     *
+     * @return реально вставленные платежи (без проигравших гонку за {@code order_id})
+     */
+    private List<Payment> savePayments(List<Payment> toInsert, Map<Long, String> declineReasons,
+                                       List<OutboxEntry> events, Instant now) {
 
+        List<Payment> inserted = toInsert.isEmpty() ? List.of() : paymentBatchRepository.insertAll(toInsert);
+
+        if (inserted.size() < toInsert.size()) {
             // Гонка на уровне БД – кто-то другой успел сохранить
-            log.warn("Платёж для заказа {} уже создан параллельно, пропускаем", command.orderId());
-            redisTemplate.delete(lockKey); // удаляем ключ, чтобы не блокировать
+            Set<Long> insertedOrderIds = inserted.stream().map(Payment::getOrderId).collect(Collectors.toSet());
+            List<String> raced = toInsert.stream()
+                    .filter(payment -> !insertedOrderIds.contains(payment.getOrderId()))
+                    .map(payment -> lockKey(payment.getOrderId()))
+                    .toList();
+            log.warn("{} платежей уже созданы параллельно, пропускаем", raced.size());
+            redisTemplate.delete(raced); // удаляем ключи, чтобы не блокировать
+        }
 
-        } catch (Exception ex) {
+        for (Payment payment : inserted) {
+            events.add(new OutboxEntry(payment.getOrderId(), resultEvent(payment, now, declineReasons.get(payment.getOrderId()))));
+        }
+
+        paymentOutbox.appendAll(events);
+        inserted.stream()
+                .collect(Collectors.groupingBy(Payment::getStatus, Collectors.mapping(Payment::getOrderId, Collectors.toList())))
+                .forEach((status, orderIds) -> processedPaymentCache.rememberAllAfterCommit(orderIds, status));
+        paymentQueryService.evictAfterCommit(inserted.stream().map(Payment::getOrderId).toList());
+
+        return inserted;
+    }
+
+    /**
+     * Захватывает блокировки для всех заказов за один round-trip к Redis.
+     *
+     * @return заказы, блокировку которых удалось получить (ключа ещё не было)
+     */
+    @SuppressWarnings("unchecked")
+    private List<Long> claimLocks(Collection<Long> orderIds) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        byte[] value = valueSerializer.serialize(LOCK_VALUE);
+        Expiration ttl = Expiration.from(LOCK_TTL);
+
+        List<Long> ordered = new ArrayList<>(orderIds);
 
-            // Любая другая ошибка – удаляем ключ, чтобы можно было повторить
-            redisTemplate.delete(lockKey);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long orderId : ordered) {
+                connection.stringCommands().set(
+                        keySerializer.serialize(lockKey(orderId)),
+                        value,
+                        ttl,
+                        RedisStringCommands.SetOption.ifAbsent()
+                );
+            }
+            return null;
+        });
 
-            log.error("Ошибка обработки платежа для заказа {}", command.orderId(), ex);
+        List<Long> claimed = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                claimed.add(ordered.get(i));
+            }
+        }
+
+        log.info("Redis обработал {} блокировок одним конвейером, захвачено: {}", ordered.size(), claimed.size());
+        return claimed;
+    }
 
-            paymentProducer.sendPaymentFailedEvent(
-                    new PaymentFailedEvent(
-                            command.orderId(),
-                            ex.getMessage(),
-                            Instant.now()
-                    )
+    private static Object resultEvent(Payment payment, Instant timestamp, String declineReason) {
+        if (payment.getStatus() == PaymentStatus.COMPLETED) {
+            return new PaymentCompletedEvent(
+                    payment.getOrderId(),
+                    payment.getTransactionId(),
+                    PaymentStatus.COMPLETED.name(),
+                    timestamp
             );
         }
+        return new PaymentFailedEvent(
+                payment.getOrderId(),
+                "Платёж отклонён шлюзом: " + declineReason,
+                timestamp
+        );
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private static String lockKey(Long orderId) {
+        return "payment:order:" + orderId;
     }
 }
@@ -0,0 +1,14 @@
+CREATE TABLE payment_outbox_event (
+   id BIGSERIAL PRIMARY KEY,
+   aggregateid VARCHAR(255) NOT NULL,        -- orderId (ключ сообщения Kafka)
+   eventtype VARCHAR(255) NOT NULL,          -- 'PaymentCompletedEvent'
+   payload JSON NOT NULL,                    -- тело события
+   status VARCHAR(50) NOT NULL DEFAULT 'NEW', -- NEW, PUBLISHED, FAILED
+   created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+   processed_at TIMESTAMP WITH TIME ZONE
+);
+
+-- Релей читает только неопубликованные события по порядку id
+CREATE INDEX idx_payment_outbox_event_new_id ON payment_outbox_event (id) WHERE status = 'NEW';
+
+CREATE INDEX idx_payment_outbox_event_status_processed_at ON payment_outbox_event (status, processed_at);
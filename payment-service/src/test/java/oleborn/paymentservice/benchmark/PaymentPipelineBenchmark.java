@@ -0,0 +1,103 @@
+package oleborn.paymentservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import oleborn.paymentservice.domain.command.ProcessPaymentCommand;
+import oleborn.paymentservice.gateway.GatewayAuthorization;
+import oleborn.paymentservice.gateway.SimulatedPaymentGateway;
+import oleborn.paymentservice.service.PaymentAuthorizationPipeline;
+import oleborn.paymentservice.service.PaymentService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Пропускная способность {@link PaymentAuthorizationPipeline} поверх {@link SimulatedPaymentGateway}
+ * при разном числе оплат в полёте. Redis и БД замоканы — замер показывает только влияние
+ * латентности шлюза и конвейера; {@code max-in-flight=1} соответствует прежней обработке «одна за другой».
+ * <p>
+ * Команды идут по {@code pipeline.benchmark.orders} заказам по кругу, так что у каждого заказа
+ * несколько команд — проверяется, что они завершились в порядке подачи.
+ * Запуск только явный:
+ * <pre>
+ * mvn -pl payment-service test -Dtest=PaymentPipelineBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dpipeline.benchmark.count=5000 -Dpipeline.benchmark.in-flight=1,16,64,256,1024
+ * </pre>
+ */
+class PaymentPipelineBenchmark {
+
+    private static final int COUNT = Integer.getInteger("pipeline.benchmark.count", 5_000);
+    private static final int ORDERS = Integer.getInteger("pipeline.benchmark.orders", 1_000);
+    private static final String IN_FLIGHT = System.getProperty("pipeline.benchmark.in-flight", "16,64,256,1024");
+    private static final Duration LATENCY_MEDIAN =
+            Duration.parse(System.getProperty("pipeline.benchmark.latency-median", "PT0.12S"));
+    private static final Duration LATENCY_P99 =
+            Duration.parse(System.getProperty("pipeline.benchmark.latency-p99", "PT0.8S"));
+
+    @Test
+    void throughputByInFlightLimit() throws Exception {
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(LATENCY_MEDIAN, LATENCY_P99, 0.02, 0.005);
+
+        // Последовательная обработка — оценка по медиане: сотни секунд на полном прогоне не нужны
+        System.out.printf("%n=== Payment pipeline: %,d commands, %,d orders, latency median %s p99 %s ===%n",
+                COUNT, ORDERS, LATENCY_MEDIAN, LATENCY_P99);
+        System.out.printf("max-in-flight %5d: ~%,8.0f payments/sec (estimate: 1 / median latency)%n",
+                1, 1000.0 / LATENCY_MEDIAN.toMillis());
+
+        try {
+            for (String limit : IN_FLIGHT.split(",")) {
+                run(gateway, Integer.parseInt(limit.trim()));
+            }
+        } finally {
+            gateway.shutdown();
+        }
+    }
+
+    private static void run(SimulatedPaymentGateway gateway, int maxInFlight) throws Exception {
+        Map<Long, List<Integer>> completedByOrder = new ConcurrentHashMap<>();
+
+        PaymentService paymentService = mock(PaymentService.class);
+        when(paymentService.startPayment(any())).thenReturn(true);
+        when(paymentService.authorize(any())).thenAnswer(invocation -> {
+            ProcessPaymentCommand command = invocation.getArgument(0);
+            return gateway.authorize(command.orderId(), command.amount());
+        });
+        doAnswer(invocation -> {
+            ProcessPaymentCommand command = invocation.getArgument(0);
+            GatewayAuthorization ignored = invocation.getArgument(1);
+            completedByOrder.computeIfAbsent(command.orderId(), id -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(command.amount().intValue());
+            return null;
+        }).when(paymentService).completePayment(any(), any());
+
+        PaymentAuthorizationPipeline pipeline =
+                new PaymentAuthorizationPipeline(paymentService, new SimpleMeterRegistry(), maxInFlight, 8);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(COUNT);
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            // amount — порядковый номер команды, по нему проверяется порядок внутри заказа
+            futures.add(pipeline.submit(new ProcessPaymentCommand((long) (i % ORDERS), BigDecimal.valueOf(i))));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        long nanos = System.nanoTime() - start;
+        pipeline.shutdown();
+
+        System.out.printf("max-in-flight %5d: %,10.0f payments/sec (%,d ms)%n",
+                maxInFlight, COUNT / (nanos / 1e9), nanos / 1_000_000);
+
+        completedByOrder.values().forEach(sequence -> assertThat(sequence).isSorted());
+    }
+}